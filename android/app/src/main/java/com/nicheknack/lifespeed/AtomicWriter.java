@@ -0,0 +1,188 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Crash-safe replacement of a file's contents.
+ *
+ * Internal files: write a sibling temp file, fsync it, rename over the target.
+ *
+ * SAF documents on path-based providers (ExternalStorageProvider), where a
+ * renamed document keeps the docId the rest of the app holds: write and fsync a
+ * sibling temp document, delete the target, rename the temp into place. A kill
+ * between the last two steps leaves only the temp, which {@link #recover}
+ * promotes on the next read or listing of the entry.
+ *
+ * Other providers may give a renamed document a new identity, so the target is
+ * rewritten in place instead: "rw" (no truncation up front), overwrite from 0,
+ * truncate to the new length, fsync. Only when that mode is unsupported does it
+ * fall back to a plain truncating "wt" stream.
+ */
+final class AtomicWriter {
+    private static final String TAG = "AtomicWriter";
+    private static final String EXTERNAL_STORAGE_AUTHORITY = "com.android.externalstorage.documents";
+    private static final String TEMP_SUFFIX = ".saving";
+
+    private AtomicWriter() {
+    }
+
+    static void write(File target, byte[] data) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File temp = new File(parent, target.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Could not replace " + target.getName());
+        }
+    }
+
+    static void write(Context context, Uri target, byte[] data) throws IOException {
+        if (supportsRenameSwap(target) && swapIn(context, target, data)) return;
+        rewriteInPlace(context, target, data);
+    }
+
+    /** Display name of the temp a save of name writes before swapping it in. */
+    static String tempName(String name) {
+        return name + TEMP_SUFFIX;
+    }
+
+    /**
+     * Promote a temp left behind by a write that was killed after deleting the
+     * target. Returns true if the target exists again.
+     */
+    static boolean recover(Context context, Uri target) {
+        if (!supportsRenameSwap(target)) return false;
+        ContentResolver resolver = context.getContentResolver();
+        Uri temp = tempUriFor(target);
+        try {
+            Uri renamed = DocumentsContract.renameDocument(resolver, temp, displayName(target));
+            if (renamed != null) {
+                Log.w(TAG, "Recovered interrupted save of " + target);
+                return true;
+            }
+        } catch (FileNotFoundException | RuntimeException e) {
+            // No temp: nothing to recover
+        }
+        return false;
+    }
+
+    private static boolean supportsRenameSwap(Uri target) {
+        if (!EXTERNAL_STORAGE_AUTHORITY.equals(target.getAuthority())) return false;
+        String docId = DocumentsContract.getDocumentId(target);
+        return docId != null && docId.lastIndexOf('/') > 0;
+    }
+
+    /**
+     * @return false if the temp could not be prepared (the target is untouched
+     *         and the caller should rewrite in place)
+     */
+    private static boolean swapIn(Context context, Uri target, byte[] data) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        String docId = DocumentsContract.getDocumentId(target);
+        Uri parent = DocumentsContract.buildDocumentUriUsingTree(target, docId.substring(0, docId.lastIndexOf('/')));
+        String tempName = tempName(displayName(target));
+
+        // A stale temp would make createDocument pick "name (1)"
+        Uri stale = tempUriFor(target);
+        try {
+            DocumentsContract.deleteDocument(resolver, stale);
+        } catch (FileNotFoundException | RuntimeException e) {
+            // None left over
+        }
+
+        Uri temp = null;
+        try {
+            temp = DocumentsContract.createDocument(resolver, parent, "application/octet-stream", tempName);
+            if (temp == null) return false;
+            writeSynced(resolver, temp, data, "w");
+            if (!DocumentsContract.deleteDocument(resolver, target)) {
+                deleteQuietly(resolver, temp);
+                return false;
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Rename swap unavailable, rewriting in place: " + e.getMessage());
+            if (temp != null) deleteQuietly(resolver, temp);
+            return false;
+        }
+
+        // The new content is durable in the temp; a kill here is repaired by recover()
+        if (DocumentsContract.renameDocument(resolver, temp, displayName(target)) == null) {
+            throw new IOException("Could not rename temp document into place");
+        }
+        return true;
+    }
+
+    private static void rewriteInPlace(Context context, Uri target, byte[] data) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        try {
+            writeSynced(resolver, target, data, "rw");
+            return;
+        } catch (FileNotFoundException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Provider only supports streaming writes
+        }
+        OutputStream out = resolver.openOutputStream(target, "wt");
+        if (out == null) throw new IOException("Could not open file for writing");
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write data from offset 0, cut the file to its length and fsync.
+     */
+    private static void writeSynced(ContentResolver resolver, Uri uri, byte[] data, String mode) throws IOException {
+        ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, mode);
+        if (pfd == null) throw new FileNotFoundException("Could not open " + uri);
+        try (FileOutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd)) {
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.truncate(data.length);
+            out.getFD().sync();
+        }
+    }
+
+    private static Uri tempUriFor(Uri target) {
+        return DocumentsContract.buildDocumentUriUsingTree(target,
+                DocumentsContract.getDocumentId(target) + TEMP_SUFFIX);
+    }
+
+    private static String displayName(Uri target) {
+        String docId = DocumentsContract.getDocumentId(target);
+        return docId.substring(docId.lastIndexOf('/') + 1);
+    }
+
+    private static void deleteQuietly(ContentResolver resolver, Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(resolver, uri);
+        } catch (FileNotFoundException | RuntimeException e) {
+            // Best effort
+        }
+    }
+}
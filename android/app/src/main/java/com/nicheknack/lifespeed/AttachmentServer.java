@@ -0,0 +1,269 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.UriPermission;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract.Document;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Serves entry attachments (images/ and files/) to the WebView as plain URLs,
+ * streaming bytes straight from SAF or internal storage instead of shipping
+ * base64 data URLs through the bridge.
+ *
+ * URL shape: {localUrl}/_attachments/{encoded entry URI or path}/{relative path}
+ */
+final class AttachmentServer {
+    private static final String TAG = "AttachmentServer";
+
+    static final String PATH_PREFIX = "/_attachments/";
+
+    private final Context context;
+    private final File internalJournalDir;
+
+    AttachmentServer(Context context) {
+        this.context = context.getApplicationContext();
+        this.internalJournalDir = new File(this.context.getFilesDir(), "journal");
+    }
+
+    /**
+     * Build the URL the WebView can load for an entry attachment.
+     */
+    static String buildUrl(String localUrl, String entryUri, String relativePath) {
+        StringBuilder url = new StringBuilder(localUrl).append(PATH_PREFIX).append(Uri.encode(entryUri));
+        for (String part : relativePath.split("/")) {
+            if (part.isEmpty()) continue;
+            url.append('/').append(Uri.encode(part));
+        }
+        return url.toString();
+    }
+
+    /**
+     * Answer an attachment request, or return null if the URL is not ours.
+     */
+    WebResourceResponse handle(WebResourceRequest request) {
+        Uri url = request.getUrl();
+        String encodedPath = url != null ? url.getEncodedPath() : null;
+        if (encodedPath == null) return null;
+        if (encodedPath.startsWith(ThumbnailCache.PATH_PREFIX)) {
+            if (!"GET".equalsIgnoreCase(request.getMethod())) return error(405, "Method Not Allowed");
+            return respondThumbnail(encodedPath.substring(ThumbnailCache.PATH_PREFIX.length()));
+        }
+        if (!encodedPath.startsWith(PATH_PREFIX)) return null;
+        if (!"GET".equalsIgnoreCase(request.getMethod())) return error(405, "Method Not Allowed");
+
+        String rest = encodedPath.substring(PATH_PREFIX.length());
+        int slash = rest.indexOf('/');
+        if (slash <= 0) return error(404, "Not Found");
+
+        String entry = Uri.decode(rest.substring(0, slash));
+        String[] parts = rest.substring(slash + 1).split("/");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = Uri.decode(parts[i]);
+        }
+        if (!isServablePath(parts)) return error(404, "Not Found");
+
+        try {
+            Attachment attachment = open(entry, parts);
+            if (attachment == null) return error(404, "Not Found");
+            return respond(attachment, parts[parts.length - 1]);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Attachment access denied: " + e.getMessage());
+            return error(403, "Forbidden");
+        } catch (Exception e) {
+            Log.w(TAG, "Attachment request failed: " + e.getMessage());
+            return error(500, "Internal Server Error");
+        }
+    }
+
+    /**
+     * A resolved attachment: either a SAF document or an internal file.
+     */
+    static final class Attachment {
+        final Uri uri;
+        final File file;
+        final long size;
+        final long lastModified;
+
+        Attachment(Uri uri, File file, long size, long lastModified) {
+            this.uri = uri;
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Resolve an attachment of an entry, applying the same checks as URL requests.
+     * @return null if the path is not servable or the file does not exist
+     * @throws SecurityException if the entry is outside the granted locations
+     */
+    Attachment open(String entry, String relativePath) throws IOException {
+        String[] parts = relativePath.split("/");
+        if (!isServablePath(parts)) return null;
+        return open(entry, parts);
+    }
+
+    private Attachment open(String entry, String[] parts) throws IOException {
+        return entry.startsWith("/") ? openInternal(entry, parts) : openDocument(entry, parts);
+    }
+
+    InputStream openStream(Attachment attachment) throws IOException {
+        return attachment.file != null
+                ? new FileInputStream(attachment.file)
+                : context.getContentResolver().openInputStream(attachment.uri);
+    }
+
+    /**
+     * Only images/ and files/ beneath an entry, with no traversal segments.
+     */
+    private static boolean isServablePath(String[] parts) {
+        if (parts.length < 2) return false;
+        if (!"images".equals(parts[0]) && !"files".equals(parts[0])) return false;
+        for (String part : parts) {
+            if (part.isEmpty() || ".".equals(part) || "..".equals(part) || part.indexOf('/') >= 0) return false;
+        }
+        return true;
+    }
+
+    private Attachment openInternal(String entryPath, String[] parts) throws IOException {
+        File target = new File(entryPath);
+        for (String part : parts) {
+            target = new File(target, part);
+        }
+
+        // Must stay inside the internal journal
+        String root = internalJournalDir.getCanonicalPath() + File.separator;
+        if (!target.getCanonicalPath().startsWith(root)) {
+            throw new SecurityException("Outside internal journal: " + entryPath);
+        }
+        if (!target.isFile()) return null;
+        return new Attachment(null, target, target.length(), target.lastModified());
+    }
+
+    private Attachment openDocument(String entryUri, String[] parts) {
+        if (!isGrantedTree(entryUri)) {
+            throw new SecurityException("No persisted permission for " + entryUri);
+        }
+
+        StringBuilder relativePath = new StringBuilder();
+        for (String part : parts) {
+            if (relativePath.length() > 0) relativePath.append('/');
+            relativePath.append(part);
+        }
+        DocumentResolver resolver = DocumentResolver.get(context);
+        Uri uri = resolver.resolve(Uri.parse(entryUri), relativePath.toString());
+        if (uri == null) return null;
+
+        long size = -1;
+        long lastModified = 0;
+        try (Cursor cursor = context.getContentResolver().query(uri,
+                new String[]{Document.COLUMN_SIZE, Document.COLUMN_LAST_MODIFIED}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                size = cursor.isNull(0) ? -1 : cursor.getLong(0);
+                lastModified = cursor.getLong(1);
+            }
+        } catch (IllegalArgumentException e) {
+            // Stale cached document: the provider no longer knows it
+            resolver.invalidate(uri);
+            return null;
+        }
+        return new Attachment(uri, null, size, lastModified);
+    }
+
+    /**
+     * The entry must live under a tree the user granted us.
+     */
+    private boolean isGrantedTree(String entryUri) {
+        if (!entryUri.startsWith(ContentResolver.SCHEME_CONTENT + "://")) return false;
+        List<UriPermission> permissions = context.getContentResolver().getPersistedUriPermissions();
+        for (UriPermission permission : permissions) {
+            if (permission.isReadPermission() && entryUri.startsWith(permission.getUri().toString() + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Always a full 200: WebResourceResponse does not allow 3xx statuses, so a
+     * revalidation cannot be answered with 304 Not Modified.
+     */
+    private WebResourceResponse respond(Attachment attachment, String filename) throws IOException {
+        String etag = "\"" + Long.toHexString(attachment.lastModified) + "-" + Long.toHexString(attachment.size) + "\"";
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "private, max-age=3600, must-revalidate");
+        headers.put("ETag", etag);
+        if (attachment.lastModified > 0) {
+            headers.put("Last-Modified", httpDate(attachment.lastModified));
+        }
+
+        InputStream data = openStream(attachment);
+        if (data == null) return error(404, "Not Found");
+        if (attachment.size >= 0) {
+            headers.put("Content-Length", String.valueOf(attachment.size));
+        }
+        return new WebResourceResponse(mimeTypeFor(filename), null, 200, "OK", headers, data);
+    }
+
+    /**
+     * Thumbnails are content-addressed (the name covers source, mtime and width),
+     * so they never change once written and can be cached without revalidation.
+     * Always a 200: WebResourceResponse does not allow 3xx statuses.
+     */
+    private WebResourceResponse respondThumbnail(String name) {
+        try {
+            File file = ThumbnailCache.get(context).lookup(name);
+            if (file == null) return error(404, "Not Found");
+
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Cache-Control", "private, max-age=31536000, immutable");
+            headers.put("Content-Length", String.valueOf(file.length()));
+            return new WebResourceResponse(mimeTypeFor(name), null, 200, "OK", headers, new FileInputStream(file));
+        } catch (IOException e) {
+            Log.w(TAG, "Thumbnail request failed: " + e.getMessage());
+            return error(404, "Not Found");
+        } catch (Exception e) {
+            Log.w(TAG, "Thumbnail request failed: " + e.getMessage());
+            return error(500, "Internal Server Error");
+        }
+    }
+
+    static String mimeTypeFor(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot >= 0) {
+            String extension = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+            String mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+            if (mimeType != null) return mimeType;
+        }
+        return "application/octet-stream";
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    private static WebResourceResponse error(int status, String reason) {
+        return new WebResourceResponse("text/plain", "utf-8", status, reason, new HashMap<>(), null);
+    }
+}
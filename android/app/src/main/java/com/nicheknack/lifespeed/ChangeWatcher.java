@@ -0,0 +1,234 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.FileObserver;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push notifications of changes under the journal root, debounced.
+ *
+ * SAF trees: a ContentObserver on the root's child-documents URI. The root
+ * children cursor is kept open while watching, because providers such as
+ * ExternalStorageProvider only observe a directory while a cursor on it is
+ * alive. Providers that never notify simply never fire.
+ *
+ * Internal journal: a FileObserver on the root for entries appearing and
+ * disappearing, plus one per entry directory for file writes inside it.
+ *
+ * The first event arms a timer; everything that arrives before it fires is
+ * reported as one change with the dirnames involved (empty when the provider
+ * did not say which entry changed).
+ */
+final class ChangeWatcher {
+    private static final String TAG = "ChangeWatcher";
+    private static final long DEBOUNCE_MS = 500;
+
+    private static final int ROOT_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.DELETE_SELF;
+    private static final int ENTRY_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.CREATE
+            | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+
+    /** Receives one debounced change; called on the watcher's timer thread. */
+    interface Listener {
+        void onChanged(String root, Set<String> dirnames);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private String root;
+    private ContentObserver observer;
+    private Cursor rootCursor;
+    private FileObserver rootObserver;
+    private final Map<String, FileObserver> entryObservers = new HashMap<>();
+
+    private final Set<String> pendingDirnames = new LinkedHashSet<>();
+    private boolean armed;
+
+    ChangeWatcher(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lifespeed-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Watch a SAF tree URI or internal journal path, replacing any current watch.
+     */
+    synchronized void watch(String rootUriOrPath) {
+        stop();
+        root = rootUriOrPath;
+        if (rootUriOrPath.startsWith("/")) {
+            watchDirectory(new File(rootUriOrPath));
+        } else {
+            watchTree(Uri.parse(rootUriOrPath));
+        }
+        Log.d(TAG, "Watching " + rootUriOrPath);
+    }
+
+    synchronized void stop() {
+        if (observer != null) {
+            context.getContentResolver().unregisterContentObserver(observer);
+            observer = null;
+        }
+        if (rootCursor != null) {
+            rootCursor.close();
+            rootCursor = null;
+        }
+        if (rootObserver != null) {
+            rootObserver.stopWatching();
+            rootObserver = null;
+        }
+        for (FileObserver entryObserver : entryObservers.values()) {
+            entryObserver.stopWatching();
+        }
+        entryObservers.clear();
+        pendingDirnames.clear();
+        root = null;
+    }
+
+    private void watchTree(Uri treeUri) {
+        String rootDocId = DocumentsContract.getTreeDocumentId(treeUri);
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, rootDocId);
+        String watchedRoot = root;
+
+        observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChange(selfChange, null);
+            }
+
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                changed(watchedRoot, uri != null ? dirnameOf(uri, rootDocId) : null);
+            }
+        };
+
+        ContentResolver resolver = context.getContentResolver();
+        resolver.registerContentObserver(childrenUri, true, observer);
+        try {
+            rootCursor = resolver.query(childrenUri,
+                    new String[]{DocumentsContract.Document.COLUMN_DOCUMENT_ID}, null, null, null);
+            if (rootCursor != null) rootCursor.registerContentObserver(observer);
+        } catch (Exception e) {
+            // Still registered on the URI; only the provider's directory observer is lost
+            Log.w(TAG, "Could not hold children cursor: " + e.getMessage());
+        }
+    }
+
+    private void watchDirectory(File dir) {
+        String watchedRoot = root;
+        rootObserver = new FileObserver(dir.getAbsolutePath(), ROOT_EVENTS) {
+            @Override
+            public void onEvent(int event, String name) {
+                if (name == null) {
+                    changed(watchedRoot, null);
+                    return;
+                }
+                int type = event & ROOT_EVENTS;
+                if (type == FileObserver.CREATE || type == FileObserver.MOVED_TO) {
+                    watchEntry(watchedRoot, new File(dir, name));
+                } else if (type == FileObserver.DELETE || type == FileObserver.MOVED_FROM) {
+                    unwatchEntry(watchedRoot, name);
+                }
+                changed(watchedRoot, name);
+            }
+        };
+        rootObserver.startWatching();
+
+        File[] children = dir.listFiles();
+        if (children == null) return;
+        for (File child : children) {
+            if (child.isDirectory()) watchEntry(watchedRoot, child);
+        }
+    }
+
+    private synchronized void watchEntry(String watchedRoot, File entryDir) {
+        if (!watchedRoot.equals(root) || !entryDir.isDirectory()
+                || entryObservers.containsKey(entryDir.getName())) {
+            return;
+        }
+        String dirname = entryDir.getName();
+        FileObserver entryObserver = new FileObserver(entryDir.getAbsolutePath(), ENTRY_EVENTS) {
+            @Override
+            public void onEvent(int event, String name) {
+                changed(watchedRoot, dirname);
+            }
+        };
+        entryObserver.startWatching();
+        entryObservers.put(dirname, entryObserver);
+    }
+
+    private synchronized void unwatchEntry(String watchedRoot, String dirname) {
+        if (!watchedRoot.equals(root)) return;
+        FileObserver entryObserver = entryObservers.remove(dirname);
+        if (entryObserver != null) entryObserver.stopWatching();
+    }
+
+    private synchronized void changed(String watchedRoot, String dirname) {
+        // Late events from a root we no longer watch
+        if (!watchedRoot.equals(root)) return;
+        if (dirname != null) pendingDirnames.add(dirname);
+        if (!armed) {
+            armed = true;
+            timer.schedule(this::fire, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void fire() {
+        String firedRoot;
+        Set<String> dirnames;
+        synchronized (this) {
+            armed = false;
+            if (root == null) return;
+            firedRoot = root;
+            dirnames = new LinkedHashSet<>(pendingDirnames);
+            pendingDirnames.clear();
+        }
+        try {
+            listener.onChanged(firedRoot, dirnames);
+        } catch (Exception e) {
+            Log.e(TAG, "Change listener failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Entry dirname of a changed document URI, or null for the root itself or
+     * URIs that don't name a document under it.
+     */
+    static String dirnameOf(Uri uri, String rootDocId) {
+        List<String> segments = uri.getPathSegments();
+        int index = segments.indexOf("document");
+        if (index < 0 || index + 1 >= segments.size()) return null;
+
+        String docId = segments.get(index + 1);
+        String prefix = rootDocId.endsWith(":") || rootDocId.endsWith("/") ? rootDocId : rootDocId + "/";
+        if (!docId.startsWith(prefix) || docId.length() == prefix.length()) return null;
+
+        String relative = docId.substring(prefix.length());
+        int slash = relative.indexOf('/');
+        return slash >= 0 ? relative.substring(0, slash) : relative;
+    }
+}
@@ -0,0 +1,77 @@
+package com.nicheknack.lifespeed;
+
+import android.util.LruCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+
+/**
+ * Last known content of recently read or written entries, with its SHA-256.
+ *
+ * patchFile applies edits against this copy instead of receiving the whole
+ * document again; the hash lets the renderer prove it edited the same base.
+ * Bounded by total characters so a few very long entries cannot pin memory.
+ */
+final class ContentCache {
+    private static final int MAX_CHARS = 4 * 1024 * 1024;
+
+    static final class Entry {
+        final String content;
+        final String hash;
+
+        Entry(String content, String hash) {
+            this.content = content;
+            this.hash = hash;
+        }
+    }
+
+    private final LruCache<String, Entry> entries = new LruCache<String, Entry>(MAX_CHARS) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+            return Math.max(1, value.content.length());
+        }
+    };
+
+    /**
+     * Remember content for uri and return its hash.
+     */
+    String put(String uri, String content) {
+        String hash = hash(content);
+        entries.put(uri, new Entry(content, hash));
+        return hash;
+    }
+
+    Entry get(String uri) {
+        return entries.get(uri);
+    }
+
+    void remove(String uri) {
+        entries.remove(uri);
+    }
+
+    /**
+     * Forget every URI on the given lane (entry deleted).
+     */
+    void removeLane(String laneKey) {
+        for (String uri : new ArrayList<>(entries.snapshot().keySet())) {
+            if (laneKey.equals(IoScheduler.laneKey(uri))) {
+                entries.remove(uri);
+            }
+        }
+    }
+
+    static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
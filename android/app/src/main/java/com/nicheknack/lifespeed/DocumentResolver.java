@@ -0,0 +1,228 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+import android.util.LruCache;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps (entry, relative path) to SAF document URIs without walking the tree
+ * with DocumentFile.findFile, which lists the whole directory for every segment.
+ *
+ * Resolution order:
+ * 1. the cache of (parent docId, child name) -> child docId;
+ * 2. for path-based providers, the docId built by convention ("parent/name"),
+ *    confirmed with a single query on the document itself;
+ * 3. one children query per directory, which caches every sibling at once.
+ *
+ * Writes record the documents they create; deletes invalidate the subtree.
+ * Misses are never cached, so files created outside the app are still found.
+ */
+final class DocumentResolver {
+    private static final String EXTERNAL_STORAGE_AUTHORITY = "com.android.externalstorage.documents";
+    private static final int MAX_ENTRIES = 2048;
+    private static final char SEPARATOR = '\u0000';
+
+    private static volatile DocumentResolver instance;
+
+    static DocumentResolver get(Context context) {
+        DocumentResolver local = instance;
+        if (local == null) {
+            synchronized (DocumentResolver.class) {
+                local = instance;
+                if (local == null) {
+                    local = new DocumentResolver(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private final ContentResolver resolver;
+    private final LruCache<String, String> children = new LruCache<>(MAX_ENTRIES);
+
+    private DocumentResolver(Context context) {
+        this.resolver = context.getContentResolver();
+    }
+
+    /**
+     * Resolve a path below a tree or document-in-tree URI.
+     * @return the document URI, or null if some segment does not exist
+     */
+    Uri resolve(Uri baseUri, String relativePath) {
+        String authority = baseUri.getAuthority();
+        String docId = documentIdOf(baseUri);
+        List<String> parts = segments(relativePath);
+        if (parts.isEmpty()) return baseUri;
+
+        // Fast path: every segment cached
+        String cached = docId;
+        for (String part : parts) {
+            cached = children.get(key(authority, cached, part));
+            if (cached == null) break;
+        }
+        if (cached != null) return DocumentsContract.buildDocumentUriUsingTree(baseUri, cached);
+
+        if (EXTERNAL_STORAGE_AUTHORITY.equals(authority)) {
+            String candidate = docId;
+            for (String part : parts) {
+                candidate = candidate + "/" + part;
+            }
+            Uri uri = DocumentsContract.buildDocumentUriUsingTree(baseUri, candidate);
+            if (exists(uri)) {
+                String parent = docId;
+                for (String part : parts) {
+                    String child = parent + "/" + part;
+                    children.put(key(authority, parent, part), child);
+                    parent = child;
+                }
+                return uri;
+            }
+        }
+
+        String parent = docId;
+        for (String part : parts) {
+            String child = children.get(key(authority, parent, part));
+            if (child == null) {
+                child = listChildren(baseUri, parent, part);
+                if (child == null) return null;
+            }
+            parent = child;
+        }
+        return DocumentsContract.buildDocumentUriUsingTree(baseUri, parent);
+    }
+
+    /**
+     * Find a direct child directory, creating it if missing.
+     */
+    Uri findOrCreateDirectory(Uri parentUri, String name) throws FileNotFoundException {
+        return findOrCreate(parentUri, Document.MIME_TYPE_DIR, name);
+    }
+
+    /**
+     * Find a direct child file, creating it if missing.
+     */
+    Uri findOrCreateFile(Uri parentUri, String mimeType, String name) throws FileNotFoundException {
+        return findOrCreate(parentUri, mimeType, name);
+    }
+
+    private Uri findOrCreate(Uri parentUri, String mimeType, String name) throws FileNotFoundException {
+        Uri existing = resolve(parentUri, name);
+        if (existing != null) return existing;
+        return create(parentUri, mimeType, name);
+    }
+
+    /**
+     * Create a child without looking for an existing one first
+     * (for directories the caller just created).
+     */
+    Uri create(Uri parentUri, String mimeType, String name) throws FileNotFoundException {
+        Uri created = DocumentsContract.createDocument(resolver, parentUri, mimeType, name);
+        if (created == null) return null;
+        // Keyed by the requested name, which is what later lookups ask for
+        remember(parentUri, name, created);
+        return created;
+    }
+
+    /**
+     * Record a document created by the app under parentUri.
+     */
+    void remember(Uri parentUri, String name, Uri childUri) {
+        children.put(key(parentUri.getAuthority(), documentIdOf(parentUri), name),
+                DocumentsContract.getDocumentId(childUri));
+    }
+
+    /**
+     * Drop everything cached at or below a document (after a delete or a failed open).
+     */
+    void invalidate(Uri uri) {
+        String authority = uri.getAuthority();
+        Set<String> gone = new HashSet<>();
+        gone.add(documentIdOf(uri));
+
+        Map<String, String> snapshot = children.snapshot();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                String key = entry.getKey();
+                String child = entry.getValue();
+                if (!key.startsWith(authority + SEPARATOR)) continue;
+                String parent = key.substring(authority.length() + 1, key.lastIndexOf(SEPARATOR));
+                if (gone.contains(parent) || gone.contains(child)) {
+                    children.remove(key);
+                    if (gone.add(child)) changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * List a directory once, caching every child, and return the docId of name.
+     */
+    private String listChildren(Uri baseUri, String parentDocId, String name) {
+        String authority = baseUri.getAuthority();
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(baseUri, parentDocId);
+        String match = null;
+        try (Cursor cursor = resolver.query(childrenUri,
+                new String[]{Document.COLUMN_DOCUMENT_ID, Document.COLUMN_DISPLAY_NAME},
+                null, null, null)) {
+            if (cursor == null) return null;
+            while (cursor.moveToNext()) {
+                String childId = cursor.getString(0);
+                String childName = cursor.getString(1);
+                if (childId == null || childName == null) continue;
+                children.put(key(authority, parentDocId, childName), childId);
+                if (name.equals(childName)) match = childId;
+            }
+        } catch (RuntimeException e) {
+            // Providers report a missing parent as IllegalArgumentException
+            return null;
+        }
+        return match;
+    }
+
+    private boolean exists(Uri documentUri) {
+        try (Cursor cursor = resolver.query(documentUri,
+                new String[]{Document.COLUMN_DOCUMENT_ID}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Document ID addressed by a URI: the document for document-in-tree URIs,
+     * otherwise the tree root.
+     */
+    static String documentIdOf(Uri uri) {
+        List<String> path = uri.getPathSegments();
+        if (path.size() >= 4 && "document".equals(path.get(2))) {
+            return DocumentsContract.getDocumentId(uri);
+        }
+        return DocumentsContract.getTreeDocumentId(uri);
+    }
+
+    private static List<String> segments(String relativePath) {
+        List<String> parts = new ArrayList<>();
+        for (String part : relativePath.split("/")) {
+            if (!part.isEmpty()) parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String key(String authority, String parentDocId, String name) {
+        return authority + SEPARATOR + parentDocId + SEPARATOR + name;
+    }
+}
@@ -4,7 +4,8 @@ import android.app.Activity;
 import android.content.ContentResolver;
 import android.content.Intent;
 import android.net.Uri;
-import android.util.Log;
+import android.os.ParcelFileDescriptor;
+import android.webkit.MimeTypeMap;
 
 import androidx.activity.result.ActivityResult;
 import androidx.documentfile.provider.DocumentFile;
@@ -22,15 +23,11 @@ import android.provider.DocumentsContract;
 import android.provider.DocumentsContract.Document;
 import android.provider.OpenableColumns;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.Callable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
@@ -38,44 +35,269 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
 
 @CapacitorPlugin(name = "FolderPicker")
 public class FolderPickerPlugin extends Plugin {
     private static final String TAG = "FolderPickerPlugin";
 
+    private static final int STREAM_CHUNK_SIZE = 100;
+    private static final int METADATA_PREFIX_BYTES = 4 * 1024;
+    private static final int METADATA_MAX_BYTES = 64 * 1024;
+
+    private final AtomicInteger nextListingId = new AtomicInteger();
+    private MetadataIndex metadataIndex;
+    private SearchIndex searchIndex;
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private ListingSnapshot listingSnapshot;
+    private AttachmentServer attachmentServer;
+    private DocumentResolver documentResolver;
+    private UploadSessions uploadSessions;
+    private WriteBehindQueue writeBehind;
+    private ChangeWatcher changeWatcher;
+    private StartupPrefetch startupPrefetch;
+    private final PerfStats perfStats = new PerfStats();
+    private final NativeLog nativeLog = new NativeLog(TAG, batch -> {
+        JSObject event = new JSObject();
+        event.put("logs", batch);
+        notifyListeners("nativeLogBatch", event);
+    });
+    private final ContentCache contentCache = new ContentCache();
+
+    @Override
+    public void load() {
+        metadataIndex = new MetadataIndex(getContext());
+        searchIndex = new SearchIndex(getContext());
+        listingSnapshot = new ListingSnapshot(getContext());
+        attachmentServer = new AttachmentServer(getContext());
+        documentResolver = DocumentResolver.get(getContext());
+        uploadSessions = new UploadSessions(getContext());
+        IoScheduler.get().execute(uploadSessions::purgeStale);
+        writeBehind = new WriteBehindQueue(this::writeContent, (uri, error, retryMs) -> {
+            JSObject event = new JSObject();
+            event.put("uri", uri);
+            event.put("success", error == null);
+            event.put("pending", writeBehind.size());
+            if (error != null) {
+                event.put("error", error.getMessage());
+                event.put("retryInMs", retryMs);
+            }
+            notifyListeners("writeFlushed", event);
+        });
+        changeWatcher = new ChangeWatcher(getContext(), this::onEntriesChanged);
+        startupPrefetch = new StartupPrefetch(getContext());
+    }
+
+    /**
+     * Called from MainActivity.onCreate: list the journal root the renderer
+     * last used (else the internal journal) and read its most recent entry
+     * while the WebView boots. listEntriesFast, listEntriesPage and
+     * readFile/readFileInternal take the parked results.
+     */
+    void prefetchStartup() {
+        String remembered = startupPrefetch.rememberedRoot();
+        String root = remembered != null
+                ? remembered
+                : new File(getContext().getFilesDir(), "journal").getAbsolutePath();
+        if (root.startsWith("/") && !new File(root).isDirectory()) return;
+
+        FutureTask<JSArray> listing = startupPrefetch.park("list:" + root, () -> listTree(root));
+        IoScheduler.get().execute(() -> {
+            listing.run();
+            JSONObject latest;
+            try {
+                latest = mostRecentEntry(listing.get());
+            } catch (Exception e) {
+                logToJS("warn", "Startup prefetch listing failed: " + e.getMessage());
+                return;
+            }
+            if (latest == null) return;
+
+            String indexUri = latest.optString("indexUri");
+            FutureTask<String> content = startupPrefetch.park("read:" + indexUri, () -> {
+                String text = readText(indexUri);
+                return text != null ? asLines(text) : null;
+            });
+            IoScheduler.get().executeInLane(IoScheduler.laneKey(indexUri), () -> {
+                content.run();
+                // Warm the metadata index so the sidebar's first lookup is a hit
+                if (indexUri.startsWith("/")) {
+                    File indexFile = new File(indexUri);
+                    if (metadataIndex.lookup(indexUri, indexFile.lastModified()) == null) {
+                        JSObject metadata = extractMetadataFromInternalFile(indexFile);
+                        if (metadata != null) {
+                            metadataIndex.put(indexUri, indexUri, latest.optString("dirname", null),
+                                    indexFile.lastModified(), metadata);
+                        }
+                    }
+                } else {
+                    readEntryMetadata(latest);
+                }
+                logToJS("debug", "Startup prefetch done, latest entry: %s", indexUri);
+            });
+        });
+    }
+
+    private static JSONObject mostRecentEntry(JSArray entries) {
+        JSONObject latest = null;
+        for (int i = 0; entries != null && i < entries.length(); i++) {
+            JSONObject entry = entries.optJSONObject(i);
+            if (entry != null && (latest == null || entry.optLong("mtime", 0) > latest.optLong("mtime", 0))) {
+                latest = entry;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Text re-read line by line, the form readFile returns, so prefetched and
+     * directly read content hash the same.
+     */
+    private static String asLines(String text) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        StringBuilder content = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            content.append(line).append("\n");
+        }
+        return content.toString();
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        // Don't leave autosaves sitting in memory when the app may be killed
+        writeBehind.flushAll(null);
+        nativeLog.flush();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        changeWatcher.stop();
+        super.handleOnDestroy();
+    }
+
+    /**
+     * Resolve a plugin call, recording its latency under the method name.
+     */
+    private void resolve(PluginCall call, JSObject ret) {
+        perfStats.end(call, ret);
+        call.resolve(ret);
+    }
+
+    /**
+     * Latency histograms and counters since the last reset:
+     * { since, methods: { name: { count, p50Ms, p95Ms, p99Ms, maxMs, totalMs } },
+     *   stages: { "saf.query" | "file.read" | "file.write" | "metadata.scan" | "bridge.serialize": ... },
+     *   counters: { bytesRead, bytesWritten, entriesProcessed, bridgeCharsSampled } }
+     */
+    @PluginMethod
+    public void getPerfStats(PluginCall call) {
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("stats", perfStats.toJSObject());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void resetPerfStats(PluginCall call) {
+        perfStats.reset();
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        call.resolve(ret);
+    }
+
     /**
-     * Log to both Android Logcat AND JavaScript DebugLogger via Capacitor event.
-     * This ensures native logs appear in the unified downloadable logs.
+     * Log to both Android Logcat AND JavaScript DebugLogger.
+     * Lines go through the ring-buffered NativeLog and reach JS in batched
+     * "nativeLogBatch" events, so the downloadable logs still include them.
      */
     private void logToJS(String level, String message) {
-        // Still log to Logcat for Android Studio debugging
-        switch (level) {
-            case "error":
-                Log.e(TAG, message);
-                break;
-            case "warn":
-                Log.w(TAG, message);
-                break;
-            default:
-                Log.d(TAG, message);
-                break;
-        }
-
-        // Send to JavaScript DebugLogger via Capacitor event
-        JSObject logEvent = new JSObject();
-        logEvent.put("level", level);
-        logEvent.put("message", "[Native] " + message);
-        logEvent.put("tag", TAG);
-        logEvent.put("timestamp", System.currentTimeMillis());
-        notifyListeners("nativeLog", logEvent);
+        nativeLog.log(NativeLog.parseLevel(level), message);
+    }
+
+    /**
+     * As above, but the message is only formatted if level is enabled:
+     * use this form wherever building the message costs something.
+     */
+    private void logToJS(String level, String format, Object... args) {
+        nativeLog.log(NativeLog.parseLevel(level), format, args);
+    }
+
+    /**
+     * Minimum level forwarded to Logcat and JS: "debug", "info", "warn" or "error".
+     */
+    @PluginMethod
+    public void setLogLevel(PluginCall call) {
+        perfStats.begin(call);
+        nativeLog.setLevel(NativeLog.parseLevel(call.getString("level", "debug")));
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("level", NativeLog.levelName(nativeLog.level()));
+        resolve(call, ret);
+    }
+
+    /**
+     * The renderer's editor is focused and typeable. Marks the end of the
+     * startup timeline, logs it, and brings up the keyboard now rather than
+     * after a guessed delay. Only the first call (per process) does any of
+     * that; a reloaded renderer calling it again is a no-op.
+     * initMs: the renderer's own init time.
+     */
+    @PluginMethod
+    public void notifyReady(PluginCall call) {
+        perfStats.begin(call);
+        if (!StartupTimeline.has(StartupTimeline.RENDERER_READY)) {
+            Integer initMs = call.getInt("initMs");
+            StartupTimeline.mark(StartupTimeline.RENDERER_READY, initMs != null ? "init " + initMs + "ms" : null);
+            logToJS("info", "Startup timeline (from " + StartupTimeline.originName() + "): " + StartupTimeline.summary());
+
+            getBridge().executeOnMainThread(() -> {
+                if (getActivity() instanceof MainActivity) {
+                    ((MainActivity) getActivity()).showStartupKeyboard();
+                }
+            });
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        resolve(call, ret);
+    }
+
+    /**
+     * Native startup marks: { origin, marks: [{ name, atMs, detail? }] }.
+     */
+    @PluginMethod
+    public void getStartupTimeline(PluginCall call) {
+        perfStats.begin(call);
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("origin", StartupTimeline.originName());
+        ret.put("marks", StartupTimeline.toJSArray());
+        resolve(call, ret);
     }
 
     @PluginMethod
     public void pickDirectory(PluginCall call) {
+        perfStats.begin(call);
         logToJS("debug", "pickDirectory called");
         Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
         intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
@@ -94,11 +316,11 @@ public class FolderPickerPlugin extends Plugin {
 
     @ActivityCallback
     private void handleDirectoryResult(PluginCall call, ActivityResult result) {
-        logToJS("debug", "handleDirectoryResult called with resultCode: " + result.getResultCode());
+        logToJS("debug", "handleDirectoryResult called with resultCode: %s", result.getResultCode());
 
         if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
             Uri treeUri = result.getData().getData();
-            logToJS("debug", "Selected URI: " + treeUri.toString());
+            logToJS("debug", "Selected URI: %s", treeUri);
 
             // Take persistent permission for both read and write
             final int takeFlags = Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION;
@@ -125,34 +347,34 @@ public class FolderPickerPlugin extends Plugin {
                 if (colon >= 0) name = name.substring(colon + 1);
             }
             ret.put("name", name != null && !name.isEmpty() ? name : "Journal");
-            logToJS("debug", "Directory added: " + treeUri + " (name: " + name + ")");
+            logToJS("debug", "Directory added: %s (name: %s)", treeUri, name);
 
-            call.resolve(ret);
+            resolve(call, ret);
         } else {
             logToJS("debug", "Directory selection cancelled or failed");
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "User cancelled or selection failed");
-            call.resolve(ret);
+            resolve(call, ret);
         }
     }
 
     @PluginMethod
     public void listEntries(PluginCall call) {
+        perfStats.begin(call);
         String uriString = call.getString("uri");
-        logToJS("debug", "listEntries called with URI: " + uriString);
+        logToJS("debug", "listEntries called with URI: %s", uriString);
 
         if (uriString == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No URI provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        // Run in background thread to prevent ANR
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(() -> {
+        // Run on the shared I/O scheduler to prevent ANR
+        IoScheduler.get().execute(() -> {
             try {
                 Uri treeUri = Uri.parse(uriString);
 
@@ -166,23 +388,38 @@ public class FolderPickerPlugin extends Plugin {
                     entries = listEntriesUsingDocumentFile(treeUri, true);
                 }
 
-                logToJS("debug", "listEntries: returning " + entries.length() + " entries");
+                logToJS("debug", "listEntries: returning %s entries", entries.length());
                 JSObject ret = new JSObject();
                 ret.put("success", true);
                 ret.put("entries", entries);
-                call.resolve(ret);
+                resolve(call, ret);
 
             } catch (Exception e) {
                 logToJS("error", "Error listing entries: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
                 ret.put("error", e.getMessage());
-                call.resolve(ret);
+                resolve(call, ret);
             }
         });
+    }
+
+    /**
+     * Receives entries one at a time as a listing walks the tree.
+     */
+    private interface EntrySink {
+        void accept(JSObject entry);
+    }
 
-        // Don't block main thread - let background thread handle completion
-        executor.shutdown();
+    /**
+     * Feed a listed entry (dirname, and title when extracted) to the finder's trigram index.
+     */
+    private void noteListed(JSObject entry) {
+        String indexUri = entry.optString("indexUri", null);
+        if (indexUri == null) return;
+        String title = entry.optString("title", "");
+        trigramIndex.put(MetadataIndex.docKey(indexUri), indexUri, entry.optString("dirname", null),
+                title.isEmpty() ? null : title, null);
     }
 
     /**
@@ -192,7 +429,14 @@ public class FolderPickerPlugin extends Plugin {
      */
     private JSArray listEntriesUsingDocumentsContract(Uri treeUri, boolean extractTitles) {
         JSArray entries = new JSArray();
+        listEntriesUsingDocumentsContract(treeUri, extractTitles, entries::put);
+        return entries;
+    }
+
+    private int listEntriesUsingDocumentsContract(Uri treeUri, boolean extractTitles, EntrySink sink) {
+        int count = 0;
         ContentResolver resolver = getContext().getContentResolver();
+        long queryStart = System.nanoTime();
 
         try {
             String rootDocId = DocumentsContract.getTreeDocumentId(treeUri);
@@ -209,10 +453,10 @@ public class FolderPickerPlugin extends Plugin {
 
                 if (cursor == null) {
                     logToJS("warn", "DocumentsContract: root cursor is null");
-                    return entries;
+                    return count;
                 }
 
-                logToJS("debug", "DocumentsContract: root cursor has " + cursor.getCount() + " items");
+                logToJS("debug", "DocumentsContract: root cursor has %s items", cursor.getCount());
 
                 while (cursor.moveToNext()) {
                     String docId = cursor.getString(0);
@@ -236,7 +480,9 @@ public class FolderPickerPlugin extends Plugin {
                         entry.put("uri", dirUri.toString());
                         entry.put("indexUri", indexUri.toString());
                         entry.put("mtime", dirMtime);
-                        entries.put(entry);
+                        noteListed(entry);
+                        sink.accept(entry);
+                        count++;
                     } else {
                         // Full path: query inner cursor to find index.md and extract titles
                         Uri dirChildrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, docId);
@@ -249,30 +495,44 @@ public class FolderPickerPlugin extends Plugin {
                                 },
                                 null, null, null)) {
 
-                            if (dirCursor != null) {
-                                while (dirCursor.moveToNext()) {
-                                    String childName = dirCursor.getString(1);
-                                    if ("index.md".equals(childName)) {
-                                        String indexDocId = dirCursor.getString(0);
-                                        long mtime = dirCursor.getLong(2);
-
-                                        Uri indexUri = DocumentsContract.buildDocumentUriUsingTree(treeUri, indexDocId);
-
-                                        JSObject entry = new JSObject();
-                                        entry.put("dirname", name);
-                                        entry.put("uri", dirUri.toString());
-                                        entry.put("indexUri", indexUri.toString());
-                                        entry.put("mtime", mtime);
-
-                                        String title = extractTitleFromUri(indexUri);
-                                        if (title != null && !title.isEmpty()) {
-                                            entry.put("title", title);
-                                        }
-
-                                        entries.put(entry);
-                                        break;
-                                    }
+                            String indexDocId = null;
+                            long mtime = 0;
+                            long savingMtime = -1;
+                            while (dirCursor != null && dirCursor.moveToNext()) {
+                                String childName = dirCursor.getString(1);
+                                if ("index.md".equals(childName)) {
+                                    indexDocId = dirCursor.getString(0);
+                                    mtime = dirCursor.getLong(2);
+                                    break;
+                                }
+                                if (AtomicWriter.tempName("index.md").equals(childName)) {
+                                    savingMtime = dirCursor.getLong(2);
+                                }
+                            }
+                            // Only the temp of a killed atomic save: promote it rather than drop the entry
+                            if (indexDocId == null && savingMtime >= 0 && AtomicWriter.recover(getContext(),
+                                    DocumentsContract.buildDocumentUriUsingTree(treeUri, docId + "/index.md"))) {
+                                indexDocId = docId + "/index.md";
+                                mtime = savingMtime;
+                            }
+
+                            if (indexDocId != null) {
+                                Uri indexUri = DocumentsContract.buildDocumentUriUsingTree(treeUri, indexDocId);
+
+                                JSObject entry = new JSObject();
+                                entry.put("dirname", name);
+                                entry.put("uri", dirUri.toString());
+                                entry.put("indexUri", indexUri.toString());
+                                entry.put("mtime", mtime);
+
+                                String title = extractTitleFromUri(indexUri);
+                                if (title != null && !title.isEmpty()) {
+                                    entry.put("title", title);
                                 }
+
+                                noteListed(entry);
+                                sink.accept(entry);
+                                count++;
                             }
                         }
                     }
@@ -282,7 +542,9 @@ public class FolderPickerPlugin extends Plugin {
             logToJS("error", "DocumentsContract listing failed: " + e.getMessage());
         }
 
-        return entries;
+        perfStats.record(PerfStats.SAF_QUERY, queryStart);
+        perfStats.count(PerfStats.ENTRIES_PROCESSED, count);
+        return count;
     }
 
     /**
@@ -292,19 +554,25 @@ public class FolderPickerPlugin extends Plugin {
      */
     private JSArray listEntriesUsingDocumentFile(Uri treeUri, boolean extractTitles) {
         JSArray entries = new JSArray();
+        listEntriesUsingDocumentFile(treeUri, extractTitles, entries::put);
+        return entries;
+    }
+
+    private int listEntriesUsingDocumentFile(Uri treeUri, boolean extractTitles, EntrySink sink) {
+        int count = 0;
 
         try {
             DocumentFile directory = DocumentFile.fromTreeUri(getContext(), treeUri);
             if (directory == null || !directory.exists() || !directory.isDirectory()) {
                 logToJS("error", "DocumentFile: not a valid directory");
-                return entries;
+                return count;
             }
 
-            logToJS("debug", "DocumentFile: directory name = " + directory.getName());
+            logToJS("debug", "DocumentFile: directory name = %s", directory.getName());
             DocumentFile[] children = directory.listFiles();
-            logToJS("debug", "DocumentFile: found " + (children != null ? children.length : 0) + " children");
+            logToJS("debug", "DocumentFile: found %s children", children != null ? children.length : 0);
 
-            if (children == null) return entries;
+            if (children == null) return count;
 
             for (DocumentFile child : children) {
                 if (!child.isDirectory()) continue;
@@ -314,6 +582,12 @@ public class FolderPickerPlugin extends Plugin {
 
                 // Look for index.md in this directory
                 DocumentFile indexFile = child.findFile("index.md");
+                if (indexFile == null && child.findFile(AtomicWriter.tempName("index.md")) != null) {
+                    // Only the temp of a killed atomic save: promote it rather than drop the entry
+                    Uri indexUri = DocumentsContract.buildDocumentUriUsingTree(treeUri,
+                            DocumentsContract.getDocumentId(child.getUri()) + "/index.md");
+                    if (AtomicWriter.recover(getContext(), indexUri)) indexFile = child.findFile("index.md");
+                }
                 if (indexFile != null && indexFile.exists()) {
                     JSObject entry = new JSObject();
                     entry.put("dirname", name);
@@ -328,14 +602,16 @@ public class FolderPickerPlugin extends Plugin {
                         }
                     }
 
-                    entries.put(entry);
+                    noteListed(entry);
+                    sink.accept(entry);
+                    count++;
                 }
             }
         } catch (Exception e) {
             logToJS("error", "DocumentFile listing failed: " + e.getMessage());
         }
 
-        return entries;
+        return count;
     }
 
     /**
@@ -343,1031 +619,2495 @@ public class FolderPickerPlugin extends Plugin {
      */
     private String extractTitleFromUri(Uri fileUri) {
         try {
-            ContentResolver resolver = getContext().getContentResolver();
-            try (InputStream inputStream = resolver.openInputStream(fileUri)) {
-                if (inputStream == null) return null;
-
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-                String line;
-                boolean inFrontmatter = false;
-                int lineCount = 0;
-
-                while ((line = reader.readLine()) != null && lineCount < 20) {
-                    lineCount++;
-                    line = line.trim();
-
-                    if (line.equals("---")) {
-                        if (!inFrontmatter) {
-                            inFrontmatter = true;
-                            continue;
-                        } else {
-                            break;
-                        }
-                    }
-
-                    if (inFrontmatter && line.startsWith("title:")) {
-                        String title = line.substring(6).trim();
-                        if ((title.startsWith("\"") && title.endsWith("\"")) ||
-                            (title.startsWith("'") && title.endsWith("'"))) {
-                            title = title.substring(1, title.length() - 1);
-                        }
-                        return title;
-                    }
-                }
-            }
+            FrontmatterScanner scanner = scanDocument(fileUri, true);
+            return scanner != null ? scanner.title : null;
         } catch (Exception e) {
             logToJS("error", "Error extracting title: " + e.getMessage());
         }
         return null;
     }
 
-    @PluginMethod
-    public void readFile(PluginCall call) {
-        String uriString = call.getString("uri");
-        logToJS("debug", "readFile called with URI: " + uriString);
-
-        if (uriString == null) {
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", "No URI provided");
-            call.resolve(ret);
-            return;
+    /**
+     * Scan a document through its file descriptor: one positioned read of a
+     * fixed prefix, widened only if the frontmatter is not closed within it.
+     * Providers that hand out pipes instead of files fall back to a stream read.
+     */
+    private FrontmatterScanner scanDocument(Uri fileUri, boolean titleOnly) throws IOException {
+        long scanStart = System.nanoTime();
+        try {
+            return scanDocumentTimed(fileUri, titleOnly);
+        } finally {
+            perfStats.record(PerfStats.METADATA_SCAN, scanStart);
         }
+    }
 
+    private FrontmatterScanner scanDocumentTimed(Uri fileUri, boolean titleOnly) throws IOException {
+        ContentResolver resolver = getContext().getContentResolver();
+        ParcelFileDescriptor pfd;
         try {
-            Uri fileUri = Uri.parse(uriString);
-            ContentResolver resolver = getContext().getContentResolver();
-            InputStream inputStream = resolver.openInputStream(fileUri);
+            pfd = resolver.openFileDescriptor(fileUri, "r");
+        } catch (FileNotFoundException e) {
+            // An atomic save may have been killed between its delete and rename
+            if (!AtomicWriter.recover(getContext(), fileUri)) throw e;
+            pfd = resolver.openFileDescriptor(fileUri, "r");
+        }
+        if (pfd == null) return null;
 
-            if (inputStream == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not open file");
-                call.resolve(ret);
-                return;
+        long size = pfd.getStatSize();
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+            FrontmatterScanner scanner = scanChannel(in.getChannel(), size, titleOnly);
+            if (scanner != null) return scanner;
+        }
+
+        try (InputStream inputStream = resolver.openInputStream(fileUri)) {
+            if (inputStream == null) return null;
+            return scanPrefix(inputStream, titleOnly);
+        }
+    }
+
+    /**
+     * Positioned prefix reads into the scanner's buffer. Returns null if the
+     * channel is not seekable, so the caller can fall back to streaming.
+     * @param size file size if known, or a negative value
+     */
+    private FrontmatterScanner scanChannel(FileChannel channel, long size, boolean titleOnly) throws IOException {
+        FrontmatterScanner scanner = FrontmatterScanner.local();
+        int len = 0;
+        int limit = METADATA_PREFIX_BYTES;
+        while (true) {
+            byte[] buffer = scanner.ensureCapacity(limit, len);
+            ByteBuffer target = ByteBuffer.wrap(buffer, len, limit - len);
+            boolean eof = size >= 0 && len >= size;
+            while (!eof && target.hasRemaining()) {
+                int read;
+                try {
+                    read = channel.read(target, len);
+                } catch (IOException e) {
+                    if (len == 0) return null;
+                    throw e;
+                }
+                if (read == -1) {
+                    eof = true;
+                } else {
+                    len += read;
+                    eof = size >= 0 && len >= size;
+                }
             }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            StringBuilder content = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
+            scanner.scan(buffer, len, titleOnly, eof);
+            if (scanner.finished || eof || limit >= METADATA_MAX_BYTES) {
+                return scanner;
             }
-            reader.close();
-            inputStream.close();
+            limit *= 4;
+        }
+    }
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("content", content.toString());
-            call.resolve(ret);
+    /**
+     * Read just enough of a markdown stream to scan its frontmatter (and excerpt),
+     * widening the read only while the scanner still needs more lines.
+     */
+    private FrontmatterScanner scanPrefix(InputStream inputStream, boolean titleOnly) throws IOException {
+        FrontmatterScanner scanner = FrontmatterScanner.local();
+        int len = 0;
+        int limit = METADATA_PREFIX_BYTES;
+        while (true) {
+            byte[] buffer = scanner.ensureCapacity(limit, len);
+            int read;
+            boolean eof = false;
+            while (len < limit) {
+                read = inputStream.read(buffer, len, limit - len);
+                if (read == -1) {
+                    eof = true;
+                    break;
+                }
+                len += read;
+            }
+            scanner.scan(buffer, len, titleOnly, eof);
+            if (scanner.finished || eof || limit >= METADATA_MAX_BYTES) {
+                return scanner;
+            }
+            limit *= 4;
+        }
+    }
 
-        } catch (Exception e) {
-            logToJS("error", "Error reading file: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+    /**
+     * Convert scanner results into the metadata shape returned to JS.
+     */
+    private static JSObject toMetadata(FrontmatterScanner scanner) {
+        JSObject metadata = new JSObject();
+        JSArray tags = new JSArray();
+        for (String tag : scanner.tags) {
+            tags.put(tag);
         }
+        metadata.put("title", scanner.title != null ? scanner.title : "");
+        metadata.put("date", scanner.date != null ? scanner.date : "");
+        metadata.put("tags", tags);
+        metadata.put("excerpt", scanner.excerpt.toString());
+        return metadata;
     }
 
+    // ===== Write-Behind Autosave =====
+
+    /**
+     * Queue content for uri (SAF URI or internal path) and resolve immediately.
+     * Bursts coalesce into one write per delay window; reads see the queued content.
+     * Each background write emits "writeFlushed" ({ uri, success, pending, error,
+     * retryInMs }); a failed one stays queued and is retried with backoff.
+     */
     @PluginMethod
-    public void writeFile(PluginCall call) {
-        String uriString = call.getString("uri");
+    public void queueWrite(PluginCall call) {
+        perfStats.begin(call);
+        String uri = call.getString("uri");
         String content = call.getString("content");
-        logToJS("debug", "writeFile called with URI: " + uriString);
+        Integer delayMs = call.getInt("delayMs", 1500);
 
-        if (uriString == null || content == null) {
+        if (uri == null || content == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "Missing URI or content");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri fileUri = Uri.parse(uriString);
-            ContentResolver resolver = getContext().getContentResolver();
-            OutputStream outputStream = resolver.openOutputStream(fileUri, "wt");
-
-            if (outputStream == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not open file for writing");
-                call.resolve(ret);
-                return;
-            }
-
-            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
-            outputStream.close();
-
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            call.resolve(ret);
+        writeBehind.enqueue(uri, content, Math.max(0, delayMs != null ? delayMs : 1500));
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("queued", true);
+        ret.put("hash", contentCache.put(uri, content));
+        resolve(call, ret);
+    }
 
-        } catch (Exception e) {
-            logToJS("error", "Error writing file: " + e.getMessage());
+    /**
+     * Write uri's queued content now; resolves once it is on disk.
+     */
+    @PluginMethod
+    public void flush(PluginCall call) {
+        perfStats.begin(call);
+        String uri = call.getString("uri");
+        if (uri == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
+            return;
         }
+
+        writeBehind.flush(uri, () -> {
+            JSObject ret = new JSObject();
+            // Content still pending means the write failed
+            ret.put("success", writeBehind.pending(uri) == null);
+            resolve(call, ret);
+        });
     }
 
     @PluginMethod
-    public void createEntry(PluginCall call) {
-        String baseUriString = call.getString("uri");
-        String dirname = call.getString("dirname");
-        String content = call.getString("content");
-        logToJS("debug", "createEntry called - dirname: " + dirname);
+    public void flushAll(PluginCall call) {
+        perfStats.begin(call);
+        writeBehind.flushAll(() -> {
+            JSObject ret = new JSObject();
+            ret.put("success", writeBehind.size() == 0);
+            ret.put("pending", writeBehind.size());
+            resolve(call, ret);
+        });
+    }
 
-        if (baseUriString == null || dirname == null) {
+    /**
+     * Apply splice ops to the last content read or written for uri (SAF URI or
+     * internal path) and write the result, so an autosave only ships its edits.
+     *
+     * ops: [{start, deleteCount, insert}] in UTF-16 offsets, applied in order, each
+     * against the text produced by the previous one. Resolves
+     * {success: false, conflict: true} when there is no cached base or baseHash
+     * does not match it; the renderer then falls back to a full write.
+     */
+    @PluginMethod
+    public void patchFile(PluginCall call) {
+        perfStats.begin(call);
+        String uri = call.getString("uri");
+        String baseHash = call.getString("baseHash");
+        JSArray ops = call.getArray("ops");
+        boolean deferred = call.getBoolean("deferred", false);
+
+        if (uri == null || baseHash == null || ops == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
-            ret.put("error", "Missing base URI or dirname");
-            call.resolve(ret);
+            ret.put("error", "Missing URI, baseHash or ops");
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri treeUri = Uri.parse(baseUriString);
-            DocumentFile baseDir = DocumentFile.fromTreeUri(getContext(), treeUri);
-
-            if (baseDir == null || !baseDir.exists()) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Base directory not found");
-                call.resolve(ret);
-                return;
-            }
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(uri), () -> {
+            try {
+                ContentCache.Entry base = contentCache.get(uri);
+                if (base == null || !base.hash.equals(baseHash)) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("conflict", true);
+                    if (base != null) ret.put("hash", base.hash);
+                    resolve(call, ret);
+                    return;
+                }
 
-            // Create entry directory
-            DocumentFile entryDir = baseDir.createDirectory(dirname);
-            if (entryDir == null) {
-                // Directory might already exist
-                entryDir = baseDir.findFile(dirname);
-                if (entryDir == null || !entryDir.isDirectory()) {
+                String content = applyOps(base.content, ops);
+                if (content == null) {
                     JSObject ret = new JSObject();
                     ret.put("success", false);
-                    ret.put("error", "Could not create entry directory");
-                    call.resolve(ret);
+                    ret.put("conflict", true);
+                    ret.put("error", "Patch out of range");
+                    resolve(call, ret);
                     return;
                 }
-            }
 
-            // Create index.md file
-            DocumentFile indexFile = entryDir.findFile("index.md");
-            if (indexFile == null) {
-                indexFile = entryDir.createFile("text/markdown", "index.md");
-            }
+                if (deferred) {
+                    writeBehind.enqueue(uri, content, call.getInt("delayMs", 1500));
+                } else {
+                    writeBehind.discard(uri);
+                    writeContent(uri, content);
+                }
 
-            if (indexFile == null) {
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("hash", contentCache.put(uri, content));
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error patching file: " + e.getMessage());
+                contentCache.remove(uri);
                 JSObject ret = new JSObject();
                 ret.put("success", false);
-                ret.put("error", "Could not create index.md");
-                call.resolve(ret);
-                return;
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
+        });
+    }
 
-            // Write content if provided
-            if (content != null) {
-                ContentResolver resolver = getContext().getContentResolver();
-                OutputStream outputStream = resolver.openOutputStream(indexFile.getUri(), "wt");
-                if (outputStream != null) {
-                    outputStream.write(content.getBytes(StandardCharsets.UTF_8));
-                    outputStream.close();
-                }
-            }
+    /**
+     * @return the patched text, or null if an op falls outside the text
+     */
+    private static String applyOps(String base, JSArray ops) throws JSONException {
+        StringBuilder text = new StringBuilder(base);
+        for (int i = 0; i < ops.length(); i++) {
+            JSONObject op = ops.getJSONObject(i);
+            int start = op.getInt("start");
+            int deleteCount = op.optInt("deleteCount", 0);
+            String insert = op.optString("insert", "");
+            if (start < 0 || deleteCount < 0 || start + deleteCount > text.length()) return null;
+            text.replace(start, start + deleteCount, insert);
+        }
+        return text.toString();
+    }
 
-            // Create images subdirectory
-            DocumentFile imagesDir = entryDir.findFile("images");
-            if (imagesDir == null) {
-                entryDir.createDirectory("images");
-            }
+    /**
+     * Physical write for queued autosaves, on the URI's lane.
+     */
+    private void writeContent(String uriOrPath, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        long writeStart = System.nanoTime();
+        if (uriOrPath.startsWith("/")) {
+            File file = new File(uriOrPath);
+            AtomicWriter.write(file, bytes);
+            recordWrite(writeStart, bytes.length);
+            indexWritten(file.getAbsolutePath(), file.getAbsolutePath(), file.lastModified(), content);
+        } else {
+            AtomicWriter.write(getContext(), Uri.parse(uriOrPath), bytes);
+            recordWrite(writeStart, bytes.length);
+            indexWritten(MetadataIndex.docKey(uriOrPath), uriOrPath, indexMtime(uriOrPath), content);
+        }
+    }
 
-            // Create files subdirectory
-            DocumentFile filesDir = entryDir.findFile("files");
-            if (filesDir == null) {
-                entryDir.createDirectory("files");
-            }
+    private void recordWrite(long writeStart, long bytes) {
+        perfStats.record(PerfStats.FILE_WRITE, writeStart);
+        perfStats.count(PerfStats.BYTES_WRITTEN, bytes);
+    }
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("dirname", dirname);
-            ret.put("uri", entryDir.getUri().toString());
-            ret.put("indexUri", indexFile.getUri().toString());
-            call.resolve(ret);
+    /**
+     * Update the metadata and full-text indexes from content the app just wrote.
+     * @param mtime the file's mtime as read back after the write, so an edit
+     *              made elsewhere after it is still seen as a change
+     */
+    private void indexWritten(String docKey, String path, long mtime, String content) {
+        startupPrefetch.discard("read:" + path);
+        JSObject metadata = extractMetadataFromContent(content);
+        metadataIndex.put(docKey, path, null, mtime, metadata);
+        metadataIndex.noteIndexWritten(docKey, mtime);
+        searchIndex.put(docKey, path, mtime, metadata, content);
+        trigramIndex.put(docKey, path, null, metadata.optString("title", ""), metadata.optJSONArray("tags"));
+    }
 
-        } catch (Exception e) {
-            logToJS("error", "Error creating entry: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+    /**
+     * Drop an entry (and its index.md) from every native index.
+     */
+    private void forgetEntry(String docKey) {
+        metadataIndex.removeTree(docKey);
+        searchIndex.removeTree(docKey);
+        trigramIndex.removeTree(docKey);
+    }
+
+    /**
+     * Store a fresh listing of tree, dropping entries that vanished from it
+     * (deleted outside the app) from every native index so tag counts and
+     * search results stop showing them.
+     */
+    private void storeListing(String tree, JSArray entries) {
+        for (String removedUri : listingSnapshot.update(tree, entries)) {
+            forgetEntry(MetadataIndex.docKey(removedUri));
         }
     }
 
-    @PluginMethod
-    public void saveImage(PluginCall call) {
-        String entryUriString = call.getString("entryUri");
-        String base64Data = call.getString("base64Data");
-        String filename = call.getString("filename");
-        logToJS("debug", "saveImage called - filename: " + filename);
+    /**
+     * Queue a full-text reindex of an index.md whose mtime no longer matches the
+     * indexed one. Runs on the entry's lane so it cannot overwrite a newer save.
+     */
+    private void reindexIfStale(String docKey, String path, long mtime) {
+        if (mtime <= 0 || searchIndex.isCurrent(docKey, mtime) || !searchIndex.claim(docKey)) return;
 
-        if (entryUriString == null || base64Data == null || filename == null) {
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(path), () -> {
+            try {
+                // A queued autosave will index its own content when it lands
+                if (writeBehind.pending(path) != null) return;
+                String content = readText(path);
+                if (content != null) {
+                    searchIndex.put(docKey, path, mtime, extractMetadataFromContent(content), content);
+                }
+            } catch (Exception e) {
+                logToJS("warn", "Search reindex failed for " + path + ": " + e.getMessage());
+            } finally {
+                searchIndex.release(docKey);
+            }
+        });
+    }
+
+    /**
+     * Whole text of an index.md (SAF URI or internal path), or null if it is
+     * missing or too large to index.
+     */
+    private String readText(String uriOrPath) throws IOException {
+        long readStart = System.nanoTime();
+        InputStream in;
+        if (uriOrPath.startsWith("/")) {
+            in = new FileInputStream(uriOrPath);
+        } else {
+            Uri fileUri = Uri.parse(uriOrPath);
+            try {
+                in = getContext().getContentResolver().openInputStream(fileUri);
+            } catch (FileNotFoundException e) {
+                // An atomic save may have been killed between its delete and rename
+                if (!AtomicWriter.recover(getContext(), fileUri)) throw e;
+                in = getContext().getContentResolver().openInputStream(fileUri);
+            }
+        }
+        if (in == null) return null;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+                if (out.size() > SearchIndex.MAX_BODY_CHARS * 4) return null;
+            }
+            perfStats.record(PerfStats.FILE_READ, readStart);
+            perfStats.count(PerfStats.BYTES_READ, out.size());
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    @PluginMethod
+    public void readFile(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "readFile");
+        String uriString = call.getString("uri");
+        logToJS("debug", "readFile called with URI: %s", uriString);
+
+        if (uriString == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
-            ret.put("error", "Missing parameters");
-            call.resolve(ret);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri entryUri = Uri.parse(entryUriString);
-            DocumentFile entryDir = DocumentFile.fromTreeUri(getContext(), entryUri);
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(uriString), () -> {
+            try {
+                String pending = writeBehind.pending(uriString);
+                if (pending != null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("content", pending);
+                    ret.put("hash", contentCache.put(uriString, pending));
+                    resolve(call, ret);
+                    return;
+                }
 
-            if (entryDir == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Entry directory not found");
-                call.resolve(ret);
-                return;
-            }
+                String prefetched = startupPrefetch.take("read:" + uriString, false);
+                if (prefetched != null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("content", prefetched);
+                    ret.put("hash", contentCache.put(uriString, prefetched));
+                    resolve(call, ret);
+                    return;
+                }
 
-            // Find or create images directory
-            DocumentFile imagesDir = entryDir.findFile("images");
-            if (imagesDir == null) {
-                imagesDir = entryDir.createDirectory("images");
-            }
+                long readStart = System.nanoTime();
+                Uri fileUri = Uri.parse(uriString);
+                ContentResolver resolver = getContext().getContentResolver();
+                InputStream inputStream;
+                try {
+                    inputStream = resolver.openInputStream(fileUri);
+                } catch (FileNotFoundException e) {
+                    // An atomic save may have been killed between its delete and rename
+                    if (!AtomicWriter.recover(getContext(), fileUri)) throw e;
+                    inputStream = resolver.openInputStream(fileUri);
+                }
 
-            if (imagesDir == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not create images directory");
-                call.resolve(ret);
-                return;
-            }
+                if (inputStream == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not open file");
+                    resolve(call, ret);
+                    return;
+                }
 
-            // Determine mime type
-            String mimeType = "image/png";
-            if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                mimeType = "image/jpeg";
-            } else if (filename.endsWith(".webp")) {
-                mimeType = "image/webp";
-            } else if (filename.endsWith(".gif")) {
-                mimeType = "image/gif";
-            }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                StringBuilder content = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    content.append(line).append("\n");
+                }
+                reader.close();
+                inputStream.close();
+                perfStats.record(PerfStats.FILE_READ, readStart);
+                perfStats.count(PerfStats.BYTES_READ, content.length());
 
-            // Create image file
-            DocumentFile imageFile = imagesDir.findFile(filename);
-            if (imageFile == null) {
-                imageFile = imagesDir.createFile(mimeType, filename);
-            }
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("content", content.toString());
+                ret.put("hash", contentCache.put(uriString, content.toString()));
+                resolve(call, ret);
 
-            if (imageFile == null) {
+            } catch (Exception e) {
+                logToJS("error", "Error reading file: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
-                ret.put("error", "Could not create image file");
-                call.resolve(ret);
-                return;
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
+        });
+    }
 
-            // Decode base64 and write
-            String base64 = base64Data;
-            if (base64.contains(",")) {
-                base64 = base64.substring(base64.indexOf(",") + 1);
-            }
-            byte[] imageBytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
+    @PluginMethod
+    public void writeFile(PluginCall call) {
+        perfStats.begin(call);
+        String uriString = call.getString("uri");
+        String content = call.getString("content");
+        boolean atomic = call.getBoolean("atomic", true);
+        logToJS("debug", "writeFile called with URI: %s", uriString);
+
+        if (uriString == null || content == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "Missing URI or content");
+            resolve(call, ret);
+            return;
+        }
+        // This content supersedes any queued autosave
+        writeBehind.discard(uriString);
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(uriString), () -> {
+            try {
+                Uri fileUri = Uri.parse(uriString);
+                byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                long writeStart = System.nanoTime();
+                if (atomic) {
+                    AtomicWriter.write(getContext(), fileUri, bytes);
+                } else {
+                    ContentResolver resolver = getContext().getContentResolver();
+                    OutputStream outputStream = resolver.openOutputStream(fileUri, "wt");
+
+                    if (outputStream == null) {
+                        JSObject ret = new JSObject();
+                        ret.put("success", false);
+                        ret.put("error", "Could not open file for writing");
+                        resolve(call, ret);
+                        return;
+                    }
+
+                    outputStream.write(bytes);
+                    outputStream.close();
+                }
+                recordWrite(writeStart, bytes.length);
+
+                indexWritten(MetadataIndex.docKey(uriString), uriString, indexMtime(uriString), content);
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("hash", contentCache.put(uriString, content));
+                resolve(call, ret);
 
-            ContentResolver resolver = getContext().getContentResolver();
-            OutputStream outputStream = resolver.openOutputStream(imageFile.getUri(), "wt");
-            if (outputStream != null) {
-                outputStream.write(imageBytes);
-                outputStream.close();
+            } catch (Exception e) {
+                logToJS("error", "Error writing file: " + e.getMessage());
+                // On-disk state is unknown now; force the next patch to conflict
+                contentCache.remove(uriString);
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
+        });
+    }
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("filename", filename);
-            ret.put("relativePath", "images/" + filename);
-            ret.put("markdown", "![](images/" + filename + ")");
-            call.resolve(ret);
+    @PluginMethod
+    public void createEntry(PluginCall call) {
+        perfStats.begin(call);
+        String baseUriString = call.getString("uri");
+        String dirname = call.getString("dirname");
+        String content = call.getString("content");
+        logToJS("debug", "createEntry called - dirname: %s", dirname);
 
-        } catch (Exception e) {
-            logToJS("error", "Error saving image: " + e.getMessage());
+        if (baseUriString == null || dirname == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+            ret.put("error", "Missing base URI or dirname");
+            resolve(call, ret);
+            return;
         }
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(baseUriString) + "/" + dirname, () -> {
+            try {
+                Uri treeUri = Uri.parse(baseUriString);
+                DocumentFile baseDir = DocumentFile.fromTreeUri(getContext(), treeUri);
+
+                if (baseDir == null || !baseDir.exists()) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Base directory not found");
+                    resolve(call, ret);
+                    return;
+                }
+
+                // Create entry directory
+                DocumentFile entryDir = baseDir.createDirectory(dirname);
+                boolean freshDir = entryDir != null;
+                if (entryDir == null) {
+                    // Directory might already exist
+                    entryDir = baseDir.findFile(dirname);
+                    if (entryDir == null || !entryDir.isDirectory()) {
+                        JSObject ret = new JSObject();
+                        ret.put("success", false);
+                        ret.put("error", "Could not create entry directory");
+                        resolve(call, ret);
+                        return;
+                    }
+                }
+
+                // Create index.md file
+                // A directory we just created is empty, so skip the lookups
+                Uri entryDirUri = entryDir.getUri();
+                Uri indexFile = freshDir
+                        ? documentResolver.create(entryDirUri, "text/markdown", "index.md")
+                        : documentResolver.findOrCreateFile(entryDirUri, "text/markdown", "index.md");
+
+                if (indexFile == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not create index.md");
+                    resolve(call, ret);
+                    return;
+                }
+
+                // Write content if provided. A just-created index.md has nothing to
+                // lose, so only an existing one goes through the atomic swap.
+                if (content != null) {
+                    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                    boolean written = false;
+                    if (!freshDir) {
+                        AtomicWriter.write(getContext(), indexFile, bytes);
+                        written = true;
+                    } else {
+                        ContentResolver resolver = getContext().getContentResolver();
+                        OutputStream outputStream = resolver.openOutputStream(indexFile, "wt");
+                        if (outputStream != null) {
+                            outputStream.write(bytes);
+                            outputStream.close();
+                            written = true;
+                        }
+                    }
+                    if (written) {
+                        indexWritten(MetadataIndex.docKey(indexFile.toString()), indexFile.toString(),
+                                indexMtime(indexFile.toString()), content);
+                    }
+                }
+
+                // Create images and files subdirectories
+                if (freshDir) {
+                    documentResolver.create(entryDirUri, Document.MIME_TYPE_DIR, "images");
+                    documentResolver.create(entryDirUri, Document.MIME_TYPE_DIR, "files");
+                } else {
+                    documentResolver.findOrCreateDirectory(entryDirUri, "images");
+                    documentResolver.findOrCreateDirectory(entryDirUri, "files");
+                }
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("dirname", dirname);
+                ret.put("uri", entryDir.getUri().toString());
+                ret.put("indexUri", indexFile.toString());
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error creating entry: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     @PluginMethod
-    public void saveFile(PluginCall call) {
+    public void saveImage(PluginCall call) {
+        perfStats.begin(call);
         String entryUriString = call.getString("entryUri");
         String base64Data = call.getString("base64Data");
         String filename = call.getString("filename");
-        logToJS("debug", "saveFile called - filename: " + filename);
+        logToJS("debug", "saveImage called - filename: %s", filename);
 
         if (entryUriString == null || base64Data == null || filename == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "Missing parameters");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri entryUri = Uri.parse(entryUriString);
-            DocumentFile entryDir = DocumentFile.fromTreeUri(getContext(), entryUri);
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                Uri entryUri = Uri.parse(entryUriString);
 
-            if (entryDir == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Entry directory not found");
-                call.resolve(ret);
-                return;
-            }
+                // Find or create images directory
+                Uri imagesDir = documentResolver.findOrCreateDirectory(entryUri, "images");
 
-            // Find or create files directory
-            DocumentFile filesDir = entryDir.findFile("files");
-            if (filesDir == null) {
-                filesDir = entryDir.createDirectory("files");
-            }
+                if (imagesDir == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not create images directory");
+                    resolve(call, ret);
+                    return;
+                }
 
-            if (filesDir == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not create files directory");
-                call.resolve(ret);
-                return;
-            }
+                // Determine mime type
+                String mimeType = "image/png";
+                if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
+                    mimeType = "image/jpeg";
+                } else if (filename.endsWith(".webp")) {
+                    mimeType = "image/webp";
+                } else if (filename.endsWith(".gif")) {
+                    mimeType = "image/gif";
+                }
 
-            // Determine mime type from filename extension
-            String mimeType = "application/octet-stream";
-            String lowerName = filename.toLowerCase();
-            if (lowerName.endsWith(".pdf")) {
-                mimeType = "application/pdf";
-            } else if (lowerName.endsWith(".txt")) {
-                mimeType = "text/plain";
-            } else if (lowerName.endsWith(".json")) {
-                mimeType = "application/json";
-            } else if (lowerName.endsWith(".xml")) {
-                mimeType = "application/xml";
-            } else if (lowerName.endsWith(".zip")) {
-                mimeType = "application/zip";
-            } else if (lowerName.endsWith(".doc") || lowerName.endsWith(".docx")) {
-                mimeType = "application/msword";
-            } else if (lowerName.endsWith(".xls") || lowerName.endsWith(".xlsx")) {
-                mimeType = "application/vnd.ms-excel";
-            }
-
-            // Create file
-            DocumentFile newFile = filesDir.findFile(filename);
-            if (newFile == null) {
-                newFile = filesDir.createFile(mimeType, filename);
-            }
-
-            if (newFile == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not create file");
-                call.resolve(ret);
-                return;
-            }
+                // Create image file
+                Uri imageFile = documentResolver.findOrCreateFile(imagesDir, mimeType, filename);
 
-            // Decode base64 and write
-            String base64 = base64Data;
-            if (base64.contains(",")) {
-                base64 = base64.substring(base64.indexOf(",") + 1);
-            }
-            byte[] fileBytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
+                if (imageFile == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not create image file");
+                    resolve(call, ret);
+                    return;
+                }
 
-            ContentResolver resolver = getContext().getContentResolver();
-            OutputStream outputStream = resolver.openOutputStream(newFile.getUri(), "wt");
-            if (outputStream != null) {
-                outputStream.write(fileBytes);
-                outputStream.close();
-            }
+                // Decode base64 and write
+                String base64 = base64Data;
+                if (base64.contains(",")) {
+                    base64 = base64.substring(base64.indexOf(",") + 1);
+                }
+                byte[] imageBytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("filename", filename);
-            ret.put("relativePath", "files/" + filename);
-            ret.put("markdown", "[" + filename + "](files/" + filename + ")");
-            call.resolve(ret);
+                ContentResolver resolver = getContext().getContentResolver();
+                OutputStream outputStream = resolver.openOutputStream(imageFile, "wt");
+                if (outputStream != null) {
+                    outputStream.write(imageBytes);
+                    outputStream.close();
+                }
 
-        } catch (Exception e) {
-            logToJS("error", "Error saving file: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
-        }
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("filename", filename);
+                ret.put("relativePath", "images/" + filename);
+                ret.put("markdown", "![](images/" + filename + ")");
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error saving image: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     @PluginMethod
-    public void readImage(PluginCall call) {
+    public void saveFile(PluginCall call) {
+        perfStats.begin(call);
         String entryUriString = call.getString("entryUri");
-        String relativePath = call.getString("relativePath");
-        logToJS("debug", "readImage called - path: " + relativePath);
+        String base64Data = call.getString("base64Data");
+        String filename = call.getString("filename");
+        logToJS("debug", "saveFile called - filename: %s", filename);
 
-        if (entryUriString == null || relativePath == null) {
+        if (entryUriString == null || base64Data == null || filename == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "Missing parameters");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri entryUri = Uri.parse(entryUriString);
-            DocumentFile entryDir = DocumentFile.fromTreeUri(getContext(), entryUri);
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                Uri entryUri = Uri.parse(entryUriString);
 
-            if (entryDir == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Entry directory not found");
-                call.resolve(ret);
-                return;
-            }
+                // Find or create files directory
+                Uri filesDir = documentResolver.findOrCreateDirectory(entryUri, "files");
 
-            // Parse relative path (e.g., "images/2025-01-01.png")
-            String[] parts = relativePath.split("/");
-            DocumentFile targetFile = entryDir;
+                if (filesDir == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not create files directory");
+                    resolve(call, ret);
+                    return;
+                }
 
-            for (String part : parts) {
-                if (part.isEmpty()) continue;
-                targetFile = targetFile.findFile(part);
-                if (targetFile == null) {
+                // Determine mime type from filename extension
+                String mimeType = "application/octet-stream";
+                String lowerName = filename.toLowerCase();
+                if (lowerName.endsWith(".pdf")) {
+                    mimeType = "application/pdf";
+                } else if (lowerName.endsWith(".txt")) {
+                    mimeType = "text/plain";
+                } else if (lowerName.endsWith(".json")) {
+                    mimeType = "application/json";
+                } else if (lowerName.endsWith(".xml")) {
+                    mimeType = "application/xml";
+                } else if (lowerName.endsWith(".zip")) {
+                    mimeType = "application/zip";
+                } else if (lowerName.endsWith(".doc") || lowerName.endsWith(".docx")) {
+                    mimeType = "application/msword";
+                } else if (lowerName.endsWith(".xls") || lowerName.endsWith(".xlsx")) {
+                    mimeType = "application/vnd.ms-excel";
+                }
+
+                // Create file
+                Uri newFile = documentResolver.findOrCreateFile(filesDir, mimeType, filename);
+
+                if (newFile == null) {
                     JSObject ret = new JSObject();
                     ret.put("success", false);
-                    ret.put("error", "File not found: " + part);
-                    call.resolve(ret);
+                    ret.put("error", "Could not create file");
+                    resolve(call, ret);
                     return;
                 }
-            }
 
-            // Read file as base64
-            ContentResolver resolver = getContext().getContentResolver();
-            InputStream inputStream = resolver.openInputStream(targetFile.getUri());
+                // Decode base64 and write
+                String base64 = base64Data;
+                if (base64.contains(",")) {
+                    base64 = base64.substring(base64.indexOf(",") + 1);
+                }
+                byte[] fileBytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
+
+                ContentResolver resolver = getContext().getContentResolver();
+                OutputStream outputStream = resolver.openOutputStream(newFile, "wt");
+                if (outputStream != null) {
+                    outputStream.write(fileBytes);
+                    outputStream.close();
+                }
 
-            if (inputStream == null) {
                 JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "Could not open file");
-                call.resolve(ret);
-                return;
-            }
+                ret.put("success", true);
+                ret.put("filename", filename);
+                ret.put("relativePath", "files/" + filename);
+                ret.put("markdown", "[" + filename + "](files/" + filename + ")");
+                resolve(call, ret);
 
-            // Read all bytes
-            java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-            byte[] data = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, bytesRead);
+            } catch (Exception e) {
+                logToJS("error", "Error saving file: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
-            inputStream.close();
-
-            byte[] fileBytes = buffer.toByteArray();
-            String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+        });
+    }
 
-            // Determine mime type
-            String mimeType = "image/png";
-            String lowerPath = relativePath.toLowerCase();
-            if (lowerPath.endsWith(".jpg") || lowerPath.endsWith(".jpeg")) {
-                mimeType = "image/jpeg";
-            } else if (lowerPath.endsWith(".webp")) {
-                mimeType = "image/webp";
-            } else if (lowerPath.endsWith(".gif")) {
-                mimeType = "image/gif";
-            }
+    // ===== Chunked Upload Sessions =====
+    // begin -> append(offset, chunk)* -> commit | abort. Each chunk is decoded and
+    // written straight to the target, so memory use does not grow with file size.
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("dataUrl", "data:" + mimeType + ";base64," + base64);
-            call.resolve(ret);
+    @PluginMethod
+    public void beginUpload(PluginCall call) {
+        perfStats.begin(call);
+        String entryUriString = call.getString("entryUri");
+        String filename = call.getString("filename");
+        String kind = call.getString("kind", "file");
+        logToJS("debug", "beginUpload called - filename: %s", filename);
 
-        } catch (Exception e) {
-            logToJS("error", "Error reading image: " + e.getMessage());
+        if (entryUriString == null || filename == null || filename.isEmpty()
+                || filename.contains("/") || filename.equals(".") || filename.equals("..")) {
             JSObject ret = new JSObject();
             ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+            ret.put("error", "Missing parameters");
+            resolve(call, ret);
+            return;
         }
-    }
-
-    @PluginMethod
-    public void pickImage(PluginCall call) {
-        logToJS("debug", "pickImage called");
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
-        intent.setType("image/*");
-        intent.addCategory(Intent.CATEGORY_OPENABLE);
-        startActivityForResult(call, intent, "handlePickImageResult");
-    }
+        String folder = "image".equals(kind) ? "images" : "files";
 
-    @ActivityCallback
-    private void handlePickImageResult(PluginCall call, ActivityResult result) {
-        logToJS("debug", "handlePickImageResult called with resultCode: " + result.getResultCode());
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                String target;
+                if (entryUriString.startsWith("/")) {
+                    File dir = new File(entryUriString, folder);
+                    if (!dir.isDirectory() && !dir.mkdirs()) {
+                        throw new IOException("Could not create " + folder + " directory");
+                    }
+                    File file = new File(dir, filename);
+                    new FileOutputStream(file).close();
+                    target = file.getAbsolutePath();
+                } else {
+                    Uri dir = documentResolver.findOrCreateDirectory(Uri.parse(entryUriString), folder);
+                    if (dir == null) throw new IOException("Could not create " + folder + " directory");
+                    Uri file = documentResolver.findOrCreateFile(dir, AttachmentServer.mimeTypeFor(filename), filename);
+                    if (file == null) throw new IOException("Could not create file");
+                    OutputStream truncate = getContext().getContentResolver().openOutputStream(file, "wt");
+                    if (truncate != null) truncate.close();
+                    target = file.toString();
+                }
 
-        if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-            Uri uri = result.getData().getData();
-            if (uri == null) {
+                UploadSessions.Session session = uploadSessions.create(entryUriString, folder, filename, target);
                 JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "No file selected");
-                call.resolve(ret);
+                ret.put("success", true);
+                ret.put("uploadId", session.id);
+                ret.put("offset", 0);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error beginning upload: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void appendUpload(PluginCall call) {
+        perfStats.begin(call);
+        String uploadId = call.getString("uploadId");
+        String data = call.getString("data");
+        Long offset = call.getLong("offset");
+
+        UploadSessions.Session session = uploadSessions.get(uploadId);
+        if (session == null || data == null || offset == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", session == null ? "Unknown upload" : "Missing parameters");
+            resolve(call, ret);
+            return;
+        }
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(session.entryUri), () -> {
+            try {
+                // Re-read inside the lane: an earlier append may have moved the offset
+                UploadSessions.Session current = uploadSessions.get(uploadId);
+                if (current == null) throw new IOException("Unknown upload");
+
+                String base64 = data;
+                if (base64.contains(",")) {
+                    base64 = base64.substring(base64.indexOf(",") + 1);
+                }
+                byte[] bytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
+
+                JSObject ret = new JSObject();
+                if (offset != current.offset) {
+                    // A retried chunk that already landed is fine; anything else is a gap
+                    boolean duplicate = offset < current.offset && offset + bytes.length <= current.offset;
+                    ret.put("success", duplicate);
+                    if (!duplicate) ret.put("error", "Offset mismatch");
+                    ret.put("offset", current.offset);
+                    resolve(call, ret);
+                    return;
+                }
+
+                writeAt(current, bytes);
+                current.offset += bytes.length;
+                uploadSessions.save(current);
+
+                ret.put("success", true);
+                ret.put("offset", current.offset);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error appending upload: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Write bytes at the session's offset. Positioned writes make a resumed
+     * upload overwrite any tail left by an append that was interrupted.
+     */
+    private void writeAt(UploadSessions.Session session, byte[] bytes) throws IOException {
+        if (session.isInternal()) {
+            try (FileOutputStream out = new FileOutputStream(session.target, true)) {
+                FileChannel channel = out.getChannel();
+                channel.truncate(session.offset);
+                channel.write(ByteBuffer.wrap(bytes));
+            }
+            return;
+        }
+
+        Uri target = Uri.parse(session.target);
+        ContentResolver resolver = getContext().getContentResolver();
+        ParcelFileDescriptor pfd = null;
+        try {
+            pfd = resolver.openFileDescriptor(target, "rw");
+        } catch (FileNotFoundException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Provider only supports streaming writes
+        }
+        if (pfd != null) {
+            try (FileOutputStream out = new FileOutputStream(pfd.getFileDescriptor())) {
+                FileChannel channel = out.getChannel();
+                channel.position(session.offset);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                pfd.close();
+            }
+            return;
+        }
+
+        OutputStream out = resolver.openOutputStream(target, "wa");
+        if (out == null) throw new IOException("Could not open upload target");
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    @PluginMethod
+    public void commitUpload(PluginCall call) {
+        perfStats.begin(call);
+        String uploadId = call.getString("uploadId");
+        Long expectedSize = call.getLong("size");
+
+        UploadSessions.Session session = uploadSessions.get(uploadId);
+        if (session == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "Unknown upload");
+            resolve(call, ret);
+            return;
+        }
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(session.entryUri), () -> {
+            try {
+                UploadSessions.Session current = uploadSessions.get(uploadId);
+                if (current == null) throw new IOException("Unknown upload");
+                if (expectedSize != null && expectedSize != current.offset) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Upload incomplete");
+                    ret.put("offset", current.offset);
+                    resolve(call, ret);
+                    return;
+                }
+
+                truncateUpload(current);
+                uploadSessions.remove(uploadId);
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("filename", current.filename);
+                ret.put("relativePath", current.relativePath());
+                ret.put("size", current.offset);
+                ret.put("markdown", "images".equals(current.folder)
+                        ? "![](" + current.relativePath() + ")"
+                        : "[" + current.filename + "](" + current.relativePath() + ")");
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error committing upload: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Cut off anything past the committed length (left by an interrupted append).
+     */
+    private void truncateUpload(UploadSessions.Session session) throws IOException {
+        if (session.isInternal()) {
+            try (FileOutputStream out = new FileOutputStream(session.target, true)) {
+                out.getChannel().truncate(session.offset);
+            }
+            return;
+        }
+        try (ParcelFileDescriptor pfd = getContext().getContentResolver()
+                .openFileDescriptor(Uri.parse(session.target), "rw")) {
+            if (pfd == null) return;
+            try (FileOutputStream out = new FileOutputStream(pfd.getFileDescriptor())) {
+                out.getChannel().truncate(session.offset);
+            }
+        } catch (FileNotFoundException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Stream-only provider: appends were never positioned, nothing to trim
+        }
+    }
+
+    @PluginMethod
+    public void abortUpload(PluginCall call) {
+        perfStats.begin(call);
+        String uploadId = call.getString("uploadId");
+
+        UploadSessions.Session session = uploadSessions.get(uploadId);
+        if (session == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            resolve(call, ret);
+            return;
+        }
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(session.entryUri), () -> {
+            try {
+                if (session.isInternal()) {
+                    new File(session.target).delete();
+                } else {
+                    Uri target = Uri.parse(session.target);
+                    try {
+                        DocumentsContract.deleteDocument(getContext().getContentResolver(), target);
+                    } catch (FileNotFoundException e) {
+                        // Already gone
+                    }
+                    documentResolver.invalidate(target);
+                }
+                uploadSessions.remove(uploadId);
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error aborting upload: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Pending uploads, so a reloaded WebView can resume from the stored offset.
+     * With uploadId, reports just that session.
+     */
+    @PluginMethod
+    public void getUploadStatus(PluginCall call) {
+        perfStats.begin(call);
+        String uploadId = call.getString("uploadId");
+
+        JSArray uploads = new JSArray();
+        if (uploadId != null) {
+            UploadSessions.Session session = uploadSessions.get(uploadId);
+            if (session != null) uploads.put(toJS(session));
+        } else {
+            for (UploadSessions.Session session : uploadSessions.list()) {
+                uploads.put(toJS(session));
+            }
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("uploads", uploads);
+        if (uploadId != null) {
+            ret.put("found", uploads.length() > 0);
+        }
+        resolve(call, ret);
+    }
+
+    private static JSObject toJS(UploadSessions.Session session) {
+        JSObject upload = new JSObject();
+        upload.put("uploadId", session.id);
+        upload.put("entryUri", session.entryUri);
+        upload.put("filename", session.filename);
+        upload.put("relativePath", session.relativePath());
+        upload.put("offset", session.offset);
+        upload.put("updatedAt", session.updatedAt);
+        return upload;
+    }
+
+    @PluginMethod
+    public void readImage(PluginCall call) {
+        perfStats.begin(call);
+        String entryUriString = call.getString("entryUri");
+        String relativePath = call.getString("relativePath");
+        logToJS("debug", "readImage called - path: %s", relativePath);
+
+        if (entryUriString == null || relativePath == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "Missing parameters");
+            resolve(call, ret);
+            return;
+        }
+
+        // URL mode: the WebView streams the bytes itself through AttachmentServer,
+        // so nothing is read or base64-encoded here
+        if (call.getBoolean("asUrl", false)) {
+            String url = AttachmentServer.buildUrl(getBridge().getLocalUrl(), entryUriString, relativePath);
+            JSObject ret = new JSObject();
+            ret.put("success", true);
+            ret.put("url", url);
+            resolve(call, ret);
+            return;
+        }
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                Uri entryUri = Uri.parse(entryUriString);
+
+                // Resolve relative path (e.g., "images/2025-01-01.png")
+                Uri targetFile = documentResolver.resolve(entryUri, relativePath);
+                if (targetFile == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "File not found: " + relativePath);
+                    resolve(call, ret);
+                    return;
+                }
+
+                // Read file as base64
+                ContentResolver resolver = getContext().getContentResolver();
+                InputStream inputStream;
+                try {
+                    inputStream = resolver.openInputStream(targetFile);
+                } catch (java.io.FileNotFoundException e) {
+                    // Cached document went away outside the app
+                    documentResolver.invalidate(targetFile);
+                    throw e;
+                }
+
+                if (inputStream == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not open file");
+                    resolve(call, ret);
+                    return;
+                }
+
+                // Read all bytes
+                java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+                byte[] data = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
+                    buffer.write(data, 0, bytesRead);
+                }
+                inputStream.close();
+
+                byte[] fileBytes = buffer.toByteArray();
+                String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+
+                // Determine mime type
+                String mimeType = "image/png";
+                String lowerPath = relativePath.toLowerCase();
+                if (lowerPath.endsWith(".jpg") || lowerPath.endsWith(".jpeg")) {
+                    mimeType = "image/jpeg";
+                } else if (lowerPath.endsWith(".webp")) {
+                    mimeType = "image/webp";
+                } else if (lowerPath.endsWith(".gif")) {
+                    mimeType = "image/gif";
+                }
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("dataUrl", "data:" + mimeType + ";base64," + base64);
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error reading image: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Downscaled version of an entry image for previews, decoded with subsampling
+     * on the bulk pool and kept in the on-disk thumbnail LRU.
+     * Returns a URL served by AttachmentServer; small images get their original URL.
+     */
+    @PluginMethod
+    public void readThumbnail(PluginCall call) {
+        perfStats.begin(call);
+        String entryUriString = call.getString("entryUri");
+        String relativePath = call.getString("relativePath");
+        Integer requestedWidth = call.getInt("maxWidth", 480);
+
+        if (entryUriString == null || relativePath == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "Missing parameters");
+            resolve(call, ret);
+            return;
+        }
+
+        int maxWidth = Math.max(ThumbnailCache.MIN_WIDTH, Math.min(ThumbnailCache.MAX_WIDTH,
+                requestedWidth != null ? requestedWidth : 480));
+        String localUrl = getBridge().getLocalUrl();
+
+        IoScheduler.get().execute(() -> {
+            try {
+                AttachmentServer.Attachment source = attachmentServer.open(entryUriString, relativePath);
+                if (source == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "File not found: " + relativePath);
+                    resolve(call, ret);
+                    return;
+                }
+
+                ThumbnailCache.Result thumbnail = ThumbnailCache.get(getContext())
+                        .load(attachmentServer, source, entryUriString, relativePath, maxWidth);
+                String url = thumbnail.useOriginal()
+                        ? AttachmentServer.buildUrl(localUrl, entryUriString, relativePath)
+                        : localUrl + ThumbnailCache.PATH_PREFIX + thumbnail.name;
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("url", url);
+                ret.put("dataUrl", url);
+                ret.put("thumbnail", !thumbnail.useOriginal());
+                ret.put("cached", thumbnail.cached);
+                if (thumbnail.width > 0) {
+                    ret.put("width", thumbnail.width);
+                    ret.put("height", thumbnail.height);
+                }
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error reading thumbnail: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    @PluginMethod
+    public void pickImage(PluginCall call) {
+        perfStats.begin(call);
+        logToJS("debug", "pickImage called");
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        startActivityForResult(call, intent, "handlePickImageResult");
+    }
+
+    @ActivityCallback
+    private void handlePickImageResult(PluginCall call, ActivityResult result) {
+        logToJS("debug", "handlePickImageResult called with resultCode: %s", result.getResultCode());
+
+        if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
+            Uri uri = result.getData().getData();
+            if (uri == null) {
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", "No file selected");
+                resolve(call, ret);
                 return;
             }
 
             try {
-                // Get filename
-                String filename = getFileName(uri);
-                if (filename == null) {
-                    filename = "image_" + System.currentTimeMillis() + ".png";
+                // Get filename
+                String filename = getFileName(uri);
+                if (filename == null) {
+                    filename = "image_" + System.currentTimeMillis() + ".png";
+                }
+
+                // Read file as base64
+                ContentResolver resolver = getContext().getContentResolver();
+                InputStream inputStream = resolver.openInputStream(uri);
+                if (inputStream == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not open file");
+                    resolve(call, ret);
+                    return;
+                }
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] data = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
+                    buffer.write(data, 0, bytesRead);
+                }
+                inputStream.close();
+
+                byte[] fileBytes = buffer.toByteArray();
+                String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+
+                // Determine mime type
+                String mimeType = resolver.getType(uri);
+                if (mimeType == null) {
+                    mimeType = "image/png";
+                }
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("filename", filename);
+                ret.put("mimeType", mimeType);
+                ret.put("base64Data", "data:" + mimeType + ";base64," + base64);
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error reading picked image: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        } else {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("canceled", true);
+            ret.put("error", "User cancelled");
+            resolve(call, ret);
+        }
+    }
+
+    @PluginMethod
+    public void pickFile(PluginCall call) {
+        perfStats.begin(call);
+        logToJS("debug", "pickFile called");
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("*/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        startActivityForResult(call, intent, "handlePickFileResult");
+    }
+
+    @ActivityCallback
+    private void handlePickFileResult(PluginCall call, ActivityResult result) {
+        logToJS("debug", "handlePickFileResult called with resultCode: %s", result.getResultCode());
+
+        if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
+            Uri uri = result.getData().getData();
+            if (uri == null) {
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", "No file selected");
+                resolve(call, ret);
+                return;
+            }
+
+            try {
+                // Get filename
+                String filename = getFileName(uri);
+                if (filename == null) {
+                    filename = "file_" + System.currentTimeMillis();
+                }
+
+                // Read file as base64
+                ContentResolver resolver = getContext().getContentResolver();
+                InputStream inputStream = resolver.openInputStream(uri);
+                if (inputStream == null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "Could not open file");
+                    resolve(call, ret);
+                    return;
+                }
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] data = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
+                    buffer.write(data, 0, bytesRead);
+                }
+                inputStream.close();
+
+                byte[] fileBytes = buffer.toByteArray();
+                String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+
+                // Get mime type
+                String mimeType = resolver.getType(uri);
+                if (mimeType == null) {
+                    mimeType = "application/octet-stream";
+                }
+
+                // Check if it's an image
+                boolean isImage = mimeType.startsWith("image/");
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("filename", filename);
+                ret.put("mimeType", mimeType);
+                ret.put("isImage", isImage);
+                ret.put("base64Data", "data:" + mimeType + ";base64," + base64);
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error reading picked file: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        } else {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("canceled", true);
+            ret.put("error", "User cancelled");
+            resolve(call, ret);
+        }
+    }
+
+    /**
+     * Pick a document and copy it into the entry's images/ or files/ folder
+     * entirely in native code. Only the relative path and markdown go back to JS.
+     */
+    @PluginMethod
+    public void pickAndImport(PluginCall call) {
+        perfStats.begin(call);
+        String entryUriString = call.getString("entryUri");
+        String kind = call.getString("kind", "file");
+        logToJS("debug", "pickAndImport called - kind: %s", kind);
+
+        if (entryUriString == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "Missing parameters");
+            resolve(call, ret);
+            return;
+        }
+
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image".equals(kind) ? "image/*" : "*/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        startActivityForResult(call, intent, "handlePickAndImportResult");
+    }
+
+    @ActivityCallback
+    private void handlePickAndImportResult(PluginCall call, ActivityResult result) {
+        logToJS("debug", "handlePickAndImportResult called with resultCode: %s", result.getResultCode());
+
+        Uri source = result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                ? result.getData().getData() : null;
+        if (source == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("canceled", true);
+            ret.put("error", "User cancelled");
+            resolve(call, ret);
+            return;
+        }
+
+        String entryUriString = call.getString("entryUri");
+        String kind = call.getString("kind", "file");
+
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                ContentResolver resolver = getContext().getContentResolver();
+                String mimeType = resolver.getType(source);
+                if (mimeType == null) mimeType = "application/octet-stream";
+                boolean isImage = "image".equals(kind) || mimeType.startsWith("image/");
+
+                String sourceName = getFileName(source);
+                String filename = isImage ? importedImageName(sourceName, mimeType)
+                        : (sourceName != null ? sourceName.replace('/', '_') : "file_" + System.currentTimeMillis());
+                String folder = isImage ? "images" : "files";
+
+                long size = importInto(source, entryUriString, folder, filename, mimeType);
+                String relativePath = folder + "/" + filename;
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("filename", filename);
+                ret.put("relativePath", relativePath);
+                ret.put("mimeType", mimeType);
+                ret.put("isImage", isImage);
+                ret.put("size", size);
+                ret.put("markdown", isImage
+                        ? "![](" + relativePath + ")"
+                        : "[" + filename + "](" + relativePath + ")");
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error importing picked file: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Images get a timestamped name like pasted images; the extension comes
+     * from the source name or, failing that, its MIME type.
+     */
+    private static String importedImageName(String sourceName, String mimeType) {
+        String extension = null;
+        if (sourceName != null && sourceName.lastIndexOf('.') > 0) {
+            extension = sourceName.substring(sourceName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        }
+        if (extension == null || extension.isEmpty()) {
+            extension = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
+        }
+        if (extension == null || extension.isEmpty()) extension = "png";
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date()) + "." + extension;
+    }
+
+    /**
+     * Copy source into entry/folder/filename, SAF or internal. A copy that
+     * fails part way deletes what it wrote, so no truncated attachment is left.
+     * @return bytes copied
+     */
+    private long importInto(Uri source, String entryUriString, String folder, String filename, String mimeType)
+            throws IOException {
+        File targetFile = null;
+        Uri target = null;
+        if (entryUriString.startsWith("/")) {
+            File dir = new File(entryUriString, folder);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create " + folder + " directory");
+            }
+            targetFile = new File(dir, filename);
+        } else {
+            Uri dir = documentResolver.findOrCreateDirectory(Uri.parse(entryUriString), folder);
+            if (dir == null) throw new IOException("Could not create " + folder + " directory");
+            target = documentResolver.findOrCreateFile(dir, mimeType, filename);
+            if (target == null) throw new IOException("Could not create file");
+        }
+
+        boolean complete = false;
+        try {
+            OutputStream out = targetFile != null ? new FileOutputStream(targetFile) : openDocumentOutput(target);
+            long copied = copyFrom(source, out);
+            complete = true;
+            return copied;
+        } finally {
+            if (!complete) discardPartialImport(targetFile, target);
+        }
+    }
+
+    /**
+     * Copy source into out (closed either way).
+     * @return bytes copied
+     */
+    private long copyFrom(Uri source, OutputStream out) throws IOException {
+        ContentResolver resolver = getContext().getContentResolver();
+        long sizeHint = -1;
+        InputStream in;
+        ParcelFileDescriptor sourceFd = null;
+        try {
+            sourceFd = resolver.openFileDescriptor(source, "r");
+        } catch (FileNotFoundException | IllegalArgumentException e) {
+            // Not descriptor-backed: stream it
+        }
+        try {
+            if (sourceFd != null) {
+                sizeHint = sourceFd.getStatSize();
+                in = new ParcelFileDescriptor.AutoCloseInputStream(sourceFd);
+            } else {
+                in = resolver.openInputStream(source);
+            }
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+        if (in == null) {
+            out.close();
+            throw new IOException("Could not open file");
+        }
+
+        try {
+            return copy(in, out, sizeHint);
+        } finally {
+            try {
+                in.close();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Delete the target of a failed import and forget its cached document ID.
+     */
+    private void discardPartialImport(File targetFile, Uri target) {
+        if (targetFile != null) {
+            if (targetFile.exists() && !targetFile.delete()) {
+                logToJS("warn", "Could not delete partial import %s", targetFile.getPath());
+            }
+            return;
+        }
+        try {
+            DocumentsContract.deleteDocument(getContext().getContentResolver(), target);
+        } catch (Exception e) {
+            logToJS("warn", "Could not delete partial import %s: %s", target, e.getMessage());
+        }
+        documentResolver.invalidate(target);
+    }
+
+    /**
+     * A truncating output on the document: descriptor-backed when the provider
+     * allows it, so copies can use channel transfer.
+     */
+    private OutputStream openDocumentOutput(Uri target) throws IOException {
+        ContentResolver resolver = getContext().getContentResolver();
+        try {
+            ParcelFileDescriptor pfd = resolver.openFileDescriptor(target, "wt");
+            if (pfd != null) return new ParcelFileDescriptor.AutoCloseOutputStream(pfd);
+        } catch (FileNotFoundException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Fall back to the provider's stream
+        }
+        OutputStream out = resolver.openOutputStream(target, "wt");
+        if (out == null) throw new IOException("Could not open " + target);
+        return out;
+    }
+
+    /**
+     * Copy with FileChannel.transferTo when both ends are files of known size
+     * (the kernel moves the bytes), otherwise through a 64 KB buffer.
+     */
+    private static long copy(InputStream in, OutputStream out, long sizeHint) throws IOException {
+        long copied = 0;
+        if (sizeHint > 0 && in instanceof FileInputStream && out instanceof FileOutputStream) {
+            FileChannel source = ((FileInputStream) in).getChannel();
+            FileChannel target = ((FileOutputStream) out).getChannel();
+            while (copied < sizeHint) {
+                long n = source.transferTo(copied, sizeHint - copied, target);
+                if (n <= 0) break;
+                copied += n;
+            }
+            // Pick up anything transferTo did not (e.g. the file grew)
+            source.position(copied);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    @PluginMethod
+    public void deleteEntry(PluginCall call) {
+        perfStats.begin(call);
+        String entryUriString = call.getString("entryUri");
+        logToJS("debug", "deleteEntry called with URI: %s", entryUriString);
+
+        if (entryUriString == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
+            return;
+        }
+
+        writeBehind.discardLane(IoScheduler.laneKey(entryUriString));
+        contentCache.removeLane(IoScheduler.laneKey(entryUriString));
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(entryUriString), () -> {
+            try {
+                Uri entryUri = Uri.parse(entryUriString);
+
+                // Use DocumentsContract.deleteDocument for proper SAF deletion
+                // This works for both tree URIs and document URIs from tree iteration
+                boolean deleted = DocumentsContract.deleteDocument(
+                    getContext().getContentResolver(),
+                    entryUri
+                );
+
+                logToJS("debug", "deleteEntry result: %s", deleted);
+                if (deleted) {
+                    forgetEntry(MetadataIndex.docKey(entryUriString));
+                    documentResolver.invalidate(entryUri);
                 }
 
-                // Read file as base64
-                ContentResolver resolver = getContext().getContentResolver();
-                InputStream inputStream = resolver.openInputStream(uri);
-                if (inputStream == null) {
+                JSObject ret = new JSObject();
+                ret.put("success", deleted);
+                if (!deleted) {
+                    ret.put("error", "Failed to delete entry");
+                }
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                String errorMsg = e.getMessage();
+                // Check if error is because file doesn't exist - treat as successful deletion
+                boolean fileNotFound = errorMsg != null && (
+                    errorMsg.contains("FileNotFoundException") ||
+                    errorMsg.contains("Missing file") ||
+                    errorMsg.contains("No such file") ||
+                    errorMsg.contains("does not exist") ||
+                    e instanceof java.io.FileNotFoundException
+                );
+
+                if (fileNotFound) {
+                    logToJS("debug", "deleteEntry: file not found, treating as success: %s", errorMsg);
+                    forgetEntry(MetadataIndex.docKey(entryUriString));
+                    documentResolver.invalidate(Uri.parse(entryUriString));
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("alreadyDeleted", true);
+                    resolve(call, ret);
+                } else {
+                    logToJS("error", "Error deleting entry: " + errorMsg);
                     JSObject ret = new JSObject();
                     ret.put("success", false);
-                    ret.put("error", "Could not open file");
-                    call.resolve(ret);
-                    return;
+                    ret.put("error", errorMsg);
+                    resolve(call, ret);
                 }
+            }
+        });
+    }
 
-                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                byte[] data = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
-                    buffer.write(data, 0, bytesRead);
-                }
-                inputStream.close();
+    /**
+     * Fast entry listing - returns only directory info without reading file contents.
+     * Used for cache comparison to detect new/modified/deleted entries.
+     * Uses hybrid approach: tries DocumentsContract first, falls back to DocumentFile.
+     */
+    @PluginMethod
+    public void listEntriesFast(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "listEntriesFast");
+        String uriString = call.getString("uri");
+        logToJS("debug", "listEntriesFast called with URI: %s", uriString);
 
-                byte[] fileBytes = buffer.toByteArray();
-                String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+        if (uriString == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
+            return;
+        }
 
-                // Determine mime type
-                String mimeType = resolver.getType(uri);
-                if (mimeType == null) {
-                    mimeType = "image/png";
+        // Run on the shared I/O scheduler
+        IoScheduler.get().execute(() -> {
+            try {
+                startupPrefetch.rememberRoot(uriString);
+
+                // Listed already while the WebView booted
+                JSArray entries = startupPrefetch.take("list:" + uriString, true);
+                if (entries == null) {
+                    Uri treeUri = Uri.parse(uriString);
+
+                    // Try fast DocumentsContract approach first (no title extraction)
+                    logToJS("debug", "listEntriesFast: trying DocumentsContract approach");
+                    entries = listEntriesUsingDocumentsContract(treeUri, false);
+
+                    // If that returns no results, fallback to DocumentFile
+                    if (entries == null || entries.length() == 0) {
+                        logToJS("warn", "listEntriesFast: DocumentsContract returned no entries, trying DocumentFile fallback");
+                        entries = listEntriesUsingDocumentFile(treeUri, false);
+                    }
                 }
 
+                logToJS("debug", "listEntriesFast: returning %s entries", entries.length());
+                StartupTimeline.mark(StartupTimeline.FIRST_LISTING, "listEntriesFast");
                 JSObject ret = new JSObject();
                 ret.put("success", true);
-                ret.put("filename", filename);
-                ret.put("mimeType", mimeType);
-                ret.put("base64Data", "data:" + mimeType + ";base64," + base64);
-                call.resolve(ret);
+                ret.put("entries", entries);
+                ret.put("count", entries.length());
+                resolve(call, ret);
 
             } catch (Exception e) {
-                logToJS("error", "Error reading picked image: " + e.getMessage());
+                logToJS("error", "Error in listEntriesFast: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
                 ret.put("error", e.getMessage());
-                call.resolve(ret);
+                resolve(call, ret);
             }
-        } else {
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("canceled", true);
-            ret.put("error", "User cancelled");
-            call.resolve(ret);
+        });
+    }
+
+    /**
+     * listTree with each SAF entry's mtime raised to its index.md's, for the
+     * stored listing: an in-place edit changes the file's mtime but not the
+     * directory's, which is all the fast listing reports. index.md mtimes come
+     * from the metadata index while their directory's mtime is unchanged; only
+     * the dirnames in changed (the watcher's hint, the only sign of an in-place
+     * edit) cost a query. Entries never stat'ed yet keep the directory's
+     * mtime until readEntryMetadata records their file's. Internal listings
+     * already carry index.md mtimes.
+     */
+    private JSArray withIndexMtimes(String uriString, JSArray entries, Set<String> changed) throws JSONException {
+        if (uriString.startsWith("/")) return entries;
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            String indexUri = entry.optString("indexUri", null);
+            if (indexUri == null) continue;
+            String docKey = MetadataIndex.docKey(indexUri);
+            long dirMtime = entry.optLong("mtime", 0);
+            long mtime;
+            if (changed.contains(entry.optString("dirname"))) {
+                mtime = indexMtime(indexUri);
+                // Missing: an atomic save may have been killed between its delete and rename
+                if (mtime == 0 && AtomicWriter.recover(getContext(), Uri.parse(indexUri))) mtime = indexMtime(indexUri);
+                metadataIndex.noteIndexMtime(docKey, dirMtime, mtime);
+            } else {
+                mtime = metadataIndex.knownIndexMtime(docKey, dirMtime);
+            }
+            if (mtime > dirMtime) entry.put("mtime", mtime);
         }
+        return entries;
     }
 
-    @PluginMethod
-    public void pickFile(PluginCall call) {
-        logToJS("debug", "pickFile called");
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
-        intent.setType("*/*");
-        intent.addCategory(Intent.CATEGORY_OPENABLE);
-        startActivityForResult(call, intent, "handlePickFileResult");
+    /**
+     * Fast listing (dirname, uri, indexUri, mtime) of a SAF tree or internal journal path.
+     */
+    private JSArray listTree(String uriString) {
+        JSArray entries;
+        if (uriString.startsWith("/")) {
+            entries = new JSArray();
+            listEntriesInternalFast(new File(uriString), entries::put);
+        } else {
+            Uri treeUri = Uri.parse(uriString);
+            entries = listEntriesUsingDocumentsContract(treeUri, false);
+            if (entries.length() == 0) {
+                entries = listEntriesUsingDocumentFile(treeUri, false);
+            }
+        }
+        return entries;
     }
 
-    @ActivityCallback
-    private void handlePickFileResult(PluginCall call, ActivityResult result) {
-        logToJS("debug", "handlePickFileResult called with resultCode: " + result.getResultCode());
+    /**
+     * One sorted page of entries for the sidebar, served from the stored listing.
+     * sortKey: "date" (frontmatter date, else the dirname's), "mtime" or "title";
+     * direction: "desc" or "asc". Pass the returned nextCursor to get the next
+     * page (null when there is none). The tree is listed first only if it has
+     * never been, or when refresh is true; listEntriesDelta keeps it current.
+     * Entries carry title/date/tags/excerpt when their metadata is indexed.
+     */
+    @PluginMethod
+    public void listEntriesPage(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "listEntriesPage");
+        String uriString = call.getString("uri");
+        String sortKey = call.getString("sortKey", "date");
+        boolean descending = !"asc".equals(call.getString("direction", "desc"));
+        String cursor = call.getString("cursor");
+        int limit = Math.max(1, Math.min(500, call.getInt("limit", 50)));
+        boolean refresh = call.getBoolean("refresh", false);
 
-        if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-            Uri uri = result.getData().getData();
-            if (uri == null) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "No file selected");
-                call.resolve(ret);
-                return;
-            }
+        if (uriString == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
+            return;
+        }
 
+        IoScheduler.get().execute(() -> {
             try {
-                // Get filename
-                String filename = getFileName(uri);
-                if (filename == null) {
-                    filename = "file_" + System.currentTimeMillis();
+                startupPrefetch.rememberRoot(uriString);
+                if (refresh || !listingSnapshot.has(uriString)) {
+                    JSArray prefetched = startupPrefetch.take("list:" + uriString, true);
+                    storeListing(uriString,
+                            withIndexMtimes(uriString, prefetched != null ? prefetched : listTree(uriString),
+                                    Collections.<String>emptySet()));
                 }
 
-                // Read file as base64
-                ContentResolver resolver = getContext().getContentResolver();
-                InputStream inputStream = resolver.openInputStream(uri);
-                if (inputStream == null) {
-                    JSObject ret = new JSObject();
-                    ret.put("success", false);
-                    ret.put("error", "Could not open file");
-                    call.resolve(ret);
-                    return;
-                }
+                ListingSnapshot.Page page = listingSnapshot.page(uriString, sortKey, descending, cursor, limit);
+                StartupTimeline.mark(StartupTimeline.FIRST_LISTING, "listEntriesPage");
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("entries", page.entries);
+                ret.put("nextCursor", page.nextCursor);
+                ret.put("total", page.total);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error in listEntriesPage: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
 
-                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                byte[] data = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
-                    buffer.write(data, 0, bytesRead);
-                }
-                inputStream.close();
+    /**
+     * Incremental listing against a native snapshot of the previous listing.
+     * Returns only added/modified/removed entries plus a new token to pass as
+     * sinceToken next time. Listings stored by listEntriesPage or the change
+     * watcher in between don't invalidate the token. A missing, foreign or very
+     * old token returns reset: true with every entry in added, and the caller
+     * should replace its list.
+     * Accepts a SAF tree URI or an internal journal path.
+     */
+    @PluginMethod
+    public void listEntriesDelta(PluginCall call) {
+        perfStats.begin(call);
+        String uriString = call.getString("uri");
+        String sinceToken = call.getString("sinceToken");
+        logToJS("debug", "listEntriesDelta called with URI: %s, token: %s", uriString, sinceToken);
 
-                byte[] fileBytes = buffer.toByteArray();
-                String base64 = android.util.Base64.encodeToString(fileBytes, android.util.Base64.NO_WRAP);
+        if (uriString == null) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "No URI provided");
+            resolve(call, ret);
+            return;
+        }
 
-                // Get mime type
-                String mimeType = resolver.getType(uri);
-                if (mimeType == null) {
-                    mimeType = "application/octet-stream";
-                }
+        IoScheduler.get().execute(() -> {
+            try {
+                JSArray entries = withIndexMtimes(uriString, listTree(uriString), Collections.<String>emptySet());
 
-                // Check if it's an image
-                boolean isImage = mimeType.startsWith("image/");
+                storeListing(uriString, entries);
+                ListingSnapshot.Delta delta = listingSnapshot.since(uriString, sinceToken);
+                logToJS("debug", "listEntriesDelta: %s%s added, %s modified, %s removed of %s",
+                        delta.reset ? "reset, " : "", delta.added.length(), delta.modified.length(),
+                        delta.removed.length(), delta.total);
 
                 JSObject ret = new JSObject();
                 ret.put("success", true);
-                ret.put("filename", filename);
-                ret.put("mimeType", mimeType);
-                ret.put("isImage", isImage);
-                ret.put("base64Data", "data:" + mimeType + ";base64," + base64);
-                call.resolve(ret);
+                ret.put("token", delta.token);
+                ret.put("reset", delta.reset);
+                ret.put("added", delta.added);
+                ret.put("modified", delta.modified);
+                ret.put("removed", delta.removed);
+                ret.put("count", delta.total);
+                resolve(call, ret);
 
             } catch (Exception e) {
-                logToJS("error", "Error reading picked file: " + e.getMessage());
+                logToJS("error", "Error in listEntriesDelta: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
                 ret.put("error", e.getMessage());
-                call.resolve(ret);
+                resolve(call, ret);
             }
-        } else {
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("canceled", true);
-            ret.put("error", "User cancelled");
-            call.resolve(ret);
-        }
+        });
     }
 
+    /**
+     * Watch a SAF tree URI or internal journal path for changes made outside
+     * the app (sync tools, file managers). Each debounced change is diffed
+     * against the stored listing and emitted as an "entriesChanged" event
+     * ({ uri, token, added, modified, removed, dirnames }). Replaces any
+     * previous watch.
+     */
     @PluginMethod
-    public void deleteEntry(PluginCall call) {
-        String entryUriString = call.getString("entryUri");
-        logToJS("debug", "deleteEntry called with URI: " + entryUriString);
+    public void startWatching(PluginCall call) {
+        perfStats.begin(call);
+        String uriString = call.getString("uri");
+        logToJS("debug", "startWatching called with URI: %s", uriString);
 
-        if (entryUriString == null) {
+        if (uriString == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No URI provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            Uri entryUri = Uri.parse(entryUriString);
-
-            // Use DocumentsContract.deleteDocument for proper SAF deletion
-            // This works for both tree URIs and document URIs from tree iteration
-            boolean deleted = DocumentsContract.deleteDocument(
-                getContext().getContentResolver(),
-                entryUri
-            );
-
-            logToJS("debug", "deleteEntry result: " + deleted);
-
-            JSObject ret = new JSObject();
-            ret.put("success", deleted);
-            if (!deleted) {
-                ret.put("error", "Failed to delete entry");
-            }
-            call.resolve(ret);
-
-        } catch (Exception e) {
-            String errorMsg = e.getMessage();
-            // Check if error is because file doesn't exist - treat as successful deletion
-            boolean fileNotFound = errorMsg != null && (
-                errorMsg.contains("FileNotFoundException") ||
-                errorMsg.contains("Missing file") ||
-                errorMsg.contains("No such file") ||
-                errorMsg.contains("does not exist") ||
-                e instanceof java.io.FileNotFoundException
-            );
-
-            if (fileNotFound) {
-                logToJS("debug", "deleteEntry: file not found, treating as success: " + errorMsg);
+        IoScheduler.get().execute(() -> {
+            try {
+                changeWatcher.watch(uriString);
                 JSObject ret = new JSObject();
                 ret.put("success", true);
-                ret.put("alreadyDeleted", true);
-                call.resolve(ret);
-            } else {
-                logToJS("error", "Error deleting entry: " + errorMsg);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error in startWatching: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
-                ret.put("error", errorMsg);
-                call.resolve(ret);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
-        }
+        });
+    }
+
+    @PluginMethod
+    public void stopWatching(PluginCall call) {
+        perfStats.begin(call);
+        changeWatcher.stop();
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        resolve(call, ret);
     }
 
     /**
-     * Fast entry listing - returns only directory info without reading file contents.
-     * Used for cache comparison to detect new/modified/deleted entries.
-     * Uses hybrid approach: tries DocumentsContract first, falls back to DocumentFile.
+     * Debounced change under the watched root: re-list it against the stored
+     * listing and tell JS what moved. Dirnames the watcher reported but whose
+     * listing row didn't change (an attachment written, say) are still named.
+     */
+    private void onEntriesChanged(String root, Set<String> dirnames) {
+        IoScheduler.get().execute(() -> {
+            try {
+                String before = listingSnapshot.token(root);
+                storeListing(root, withIndexMtimes(root, listTree(root), dirnames));
+                ListingSnapshot.Delta delta = listingSnapshot.since(root, before);
+
+                Set<String> affected = new LinkedHashSet<>(dirnames);
+                JSArray[] groups = {delta.added, delta.modified, delta.removed};
+                for (JSArray group : groups) {
+                    for (int i = 0; i < group.length(); i++) {
+                        affected.add(group.getJSONObject(i).optString("dirname"));
+                    }
+                }
+                if (affected.isEmpty()) return;
+
+                JSObject event = new JSObject();
+                event.put("uri", root);
+                event.put("token", delta.token);
+                event.put("added", delta.added);
+                event.put("modified", delta.modified);
+                event.put("removed", delta.removed);
+                event.put("dirnames", new JSArray(affected));
+                logToJS("debug", "entriesChanged: %s added, %s modified, %s removed, %s dirnames",
+                        delta.added.length(), delta.modified.length(), delta.removed.length(), affected.size());
+                notifyListeners("entriesChanged", event);
+            } catch (Exception e) {
+                logToJS("error", "Error handling entry changes: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Streaming variant of listEntriesFast for large trees.
+     * Resolves immediately with a listingId, then emits "entriesChunk" events
+     * ({ listingId, offset, entries }) every chunkSize entries while the cursor
+     * is walked, followed by one "entriesComplete" event ({ listingId, success, total, durationMs }).
      */
     @PluginMethod
-    public void listEntriesFast(PluginCall call) {
+    public void listEntriesStream(PluginCall call) {
+        perfStats.begin(call);
         String uriString = call.getString("uri");
-        logToJS("debug", "listEntriesFast called with URI: " + uriString);
+        boolean extractTitles = call.getBoolean("extractTitles", false);
+        int chunkSize = Math.max(1, call.getInt("chunkSize", STREAM_CHUNK_SIZE));
+        logToJS("debug", "listEntriesStream called with URI: %s", uriString);
 
         if (uriString == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No URI provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        // Run in background thread
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(() -> {
-            try {
-                Uri treeUri = Uri.parse(uriString);
+        final int listingId = nextListingId.incrementAndGet();
+        JSObject ret = new JSObject();
+        ret.put("success", true);
+        ret.put("listingId", listingId);
+        resolve(call, ret);
 
-                // Try fast DocumentsContract approach first (no title extraction)
-                logToJS("debug", "listEntriesFast: trying DocumentsContract approach");
-                JSArray entries = listEntriesUsingDocumentsContract(treeUri, false);
+        IoScheduler.get().execute(() -> {
+            long start = System.currentTimeMillis();
+            ChunkedEntrySink sink = new ChunkedEntrySink(listingId, chunkSize);
+            JSObject done = new JSObject();
+            done.put("listingId", listingId);
 
-                // If that returns no results, fallback to DocumentFile
-                if (entries == null || entries.length() == 0) {
-                    logToJS("warn", "listEntriesFast: DocumentsContract returned no entries, trying DocumentFile fallback");
-                    entries = listEntriesUsingDocumentFile(treeUri, false);
+            try {
+                Uri treeUri = Uri.parse(uriString);
+                int total = listEntriesUsingDocumentsContract(treeUri, extractTitles, sink);
+                if (total == 0) {
+                    logToJS("warn", "listEntriesStream: DocumentsContract returned no entries, trying DocumentFile fallback");
+                    total = listEntriesUsingDocumentFile(treeUri, extractTitles, sink);
                 }
+                sink.flush();
 
-                logToJS("debug", "listEntriesFast: returning " + entries.length() + " entries");
-                JSObject ret = new JSObject();
-                ret.put("success", true);
-                ret.put("entries", entries);
-                ret.put("count", entries.length());
-                call.resolve(ret);
-
+                logToJS("debug", "listEntriesStream: streamed %s entries", total);
+                done.put("success", true);
+                done.put("total", total);
             } catch (Exception e) {
-                logToJS("error", "Error in listEntriesFast: " + e.getMessage());
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", e.getMessage());
-                call.resolve(ret);
+                logToJS("error", "Error in listEntriesStream: " + e.getMessage());
+                sink.flush();
+                done.put("success", false);
+                done.put("total", sink.emitted);
+                done.put("error", e.getMessage());
             }
+
+            done.put("durationMs", System.currentTimeMillis() - start);
+            notifyListeners("entriesComplete", done);
         });
+    }
+
+    /**
+     * Buffers listed entries and emits them to JS as "entriesChunk" events.
+     */
+    private class ChunkedEntrySink implements EntrySink {
+        private final int listingId;
+        private final int chunkSize;
+        private JSArray buffer = new JSArray();
+        private int emitted = 0;
+
+        ChunkedEntrySink(int listingId, int chunkSize) {
+            this.listingId = listingId;
+            this.chunkSize = chunkSize;
+        }
 
-        // Don't block main thread - let background thread handle completion
-        executor.shutdown();
+        @Override
+        public void accept(JSObject entry) {
+            buffer.put(entry);
+            if (buffer.length() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (buffer.length() == 0) return;
+
+            JSObject chunk = new JSObject();
+            chunk.put("listingId", listingId);
+            chunk.put("offset", emitted);
+            chunk.put("entries", buffer);
+            emitted += buffer.length();
+            buffer = new JSArray();
+            notifyListeners("entriesChunk", chunk);
+        }
     }
 
     // ===== Internal Storage Methods (non-SAF, for default journal) =====
 
     @PluginMethod
     public void getInternalJournalPath(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "getInternalJournalPath");
         File dir = new File(getContext().getFilesDir(), "journal");
         if (!dir.exists()) dir.mkdirs();
         JSObject ret = new JSObject();
         ret.put("path", dir.getAbsolutePath());
-        call.resolve(ret);
+        resolve(call, ret);
     }
 
     @PluginMethod
     public void createEntryInternal(PluginCall call) {
+        perfStats.begin(call);
         String path = call.getString("path");
         String dirname = call.getString("dirname");
         String content = call.getString("content");
-        logToJS("debug", "createEntryInternal called - path: " + path + ", dirname: " + dirname);
+        logToJS("debug", "createEntryInternal called - path: %s, dirname: %s", path, dirname);
 
         if (path == null || dirname == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "Missing path or dirname");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            File entryDir = new File(path, dirname);
-            if (!entryDir.exists()) entryDir.mkdirs();
-
-            File indexFile = new File(entryDir, "index.md");
-            if (content != null) {
-                FileWriter writer = new FileWriter(indexFile);
-                writer.write(content);
-                writer.close();
-            }
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(path + "/" + dirname), () -> {
+            try {
+                File entryDir = new File(path, dirname);
+                if (!entryDir.exists()) entryDir.mkdirs();
+
+                File indexFile = new File(entryDir, "index.md");
+                if (content != null) {
+                    AtomicWriter.write(indexFile, content.getBytes(StandardCharsets.UTF_8));
+                    indexWritten(indexFile.getAbsolutePath(), indexFile.getAbsolutePath(),
+                            indexFile.lastModified(), content);
+                }
 
-            // Create images and files subdirectories
-            new File(entryDir, "images").mkdirs();
-            new File(entryDir, "files").mkdirs();
+                // Create images and files subdirectories
+                new File(entryDir, "images").mkdirs();
+                new File(entryDir, "files").mkdirs();
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("path", indexFile.getAbsolutePath());
-            ret.put("dirname", dirname);
-            call.resolve(ret);
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("path", indexFile.getAbsolutePath());
+                ret.put("dirname", dirname);
+                resolve(call, ret);
 
-        } catch (Exception e) {
-            logToJS("error", "Error creating internal entry: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
-        }
+            } catch (Exception e) {
+                logToJS("error", "Error creating internal entry: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     @PluginMethod
     public void writeFileInternal(PluginCall call) {
+        perfStats.begin(call);
         String path = call.getString("path");
         String content = call.getString("content");
-        logToJS("debug", "writeFileInternal called - path: " + path);
+        boolean atomic = call.getBoolean("atomic", true);
+        logToJS("debug", "writeFileInternal called - path: %s", path);
 
         if (path == null || content == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "Missing path or content");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
+        // This content supersedes any queued autosave
+        writeBehind.discard(path);
 
-        try {
-            File file = new File(path);
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) parent.mkdirs();
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(path), () -> {
+            try {
+                File file = new File(path);
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists()) parent.mkdirs();
+
+                long writeStart = System.nanoTime();
+                if (atomic) {
+                    AtomicWriter.write(file, content.getBytes(StandardCharsets.UTF_8));
+                } else {
+                    FileWriter writer = new FileWriter(file);
+                    writer.write(content);
+                    writer.close();
+                }
+                recordWrite(writeStart, file.length());
 
-            FileWriter writer = new FileWriter(file);
-            writer.write(content);
-            writer.close();
+                indexWritten(file.getAbsolutePath(), file.getAbsolutePath(), file.lastModified(), content);
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            call.resolve(ret);
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("hash", contentCache.put(path, content));
+                resolve(call, ret);
 
-        } catch (Exception e) {
-            logToJS("error", "Error writing internal file: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
-        }
+            } catch (Exception e) {
+                logToJS("error", "Error writing internal file: " + e.getMessage());
+                contentCache.remove(path);
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     @PluginMethod
     public void readFileInternal(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "readFileInternal");
         String path = call.getString("path");
-        logToJS("debug", "readFileInternal called - path: " + path);
+        logToJS("debug", "readFileInternal called - path: %s", path);
 
         if (path == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No path provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            File file = new File(path);
-            if (!file.exists()) {
-                JSObject ret = new JSObject();
-                ret.put("success", false);
-                ret.put("error", "File not found");
-                call.resolve(ret);
-                return;
-            }
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(path), () -> {
+            try {
+                String pending = writeBehind.pending(path);
+                if (pending != null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("content", pending);
+                    ret.put("hash", contentCache.put(path, pending));
+                    resolve(call, ret);
+                    return;
+                }
 
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            StringBuilder content = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-            reader.close();
+                String prefetched = startupPrefetch.take("read:" + path, false);
+                if (prefetched != null) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("content", prefetched);
+                    ret.put("hash", contentCache.put(path, prefetched));
+                    resolve(call, ret);
+                    return;
+                }
 
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("content", content.toString());
-            call.resolve(ret);
+                File file = new File(path);
+                if (!file.exists()) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", false);
+                    ret.put("error", "File not found");
+                    resolve(call, ret);
+                    return;
+                }
 
-        } catch (Exception e) {
-            logToJS("error", "Error reading internal file: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
-        }
+                long readStart = System.nanoTime();
+                BufferedReader reader = new BufferedReader(new FileReader(file));
+                StringBuilder content = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    content.append(line).append("\n");
+                }
+                reader.close();
+                perfStats.record(PerfStats.FILE_READ, readStart);
+                perfStats.count(PerfStats.BYTES_READ, content.length());
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("content", content.toString());
+                ret.put("hash", contentCache.put(path, content.toString()));
+                resolve(call, ret);
+
+            } catch (Exception e) {
+                logToJS("error", "Error reading internal file: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     @PluginMethod
     public void listEntriesInternal(PluginCall call) {
+        perfStats.begin(call);
+        StartupTimeline.mark(StartupTimeline.FIRST_PLUGIN_CALL, "listEntriesInternal");
         String path = call.getString("path");
-        logToJS("debug", "listEntriesInternal called - path: " + path);
+        logToJS("debug", "listEntriesInternal called - path: %s", path);
 
         if (path == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No path provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            File dir = new File(path);
-            if (!dir.exists() || !dir.isDirectory()) {
-                JSObject ret = new JSObject();
-                ret.put("success", true);
-                ret.put("entries", new JSArray());
-                call.resolve(ret);
-                return;
-            }
+        IoScheduler.get().execute(() -> {
+            try {
+                startupPrefetch.rememberRoot(path);
+                File dir = new File(path);
+                if (!dir.exists() || !dir.isDirectory()) {
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("entries", new JSArray());
+                    resolve(call, ret);
+                    return;
+                }
 
-            File[] children = dir.listFiles();
-            JSArray entries = new JSArray();
+                File[] children = dir.listFiles();
+                JSArray entries = new JSArray();
 
-            if (children != null) {
-                for (File child : children) {
-                    if (!child.isDirectory()) continue;
+                if (children != null) {
+                    for (File child : children) {
+                        if (!child.isDirectory()) continue;
 
-                    File indexFile = new File(child, "index.md");
-                    if (!indexFile.exists()) continue;
+                        File indexFile = new File(child, "index.md");
+                        if (!indexFile.exists()) continue;
 
-                    JSObject entry = new JSObject();
-                    entry.put("dirname", child.getName());
-                    entry.put("path", indexFile.getAbsolutePath());
-                    entry.put("mtime", indexFile.lastModified());
+                        JSObject entry = new JSObject();
+                        entry.put("dirname", child.getName());
+                        entry.put("path", indexFile.getAbsolutePath());
+                        entry.put("mtime", indexFile.lastModified());
+
+                        String docKey = indexFile.getAbsolutePath();
+                        long mtime = indexFile.lastModified();
+                        JSObject metadata = metadataIndex.lookup(docKey, mtime);
+                        if (metadata == null) {
+                            metadata = extractMetadataFromInternalFile(indexFile);
+                            if (metadata != null) metadataIndex.put(docKey, docKey, child.getName(), mtime, metadata);
+                        }
+                        reindexIfStale(docKey, docKey, mtime);
+                        if (metadata != null) {
+                            trigramIndex.put(docKey, docKey, child.getName(), metadata.optString("title", ""),
+                                    metadata.optJSONArray("tags"));
+                            entry.put("title", metadata.optString("title", ""));
+                            entry.put("date", metadata.optString("date", ""));
+                            entry.put("tags", metadata.opt("tags") != null ? metadata.opt("tags") : new JSArray());
+                            entry.put("excerpt", metadata.optString("excerpt", ""));
+                        }
 
-                    JSObject metadata = extractMetadataFromInternalFile(indexFile);
-                    if (metadata != null) {
-                        entry.put("title", metadata.optString("title", ""));
-                        entry.put("date", metadata.optString("date", ""));
-                        entry.put("tags", metadata.opt("tags") != null ? metadata.opt("tags") : new JSArray());
-                        entry.put("excerpt", metadata.optString("excerpt", ""));
+                        entries.put(entry);
                     }
-
-                    entries.put(entry);
                 }
-            }
 
-            logToJS("debug", "listEntriesInternal: returning " + entries.length() + " entries");
-            JSObject ret = new JSObject();
-            ret.put("success", true);
-            ret.put("entries", entries);
-            call.resolve(ret);
+                logToJS("debug", "listEntriesInternal: returning %s entries", entries.length());
+                StartupTimeline.mark(StartupTimeline.FIRST_LISTING, "listEntriesInternal");
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("entries", entries);
+                resolve(call, ret);
 
-        } catch (Exception e) {
-            logToJS("error", "Error listing internal entries: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
+            } catch (Exception e) {
+                logToJS("error", "Error listing internal entries: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
+    }
+
+    /**
+     * Directory-only listing of the internal journal (no file contents read),
+     * in the same shape as the SAF fast listing.
+     */
+    private int listEntriesInternalFast(File dir, EntrySink sink) {
+        File[] children = dir.listFiles();
+        if (children == null) return 0;
+
+        int count = 0;
+        for (File child : children) {
+            if (!child.isDirectory()) continue;
+
+            File indexFile = new File(child, "index.md");
+            long mtime = indexFile.lastModified();
+            if (mtime == 0 && !indexFile.exists()) continue;
+
+            JSObject entry = new JSObject();
+            entry.put("dirname", child.getName());
+            entry.put("uri", child.getAbsolutePath());
+            entry.put("indexUri", indexFile.getAbsolutePath());
+            entry.put("mtime", mtime);
+            noteListed(entry);
+            sink.accept(entry);
+            count++;
         }
+        return count;
     }
 
     @PluginMethod
     public void deleteDirectoryInternal(PluginCall call) {
+        perfStats.begin(call);
         String path = call.getString("path");
-        logToJS("debug", "deleteDirectoryInternal called - path: " + path);
+        logToJS("debug", "deleteDirectoryInternal called - path: %s", path);
 
         if (path == null) {
             JSObject ret = new JSObject();
             ret.put("success", false);
             ret.put("error", "No path provided");
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
-        try {
-            File dir = new File(path);
-            boolean deleted = deleteRecursive(dir);
+        writeBehind.discardLane(IoScheduler.laneKey(path));
+        contentCache.removeLane(IoScheduler.laneKey(path));
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(path), () -> {
+            try {
+                File dir = new File(path);
+                boolean deleted = deleteRecursive(dir);
+                forgetEntry(dir.getAbsolutePath());
 
-            JSObject ret = new JSObject();
-            ret.put("success", deleted);
-            if (!deleted) {
-                ret.put("error", "Failed to delete directory");
-            }
-            call.resolve(ret);
+                JSObject ret = new JSObject();
+                ret.put("success", deleted);
+                if (!deleted) {
+                    ret.put("error", "Failed to delete directory");
+                }
+                resolve(call, ret);
 
-        } catch (Exception e) {
-            logToJS("error", "Error deleting internal directory: " + e.getMessage());
-            JSObject ret = new JSObject();
-            ret.put("success", false);
-            ret.put("error", e.getMessage());
-            call.resolve(ret);
-        }
+            } catch (Exception e) {
+                logToJS("error", "Error deleting internal directory: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
+            }
+        });
     }
 
     private boolean deleteRecursive(File file) {
@@ -1383,405 +3123,340 @@ public class FolderPickerPlugin extends Plugin {
     }
 
     private JSObject extractMetadataFromInternalFile(File file) {
-        JSObject metadata = new JSObject();
-
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            StringBuilder contentBuilder = new StringBuilder();
-            String line;
-            boolean inFrontmatter = false;
-            boolean frontmatterDone = false;
-            int lineCount = 0;
-            int contentLines = 0;
-
-            String title = null;
-            String date = null;
-            JSArray tags = new JSArray();
-
-            while ((line = reader.readLine()) != null && lineCount < 50) {
-                lineCount++;
-
-                if (line.trim().equals("---")) {
-                    if (!inFrontmatter && lineCount <= 2) {
-                        inFrontmatter = true;
-                        continue;
-                    } else if (inFrontmatter) {
-                        inFrontmatter = false;
-                        frontmatterDone = true;
-                        continue;
-                    }
-                }
-
-                if (inFrontmatter) {
-                    if (line.startsWith("title:")) {
-                        title = line.substring(6).trim();
-                        if ((title.startsWith("\"") && title.endsWith("\"")) ||
-                            (title.startsWith("'") && title.endsWith("'"))) {
-                            title = title.substring(1, title.length() - 1);
-                        }
-                    } else if (line.startsWith("date:")) {
-                        date = line.substring(5).trim();
-                    } else if (line.startsWith("tags:")) {
-                        String tagsStr = line.substring(5).trim();
-                        if (tagsStr.startsWith("[") && tagsStr.endsWith("]")) {
-                            tagsStr = tagsStr.substring(1, tagsStr.length() - 1);
-                            for (String tag : tagsStr.split(",")) {
-                                tag = tag.trim();
-                                if (!tag.isEmpty()) {
-                                    tags.put(tag);
-                                }
-                            }
-                        }
-                    }
-                } else if (frontmatterDone && contentLines < 5) {
-                    String trimmed = line.trim();
-                    if (!trimmed.isEmpty()) {
-                        if (contentBuilder.length() > 0) {
-                            contentBuilder.append(" ");
-                        }
-                        contentBuilder.append(trimmed);
-                        contentLines++;
-                    }
-                }
-            }
-
-            reader.close();
-
-            metadata.put("title", title != null ? title : "");
-            metadata.put("date", date != null ? date : "");
-            metadata.put("tags", tags);
-
-            String excerpt = contentBuilder.toString();
-            if (excerpt.length() > 300) {
-                excerpt = excerpt.substring(0, 300);
-            }
-            metadata.put("excerpt", excerpt);
-
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FrontmatterScanner scanner = scanChannel(inputStream.getChannel(), file.length(), false);
+            return toMetadata(scanner != null ? scanner : scanPrefix(inputStream, false));
         } catch (Exception e) {
             logToJS("error", "Error extracting metadata from internal file: " + e.getMessage());
             return null;
         }
-
-        return metadata;
     }
 
     /**
      * Batch read metadata for multiple entries.
      * Extracts title, date, tags, and excerpt from frontmatter.
-     * Uses parallel processing with thread pool for 4x speedup.
+     * Uses parallel processing on the shared I/O scheduler for 4x speedup.
      */
     @PluginMethod
     public void batchGetMetadata(PluginCall call) {
+        perfStats.begin(call);
         JSArray entriesArray = call.getArray("entries");
-        logToJS("debug", "batchGetMetadata called for " + (entriesArray != null ? entriesArray.length() : 0) + " entries");
+        logToJS("debug", "batchGetMetadata called for %s entries", entriesArray != null ? entriesArray.length() : 0);
 
         if (entriesArray == null || entriesArray.length() == 0) {
             JSObject ret = new JSObject();
             ret.put("success", true);
             ret.put("entries", new JSArray());
-            call.resolve(ret);
+            resolve(call, ret);
             return;
         }
 
         final JSArray entries = entriesArray;
-        final int THREAD_COUNT = 16;
-
-        // Run in background with parallel processing
-        new Thread(() -> {
-            try {
-                ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
-                List<Future<JSObject>> futures = new ArrayList<>();
-
-                for (int i = 0; i < entries.length(); i++) {
-                    final int index = i;
-                    futures.add(executor.submit(() -> {
-                        try {
-                            JSONObject entryInput = entries.getJSONObject(index);
-                            String indexUri = entryInput.optString("indexUri", null);
-                            String dirname = entryInput.optString("dirname", null);
-                            String entryUri = entryInput.optString("uri", null);
-                            long mtime = entryInput.optLong("mtime", 0);
-
-                            if (indexUri == null) return null;
-
-                            Uri fileUri = Uri.parse(indexUri);
-
-                            // Extract metadata using URI directly (faster than DocumentFile)
-                            JSObject metadata = extractMetadataFromUri(fileUri);
-                            if (metadata == null) return null;
-                            metadata.put("path", indexUri);
-                            metadata.put("dirname", dirname);
-                            metadata.put("entryUri", entryUri);
-                            metadata.put("mtime", mtime);
-
-                            return metadata;
-                        } catch (Exception e) {
-                            logToJS("warn", "Error processing entry at index " + index + ": " + e.getMessage());
-                            return null;
-                        }
-                    }));
+        final int total = entries.length();
+        perfStats.count(PerfStats.ENTRIES_PROCESSED, total);
+        final JSObject[] slots = new JSObject[total];
+        final AtomicInteger remaining = new AtomicInteger(total);
+
+        // Fan out one task per entry; whichever task finishes last resolves the call,
+        // so no thread sits blocked waiting on the others.
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            IoScheduler.get().execute(() -> {
+                try {
+                    slots[index] = readEntryMetadata(entries.getJSONObject(index));
+                } catch (Exception e) {
+                    logToJS("warn", "Error processing entry at index %s: %s", index, e.getMessage());
                 }
 
-                executor.shutdown();
-                executor.awaitTermination(60, TimeUnit.SECONDS);
-
-                // Collect results
-                JSArray results = new JSArray();
-                for (Future<JSObject> future : futures) {
-                    try {
-                        JSObject result = future.get();
+                if (remaining.decrementAndGet() == 0) {
+                    // Collect results in request order
+                    JSArray results = new JSArray();
+                    for (JSObject result : slots) {
                         if (result != null) {
                             results.put(result);
                         }
-                    } catch (Exception e) {
-                        // Skip failed entries
                     }
+
+                    logToJS("debug", "batchGetMetadata: returning %s entries (parallel processing)", results.length());
+                    JSObject ret = new JSObject();
+                    ret.put("success", true);
+                    ret.put("entries", results);
+                    ret.put("count", results.length());
+                    resolve(call, ret);
                 }
+            });
+        }
+    }
+
+    /**
+     * Tag usage counts from the native tag index.
+     * Returns {tags: [{tag, count}], counts: {tag: count}}, most used first.
+     * scope limits counts to one journal where document IDs are hierarchical.
+     */
+    @PluginMethod
+    public void getTagCounts(PluginCall call) {
+        perfStats.begin(call);
+        String scope = call.getString("scope");
 
-                logToJS("debug", "batchGetMetadata: returning " + results.length() + " entries (parallel processing)");
+        IoScheduler.get().execute(() -> {
+            try {
+                JSArray tags = metadataIndex.tagCounts(searchScopeKey(scope));
+                JSObject counts = new JSObject();
+                for (int i = 0; i < tags.length(); i++) {
+                    JSONObject tag = tags.getJSONObject(i);
+                    counts.put(tag.getString("tag"), tag.getInt("count"));
+                }
                 JSObject ret = new JSObject();
                 ret.put("success", true);
-                ret.put("entries", results);
-                ret.put("count", results.length());
-                call.resolve(ret);
-
+                ret.put("tags", tags);
+                ret.put("counts", counts);
+                resolve(call, ret);
             } catch (Exception e) {
-                logToJS("error", "Error in batchGetMetadata: " + e.getMessage());
+                logToJS("error", "Error reading tag counts: " + e.getMessage());
                 JSObject ret = new JSObject();
                 ret.put("success", false);
                 ret.put("error", e.getMessage());
-                call.resolve(ret);
+                resolve(call, ret);
             }
-        }).start();
+        });
     }
 
     /**
-     * Extract metadata from URI directly (faster than DocumentFile)
+     * One page of entries tagged with all (mode "and") or any (mode "or") of tags,
+     * newest first. Returns {entries, total, page, hasMore}; entries carry the
+     * same fields as batchGetMetadata.
      */
-    private JSObject extractMetadataFromUri(Uri fileUri) {
-        JSObject metadata = new JSObject();
-
-        try {
-            ContentResolver resolver = getContext().getContentResolver();
-            try (InputStream inputStream = resolver.openInputStream(fileUri)) {
-                if (inputStream == null) return metadata;
-
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-                StringBuilder contentBuilder = new StringBuilder();
-                String line;
-                boolean inFrontmatter = false;
-                boolean frontmatterDone = false;
-                int lineCount = 0;
-                int contentLines = 0;
-
-                String title = null;
-                String date = null;
-                JSArray tags = new JSArray();
-
-                while ((line = reader.readLine()) != null && lineCount < 50) {
-                    lineCount++;
-
-                    if (line.trim().equals("---")) {
-                        if (!inFrontmatter && lineCount <= 2) {
-                            inFrontmatter = true;
-                            continue;
-                        } else if (inFrontmatter) {
-                            inFrontmatter = false;
-                            frontmatterDone = true;
-                            continue;
-                        }
-                    }
+    @PluginMethod
+    public void entriesForTags(PluginCall call) {
+        perfStats.begin(call);
+        JSArray tagsArray = call.getArray("tags");
+        String mode = call.getString("mode", "and");
+        int page = Math.max(0, call.getInt("page", 0));
+        int pageSize = Math.max(1, call.getInt("pageSize", 50));
+        String scope = call.getString("scope");
+
+        if (tagsArray == null || tagsArray.length() == 0) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", "No tags provided");
+            resolve(call, ret);
+            return;
+        }
 
-                    if (inFrontmatter) {
-                        if (line.startsWith("title:")) {
-                            title = line.substring(6).trim();
-                            if ((title.startsWith("\"") && title.endsWith("\"")) ||
-                                (title.startsWith("'") && title.endsWith("'"))) {
-                                title = title.substring(1, title.length() - 1);
-                            }
-                        } else if (line.startsWith("date:")) {
-                            date = line.substring(5).trim();
-                        } else if (line.startsWith("tags:")) {
-                            String tagsStr = line.substring(5).trim();
-                            if (tagsStr.startsWith("[") && tagsStr.endsWith("]")) {
-                                tagsStr = tagsStr.substring(1, tagsStr.length() - 1);
-                                for (String tag : tagsStr.split(",")) {
-                                    tag = tag.trim();
-                                    if (!tag.isEmpty()) {
-                                        tags.put(tag);
-                                    }
-                                }
-                            }
-                        }
-                    } else if (frontmatterDone && contentLines < 5) {
-                        String trimmed = line.trim();
-                        if (!trimmed.isEmpty()) {
-                            if (contentBuilder.length() > 0) {
-                                contentBuilder.append(" ");
-                            }
-                            contentBuilder.append(trimmed);
-                            contentLines++;
-                        }
-                    }
+        IoScheduler.get().execute(() -> {
+            try {
+                List<String> tags = new ArrayList<>();
+                for (int i = 0; i < tagsArray.length(); i++) {
+                    String tag = tagsArray.optString(i, "").trim();
+                    if (!tag.isEmpty()) tags.add(tag);
                 }
 
-                metadata.put("title", title != null ? title : "");
-                metadata.put("date", date != null ? date : "");
-                metadata.put("tags", tags);
-
-                String excerpt = contentBuilder.toString();
-                if (excerpt.length() > 300) {
-                    excerpt = excerpt.substring(0, 300);
+                MetadataIndex.TagPage found = metadataIndex.entriesForTags(tags, !"or".equals(mode), page, pageSize,
+                        searchScopeKey(scope));
+                JSArray entries = new JSArray();
+                for (JSObject entry : found.entries) {
+                    String entryUri = entryUriFor(entry.getString("docKey"), entry.getString("path"));
+                    if (entryUri != null) entry.put("entryUri", entryUri);
+                    entry.remove("docKey");
+                    entries.put(entry);
                 }
-                metadata.put("excerpt", excerpt);
+
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("entries", entries);
+                ret.put("total", found.total);
+                ret.put("page", page);
+                ret.put("hasMore", (long) (page + 1) * pageSize < found.total);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error reading entries for tags: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
+        });
+    }
+
+    /**
+     * Entry directory URI or path for an indexed index.md, or null where the
+     * provider's document IDs do not encode the parent.
+     */
+    private static String entryUriFor(String docKey, String path) {
+        if (path.startsWith("/")) return new File(path).getParent();
+        int slash = docKey.lastIndexOf('/');
+        if (slash <= 0) return null;
+        try {
+            Uri indexUri = Uri.parse(path);
+            if (!"com.android.externalstorage.documents".equals(indexUri.getAuthority())) return null;
+            return DocumentsContract.buildDocumentUriUsingTree(indexUri, docKey.substring(0, slash)).toString();
         } catch (Exception e) {
-            logToJS("error", "Error extracting metadata: " + e.getMessage());
             return null;
         }
-
-        return metadata;
     }
 
     /**
-     * Extract metadata (title, date, tags, excerpt) from a markdown file's frontmatter
+     * Fuzzy match of titles, dirnames and tags for the finder.
+     * Returns [{path, dirname, title, score}] from the in-memory trigram index,
+     * which fills as entries are listed, read for metadata or written.
+     * scope (entries tree URI or internal path) limits results, and the
+     * indexed count, to one journal where document IDs are hierarchical.
      */
-    private JSObject extractMetadataFromFile(DocumentFile file) {
-        JSObject metadata = new JSObject();
-
-        try {
-            ContentResolver resolver = getContext().getContentResolver();
-            InputStream inputStream = resolver.openInputStream(file.getUri());
-            if (inputStream == null) return metadata;
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            StringBuilder contentBuilder = new StringBuilder();
-            String line;
-            boolean inFrontmatter = false;
-            boolean frontmatterDone = false;
-            int lineCount = 0;
-            int contentLines = 0;
-
-            String title = null;
-            String date = null;
-            JSArray tags = new JSArray();
-
-            while ((line = reader.readLine()) != null && lineCount < 50) {
-                lineCount++;
-
-                if (line.trim().equals("---")) {
-                    if (!inFrontmatter && lineCount <= 2) {
-                        inFrontmatter = true;
-                        continue;
-                    } else if (inFrontmatter) {
-                        inFrontmatter = false;
-                        frontmatterDone = true;
-                        continue;
-                    }
-                }
+    @PluginMethod
+    public void fuzzyFind(PluginCall call) {
+        perfStats.begin(call);
+        String query = call.getString("query", "");
+        int limit = call.getInt("limit", 50);
+        String scope = call.getString("scope");
 
-                if (inFrontmatter) {
-                    // Parse frontmatter
-                    if (line.startsWith("title:")) {
-                        title = line.substring(6).trim();
-                        // Remove quotes if present
-                        if ((title.startsWith("\"") && title.endsWith("\"")) ||
-                            (title.startsWith("'") && title.endsWith("'"))) {
-                            title = title.substring(1, title.length() - 1);
-                        }
-                    } else if (line.startsWith("date:")) {
-                        date = line.substring(5).trim();
-                    } else if (line.startsWith("tags:")) {
-                        String tagsStr = line.substring(5).trim();
-                        // Parse inline array format: [tag1, tag2]
-                        if (tagsStr.startsWith("[") && tagsStr.endsWith("]")) {
-                            tagsStr = tagsStr.substring(1, tagsStr.length() - 1);
-                            for (String tag : tagsStr.split(",")) {
-                                tag = tag.trim();
-                                if (!tag.isEmpty()) {
-                                    tags.put(tag);
-                                }
-                            }
-                        }
-                    }
-                } else if (frontmatterDone && contentLines < 5) {
-                    // Collect first few lines of content for excerpt
-                    String trimmed = line.trim();
-                    if (!trimmed.isEmpty()) {
-                        if (contentBuilder.length() > 0) {
-                            contentBuilder.append(" ");
-                        }
-                        contentBuilder.append(trimmed);
-                        contentLines++;
-                    }
-                }
+        IoScheduler.get().execute(() -> {
+            try {
+                String scopeKey = searchScopeKey(scope);
+                JSArray results = trigramIndex.find(query, limit, scopeKey);
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("results", results);
+                ret.put("count", results.length());
+                ret.put("indexed", trigramIndex.size(scopeKey));
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error in fuzzyFind: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
+        });
+    }
 
-            reader.close();
-            inputStream.close();
-
-            metadata.put("title", title != null ? title : "");
-            metadata.put("date", date != null ? date : "");
-            metadata.put("tags", tags);
+    /**
+     * Full-text search over indexed entries.
+     * Returns [{path, title, score, matches: [{field, start, length}], snippet}],
+     * best first; body offsets are UTF-16 offsets into the whole index.md.
+     * scope (entries tree URI or internal path) limits results to one journal
+     * where document IDs are hierarchical.
+     */
+    @PluginMethod
+    public void search(PluginCall call) {
+        perfStats.begin(call);
+        String query = call.getString("query", "");
+        int limit = call.getInt("limit", 50);
+        String scope = call.getString("scope");
 
-            // Create excerpt from first ~300 chars of content
-            String excerpt = contentBuilder.toString();
-            if (excerpt.length() > 300) {
-                excerpt = excerpt.substring(0, 300);
+        IoScheduler.get().execute(() -> {
+            try {
+                long start = System.nanoTime();
+                JSArray results = searchIndex.search(query, limit, searchScopeKey(scope));
+                JSObject ret = new JSObject();
+                ret.put("success", true);
+                ret.put("results", results);
+                ret.put("count", results.length());
+                ret.put("elapsedMs", (System.nanoTime() - start) / 1000000);
+                resolve(call, ret);
+            } catch (Exception e) {
+                logToJS("error", "Error searching: " + e.getMessage());
+                JSObject ret = new JSObject();
+                ret.put("success", false);
+                ret.put("error", e.getMessage());
+                resolve(call, ret);
             }
-            metadata.put("excerpt", excerpt);
+        });
+    }
 
+    /**
+     * docKey prefix shared by every entry below scope, or null when the
+     * provider's document IDs are opaque.
+     */
+    private static String searchScopeKey(String scope) {
+        if (scope == null || scope.isEmpty()) return null;
+        if (scope.startsWith("/")) return new File(scope).getAbsolutePath() + "/";
+        try {
+            Uri uri = Uri.parse(scope);
+            if (!"com.android.externalstorage.documents".equals(uri.getAuthority())) return null;
+            // "primary:" (volume root) vs "primary:Journal"
+            String docId = DocumentResolver.documentIdOf(uri);
+            return docId.endsWith(":") ? docId : docId + "/";
         } catch (Exception e) {
-            logToJS("error", "Error extracting metadata: " + e.getMessage());
+            return null;
         }
-
-        return metadata;
     }
 
-    private String extractTitleFromFrontmatter(DocumentFile file) {
-        try {
-            ContentResolver resolver = getContext().getContentResolver();
-            InputStream inputStream = resolver.openInputStream(file.getUri());
-            if (inputStream == null) return null;
+    private JSObject readEntryMetadata(JSONObject entryInput) {
+        String indexUri = entryInput.optString("indexUri", null);
+        String dirname = entryInput.optString("dirname", null);
+        String entryUri = entryInput.optString("uri", null);
+        long mtime = entryInput.optLong("mtime", 0);
+
+        if (indexUri == null) return null;
+
+        // Keyed on index.md's own mtime, not the listing's: editing the file in
+        // place (sync tools, other editors) leaves its directory's mtime alone.
+        // Queried only when the directory has changed since it was last seen.
+        String docKey = MetadataIndex.docKey(indexUri);
+        long indexMtime = indexUri.startsWith("/") ? -1 : metadataIndex.knownIndexMtime(docKey, mtime);
+        if (indexMtime < 0) {
+            indexMtime = indexMtime(indexUri);
+            if (!indexUri.startsWith("/")) metadataIndex.noteIndexMtime(docKey, mtime, indexMtime);
+        }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String line;
-            boolean inFrontmatter = false;
-            int lineCount = 0;
+        // Unchanged since last extraction: answer from the native index without opening the file
+        JSObject metadata = metadataIndex.lookup(docKey, indexMtime);
+        if (metadata == null) {
+            // Extract metadata using URI directly (faster than DocumentFile)
+            metadata = extractMetadataFromUri(Uri.parse(indexUri));
+            if (metadata == null) return null;
+            if (indexMtime > 0) metadataIndex.put(docKey, indexUri, dirname, indexMtime, metadata);
+        }
+        reindexIfStale(docKey, indexUri, indexMtime);
+        trigramIndex.put(docKey, indexUri, dirname, metadata.optString("title", ""), metadata.optJSONArray("tags"));
+        metadata.put("path", indexUri);
+        metadata.put("dirname", dirname);
+        metadata.put("entryUri", entryUri);
+        metadata.put("mtime", mtime);
 
-            while ((line = reader.readLine()) != null && lineCount < 20) {
-                lineCount++;
-                line = line.trim();
+        return metadata;
+    }
 
-                if (line.equals("---")) {
-                    if (!inFrontmatter) {
-                        inFrontmatter = true;
-                        continue;
-                    } else {
-                        // End of frontmatter, no title found
-                        break;
-                    }
-                }
+    /**
+     * Last-modified time of an index.md (SAF URI or internal path) as its
+     * provider reports it now, or 0 if it is missing or the provider won't say.
+     */
+    private long indexMtime(String uriOrPath) {
+        if (uriOrPath.startsWith("/")) return new File(uriOrPath).lastModified();
 
-                if (inFrontmatter && line.startsWith("title:")) {
-                    reader.close();
-                    inputStream.close();
-                    // Extract title value, removing quotes if present
-                    String title = line.substring(6).trim();
-                    if ((title.startsWith("\"") && title.endsWith("\"")) ||
-                        (title.startsWith("'") && title.endsWith("'"))) {
-                        title = title.substring(1, title.length() - 1);
-                    }
-                    return title;
-                }
-            }
+        long queryStart = System.nanoTime();
+        try (Cursor cursor = getContext().getContentResolver().query(Uri.parse(uriOrPath),
+                new String[]{Document.COLUMN_LAST_MODIFIED}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } catch (Exception e) {
+            return 0;
+        } finally {
+            perfStats.record(PerfStats.SAF_QUERY, queryStart);
+        }
+    }
 
-            reader.close();
-            inputStream.close();
+    /**
+     * Extract metadata from URI directly (faster than DocumentFile)
+     */
+    private JSObject extractMetadataFromUri(Uri fileUri) {
+        try {
+            FrontmatterScanner scanner = scanDocument(fileUri, false);
+            return scanner != null ? toMetadata(scanner) : new JSObject();
         } catch (Exception e) {
-            logToJS("error", "Error extracting title: " + e.getMessage());
+            logToJS("error", "Error extracting metadata: " + e.getMessage());
+            return null;
         }
-        return null;
+    }
+
+    /**
+     * Derive metadata from content we are about to write, so the index can be
+     * updated without reading the file back.
+     */
+    private JSObject extractMetadataFromContent(String content) {
+        // Only the head of the document can hold frontmatter and the excerpt
+        boolean whole = content.length() <= METADATA_MAX_BYTES;
+        byte[] bytes = (whole ? content : content.substring(0, METADATA_MAX_BYTES)).getBytes(StandardCharsets.UTF_8);
+        return toMetadata(FrontmatterScanner.local().scan(bytes, bytes.length, false, whole));
     }
 
     private String getFileName(Uri uri) {
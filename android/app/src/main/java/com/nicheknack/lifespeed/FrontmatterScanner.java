@@ -0,0 +1,292 @@
+package com.nicheknack.lifespeed;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocation-light frontmatter scanner that works directly on UTF-8 bytes.
+ *
+ * Extracts title, date, tags (inline [a, b] or block "- a" lists) and a short
+ * excerpt of the body. Only field values are decoded into Strings; line
+ * splitting, trimming and key matching happen on the byte buffer, and the
+ * excerpt is decoded straight into a reused StringBuilder.
+ *
+ * One instance per thread: scan() resets all state and reuses its buffers.
+ */
+final class FrontmatterScanner {
+    static final int MAX_LINES = 50;
+    static final int EXCERPT_LINES = 5;
+    static final int EXCERPT_CHARS = 300;
+
+    private static final byte[] KEY_TITLE = {'t', 'i', 't', 'l', 'e', ':'};
+    private static final byte[] KEY_DATE = {'d', 'a', 't', 'e', ':'};
+    private static final byte[] KEY_TAGS = {'t', 'a', 'g', 's', ':'};
+
+    private static final ThreadLocal<FrontmatterScanner> LOCAL = new ThreadLocal<FrontmatterScanner>() {
+        @Override
+        protected FrontmatterScanner initialValue() {
+            return new FrontmatterScanner();
+        }
+    };
+
+    /** Reusable read buffer for callers that load a file prefix. */
+    byte[] buffer = new byte[4096];
+
+    String title;
+    String date;
+    final List<String> tags = new ArrayList<>();
+    final StringBuilder excerpt = new StringBuilder(EXCERPT_CHARS + 16);
+
+    /** The frontmatter opened and its closing --- was seen. */
+    boolean frontmatterClosed;
+    /** Scanning stopped on its own (title found, limits hit or body excerpt complete). */
+    boolean finished;
+
+    private int excerptLines;
+
+    static FrontmatterScanner local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Make sure the reusable buffer can hold at least size bytes,
+     * keeping the first keep bytes.
+     */
+    byte[] ensureCapacity(int size, int keep) {
+        if (buffer.length < size) {
+            byte[] grown = new byte[size];
+            System.arraycopy(buffer, 0, grown, 0, keep);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * Scan the first len bytes of data.
+     * @param titleOnly stop as soon as the title is known (listing path)
+     * @param atEof whether data holds the whole file; a trailing partial line is
+     *              only scanned when it is the real end of the file
+     */
+    FrontmatterScanner scan(byte[] data, int len, boolean titleOnly, boolean atEof) {
+        title = null;
+        date = null;
+        tags.clear();
+        excerpt.setLength(0);
+        frontmatterClosed = false;
+        finished = false;
+        excerptLines = 0;
+
+        boolean inFrontmatter = false;
+        boolean inTagBlock = false;
+        boolean stopped = false;
+        int lineCount = 0;
+        int pos = 0;
+
+        // Skip a UTF-8 byte order mark
+        if (len >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+
+        while (pos < len) {
+            int lineEnd = indexOf(data, (byte) '\n', pos, len);
+            if (lineEnd < 0) {
+                // Partial last line: only meaningful if it is the end of the file
+                if (!atEof) break;
+                lineEnd = len;
+            }
+            int lineStart = pos;
+            pos = lineEnd + 1;
+
+            if (++lineCount > MAX_LINES) {
+                stopped = true;
+                break;
+            }
+
+            int start = skipWhitespace(data, lineStart, lineEnd);
+            int end = trimEnd(data, start, lineEnd);
+            boolean isFence = end - start == 3 && data[start] == '-' && data[start + 1] == '-' && data[start + 2] == '-';
+
+            if (isFence) {
+                if (!inFrontmatter && !frontmatterClosed && lineCount <= 2) {
+                    inFrontmatter = true;
+                    continue;
+                } else if (inFrontmatter) {
+                    inFrontmatter = false;
+                    frontmatterClosed = true;
+                    if (titleOnly) {
+                        stopped = true;
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            if (inFrontmatter) {
+                if (inTagBlock) {
+                    if (start < end && data[start] == '-') {
+                        addTag(data, skipWhitespace(data, start + 1, end), end);
+                        continue;
+                    }
+                    if (start == end) continue;
+                    inTagBlock = false;
+                }
+
+                if (startsWith(data, lineStart, lineEnd, KEY_TITLE)) {
+                    title = unquote(data, skipWhitespace(data, lineStart + KEY_TITLE.length, end), end);
+                    if (titleOnly) {
+                        stopped = true;
+                        break;
+                    }
+                } else if (startsWith(data, lineStart, lineEnd, KEY_DATE)) {
+                    date = decode(data, skipWhitespace(data, lineStart + KEY_DATE.length, end), end);
+                } else if (startsWith(data, lineStart, lineEnd, KEY_TAGS)) {
+                    int valueStart = skipWhitespace(data, lineStart + KEY_TAGS.length, end);
+                    if (valueStart == end) {
+                        inTagBlock = true;
+                    } else if (data[valueStart] == '[' && data[end - 1] == ']') {
+                        parseInlineTags(data, valueStart + 1, end - 1);
+                    }
+                }
+            } else if (frontmatterClosed && excerptLines < EXCERPT_LINES) {
+                if (start < end) {
+                    if (excerpt.length() > 0) excerpt.append(' ');
+                    appendUtf8(excerpt, data, start, end);
+                    excerptLines++;
+                }
+                if (excerptLines >= EXCERPT_LINES || excerpt.length() >= EXCERPT_CHARS) {
+                    stopped = true;
+                    break;
+                }
+            } else if (!inFrontmatter && !frontmatterClosed && lineCount >= 2) {
+                // No frontmatter at the top of the file: nothing more to find
+                stopped = true;
+                break;
+            }
+        }
+
+        if (excerpt.length() > EXCERPT_CHARS) {
+            excerpt.setLength(EXCERPT_CHARS);
+        }
+        finished = stopped || atEof;
+        return this;
+    }
+
+    private void parseInlineTags(byte[] data, int from, int to) {
+        int itemStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || data[i] == ',') {
+                int start = skipWhitespace(data, itemStart, i);
+                int end = trimEnd(data, start, i);
+                addTag(data, start, end);
+                itemStart = i + 1;
+            }
+        }
+    }
+
+    private void addTag(byte[] data, int start, int end) {
+        end = trimEnd(data, start, end);
+        String tag = unquote(data, start, end);
+        if (!tag.isEmpty()) {
+            tags.add(tag);
+        }
+    }
+
+    private static String unquote(byte[] data, int start, int end) {
+        end = trimEnd(data, start, end);
+        if (end - start >= 2) {
+            byte first = data[start];
+            byte last = data[end - 1];
+            if ((first == '"' && last == '"') || (first == '\'' && last == '\'')) {
+                start++;
+                end--;
+            }
+        }
+        return decode(data, start, end);
+    }
+
+    private static String decode(byte[] data, int start, int end) {
+        end = trimEnd(data, start, end);
+        if (start >= end) return "";
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] data, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[from + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] data, int from, int to) {
+        while (from < to && (data[from] & 0xFF) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(byte[] data, int from, int to) {
+        while (to > from && (data[to - 1] & 0xFF) <= ' ') to--;
+        return to;
+    }
+
+    /**
+     * Decode UTF-8 into sb without an intermediate String, stopping once the
+     * excerpt limit is reached. Malformed sequences become U+FFFD.
+     */
+    private static void appendUtf8(StringBuilder sb, byte[] data, int from, int to) {
+        int i = from;
+        while (i < to && sb.length() < EXCERPT_CHARS) {
+            int b = data[i] & 0xFF;
+            if (b < 0x80) {
+                sb.append((char) b);
+                i++;
+                continue;
+            }
+
+            int needed;
+            int codePoint;
+            if (b >= 0xF0 && b < 0xF8) {
+                needed = 3;
+                codePoint = b & 0x07;
+            } else if (b >= 0xE0) {
+                needed = 2;
+                codePoint = b & 0x0F;
+            } else if (b >= 0xC0) {
+                needed = 1;
+                codePoint = b & 0x1F;
+            } else {
+                sb.append('\uFFFD');
+                i++;
+                continue;
+            }
+
+            if (i + needed >= to) {
+                sb.append('\uFFFD');
+                break;
+            }
+            boolean valid = true;
+            for (int k = 1; k <= needed; k++) {
+                int next = data[i + k] & 0xFF;
+                if ((next & 0xC0) != 0x80) {
+                    valid = false;
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+            if (!valid) {
+                sb.append('\uFFFD');
+                i++;
+                continue;
+            }
+            sb.appendCodePoint(codePoint);
+            i += needed + 1;
+        }
+    }
+}
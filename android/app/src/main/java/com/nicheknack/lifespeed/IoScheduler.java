@@ -0,0 +1,174 @@
+package com.nicheknack.lifespeed;
+
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived storage scheduler shared by the plugin.
+ *
+ * Two bounded pools, both of which shrink to zero threads when idle:
+ * - bulk: unordered work such as directory listings and batch metadata reads
+ * - lanes: work keyed by entry, where tasks with the same key run one at a time
+ *   in submission order and tasks with different keys run in parallel
+ *
+ * Keeping interactive per-entry work (reads, autosave writes, attachments) off
+ * the bulk pool means a 5k-entry metadata batch cannot queue ahead of a save.
+ */
+final class IoScheduler {
+    private static final String TAG = "IoScheduler";
+
+    private static final int BULK_THREADS = 16;
+    private static final int LANE_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile IoScheduler instance;
+
+    private final ThreadPoolExecutor bulkPool;
+    private final ThreadPoolExecutor lanePool;
+    private final Map<String, Lane> lanes = new HashMap<>();
+
+    static IoScheduler get() {
+        IoScheduler local = instance;
+        if (local == null) {
+            synchronized (IoScheduler.class) {
+                local = instance;
+                if (local == null) {
+                    local = new IoScheduler();
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private IoScheduler() {
+        bulkPool = newPool("lifespeed-io", BULK_THREADS, android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        lanePool = newPool("lifespeed-lane", LANE_THREADS, android.os.Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads, int priority) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(() -> {
+                android.os.Process.setThreadPriority(priority);
+                runnable.run();
+            }, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Run unordered work on the bulk pool.
+     */
+    void execute(Runnable task) {
+        bulkPool.execute(guard(task));
+    }
+
+    /**
+     * Run work on the lane for the given key. Tasks sharing a key never overlap
+     * and run in the order they were submitted.
+     */
+    void executeInLane(String key, Runnable task) {
+        if (key == null) key = "";
+        synchronized (lanes) {
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane(key);
+                lanes.put(key, lane);
+            }
+            lane.tasks.add(task);
+            if (!lane.scheduled) {
+                lane.scheduled = true;
+                lanePool.execute(lane);
+            }
+        }
+    }
+
+    /**
+     * Map any URI or path belonging to an entry onto the entry's lane key, so
+     * the entry directory, its index.md and its attachments share one lane.
+     */
+    static String laneKey(String uriOrPath) {
+        if (uriOrPath == null) return "";
+        String key = uriOrPath;
+        if (uriOrPath.startsWith("content://")) {
+            try {
+                Uri uri = Uri.parse(uriOrPath);
+                // Bare tree URIs (content://auth/tree/<id>) carry no document segment
+                String docId = uri.getPathSegments().size() < 4
+                        ? DocumentsContract.getTreeDocumentId(uri)
+                        : DocumentsContract.getDocumentId(uri);
+                key = uri.getAuthority() + "/" + docId;
+            } catch (Exception e) {
+                // Not a documents URI: fall back to the raw string
+            }
+        }
+        return stripEntrySuffix(key);
+    }
+
+    private static String stripEntrySuffix(String key) {
+        if (key.endsWith("/index.md")) {
+            return key.substring(0, key.length() - "/index.md".length());
+        }
+        int images = key.lastIndexOf("/images/");
+        if (images >= 0) return key.substring(0, images);
+        int files = key.lastIndexOf("/files/");
+        if (files >= 0) return key.substring(0, files);
+        return key;
+    }
+
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Log.e(TAG, "Uncaught error in scheduled task", t);
+            }
+        };
+    }
+
+    private final class Lane implements Runnable {
+        final String key;
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        boolean scheduled;
+
+        Lane(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Runnable next;
+            synchronized (lanes) {
+                next = tasks.poll();
+            }
+            if (next != null) {
+                guard(next).run();
+            }
+            // Re-dispatch one task at a time so a busy lane cannot starve others
+            synchronized (lanes) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    lanes.remove(key);
+                } else {
+                    lanePool.execute(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.nicheknack.lifespeed;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * On-disk native index shared by the plugin.
+ *
+ * Everything stored here can be rebuilt from the journal files, so schema
+ * upgrades simply drop and recreate the tables instead of migrating them.
+ */
+final class JournalDatabase extends SQLiteOpenHelper {
+    private static final String DB_NAME = "lifespeed-index.db";
+    private static final int DB_VERSION = 7;
+
+    static final String TABLE_METADATA = "metadata";
+    static final String TABLE_ENTRY_TAGS = "entry_tags";
+    static final String TABLE_INDEX_MTIMES = "index_mtimes";
+    static final String TABLE_LISTING = "listing";
+    static final String TABLE_LISTING_STATE = "listing_state";
+    static final String TABLE_LISTING_REMOVED = "listing_removed";
+    static final String TABLE_SEARCH_DOCS = "search_docs";
+    static final String TABLE_SEARCH_TEXT = "search_text";
+
+    private static volatile JournalDatabase instance;
+
+    static JournalDatabase get(Context context) {
+        JournalDatabase local = instance;
+        if (local == null) {
+            synchronized (JournalDatabase.class) {
+                local = instance;
+                if (local == null) {
+                    local = new JournalDatabase(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private JournalDatabase(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        // Metadata workers read concurrently while writes land on entry lanes
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_METADATA + " ("
+                + "doc_key TEXT PRIMARY KEY NOT NULL, "
+                + "path TEXT, "
+                + "dirname TEXT, "
+                + "mtime INTEGER NOT NULL, "
+                + "title TEXT, "
+                + "date TEXT, "
+                + "date_epoch INTEGER, "
+                + "tags TEXT, "
+                + "excerpt TEXT)");
+
+        // Tag postings, kept in step with metadata.tags
+        db.execSQL("CREATE TABLE " + TABLE_ENTRY_TAGS + " ("
+                + "tag TEXT NOT NULL COLLATE NOCASE, "
+                + "doc_key TEXT NOT NULL, "
+                + "PRIMARY KEY (tag, doc_key))");
+        db.execSQL("CREATE INDEX entry_tags_doc ON " + TABLE_ENTRY_TAGS + " (doc_key)");
+
+        // index.md mtimes as last seen with their directory's mtime, so listings
+        // of SAF trees need not query every index.md while its directory is unchanged
+        db.execSQL("CREATE TABLE " + TABLE_INDEX_MTIMES + " ("
+                + "doc_key TEXT PRIMARY KEY NOT NULL, "
+                + "dir_mtime INTEGER NOT NULL, "
+                + "index_mtime INTEGER NOT NULL)");
+
+        // Last listing seen per tree, used to answer listEntriesDelta and listEntriesPage.
+        // sort_date/sort_title mirror the entry's metadata so pages are index range scans;
+        // added_gen/changed_gen are the generations the row was added and last changed in.
+        db.execSQL("CREATE TABLE " + TABLE_LISTING + " ("
+                + "tree TEXT NOT NULL, "
+                + "dirname TEXT NOT NULL, "
+                + "uri TEXT, "
+                + "index_uri TEXT, "
+                + "doc_key TEXT, "
+                + "mtime INTEGER NOT NULL, "
+                + "sort_date INTEGER NOT NULL DEFAULT 0, "
+                + "sort_title TEXT NOT NULL DEFAULT '' COLLATE NOCASE, "
+                + "added_gen INTEGER NOT NULL DEFAULT 0, "
+                + "changed_gen INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (tree, dirname))");
+        db.execSQL("CREATE INDEX listing_doc ON " + TABLE_LISTING + " (doc_key)");
+        db.execSQL("CREATE INDEX listing_by_date ON " + TABLE_LISTING + " (tree, sort_date, dirname)");
+        db.execSQL("CREATE INDEX listing_by_mtime ON " + TABLE_LISTING + " (tree, mtime, dirname)");
+        db.execSQL("CREATE INDEX listing_by_title ON " + TABLE_LISTING + " (tree, sort_title, dirname)");
+        db.execSQL("CREATE TABLE " + TABLE_LISTING_STATE + " ("
+                + "tree TEXT PRIMARY KEY NOT NULL, "
+                + "epoch INTEGER NOT NULL, "
+                + "generation INTEGER NOT NULL, "
+                + "floor INTEGER NOT NULL DEFAULT 0)");
+        // Tombstones of listed entries since gone, for deltas from older tokens
+        db.execSQL("CREATE TABLE " + TABLE_LISTING_REMOVED + " ("
+                + "tree TEXT NOT NULL, "
+                + "dirname TEXT NOT NULL, "
+                + "uri TEXT, "
+                + "removed_gen INTEGER NOT NULL, "
+                + "PRIMARY KEY (tree, dirname))");
+
+        // Full-text index: one row per index.md, its text in the FTS4 table under the same docid
+        db.execSQL("CREATE TABLE " + TABLE_SEARCH_DOCS + " ("
+                + "docid INTEGER PRIMARY KEY, "
+                + "doc_key TEXT UNIQUE NOT NULL, "
+                + "path TEXT NOT NULL, "
+                + "mtime INTEGER NOT NULL, "
+                + "body_offset INTEGER NOT NULL)");
+        String columns = "title, tags, body, prefix=\"2,3\"";
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH_TEXT + " USING fts4(" + columns + ", tokenize=unicode61)");
+        } catch (SQLiteException e) {
+            // Builds without unicode61 only fold ASCII case
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH_TEXT + " USING fts4(" + columns + ")");
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        dropAll(db);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        dropAll(db);
+        onCreate(db);
+    }
+
+    private void dropAll(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_METADATA);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ENTRY_TAGS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_INDEX_MTIMES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LISTING);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LISTING_STATE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LISTING_REMOVED);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_DOCS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_TEXT);
+    }
+}
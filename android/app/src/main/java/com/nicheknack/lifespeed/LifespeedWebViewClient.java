@@ -0,0 +1,28 @@
+package com.nicheknack.lifespeed;
+
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+
+/**
+ * Capacitor's WebView client plus native routes for entry attachments.
+ * Anything that is not ours falls through to the Capacitor local server.
+ */
+public class LifespeedWebViewClient extends BridgeWebViewClient {
+    private final AttachmentServer attachmentServer;
+
+    public LifespeedWebViewClient(Bridge bridge) {
+        super(bridge);
+        this.attachmentServer = new AttachmentServer(bridge.getContext());
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        WebResourceResponse response = attachmentServer.handle(request);
+        if (response != null) return response;
+        return super.shouldInterceptRequest(view, request);
+    }
+}
@@ -0,0 +1,360 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persisted copy of the last directory listing per tree.
+ *
+ * Each change to a tree's listing bumps its generation; the sync token handed
+ * to JS is "epoch-generation", where epoch is fixed when the tree is first seen
+ * so tokens from a wiped database can never match by accident. Rows remember
+ * the generation they were added and last changed in, and removed rows leave
+ * a tombstone, so a delta can be answered from any recent token no matter
+ * which caller (listEntriesDelta, listEntriesPage, the change watcher) stored
+ * the listings in between.
+ *
+ * The same rows back listEntriesPage: each carries sort keys copied from the
+ * entry's metadata (falling back to the dirname), indexed per tree, so a page
+ * is a range scan whatever the journal size.
+ */
+final class ListingSnapshot {
+    /** Generations of tombstones kept; older tokens get a reset. */
+    private static final long HISTORY = 512;
+
+    private final JournalDatabase database;
+
+    ListingSnapshot(Context context) {
+        this.database = JournalDatabase.get(context);
+    }
+
+    /**
+     * Change set between a sync token and the stored listing.
+     */
+    static final class Delta {
+        final JSArray added = new JSArray();
+        final JSArray modified = new JSArray();
+        final JSArray removed = new JSArray();
+        String token;
+        boolean reset;
+        int total;
+    }
+
+    private static final class Row {
+        final String uri;
+        final long mtime;
+        final long addedGeneration;
+
+        Row(String uri, long mtime, long addedGeneration) {
+            this.uri = uri;
+            this.mtime = mtime;
+            this.addedGeneration = addedGeneration;
+        }
+    }
+
+    /**
+     * Store a fresh listing of tree. Returns the directory URIs of entries the
+     * stored listing had and the fresh one doesn't; callers drop them from the
+     * other native indexes.
+     */
+    synchronized List<String> update(String tree, JSArray current) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        List<String> removed = new ArrayList<>();
+
+        db.beginTransaction();
+        try {
+            long[] state = readState(db, tree);
+            long epoch = state != null ? state[0] : System.currentTimeMillis();
+            long generation = state != null ? state[1] : 0;
+            long floor = state != null ? state[2] : 0;
+            long next = generation + 1;
+
+            Map<String, Row> previous = readRows(db, tree);
+            boolean changed = state == null;
+            for (int i = 0; i < current.length(); i++) {
+                JSONObject entry = current.getJSONObject(i);
+                String dirname = entry.optString("dirname", null);
+                if (dirname == null) continue;
+
+                long mtime = entry.optLong("mtime", 0);
+                String uri = entry.optString("uri", null);
+                Row old = previous.remove(dirname);
+
+                if (old == null) {
+                    writeRow(db, tree, entry, next, next);
+                    db.delete(JournalDatabase.TABLE_LISTING_REMOVED, "tree = ? AND dirname = ?",
+                            new String[]{tree, dirname});
+                    changed = true;
+                } else if (old.mtime != mtime || (uri != null && !uri.equals(old.uri))) {
+                    writeRow(db, tree, entry, old.addedGeneration, next);
+                    changed = true;
+                }
+            }
+
+            for (Map.Entry<String, Row> gone : previous.entrySet()) {
+                db.delete(JournalDatabase.TABLE_LISTING, "tree = ? AND dirname = ?",
+                        new String[]{tree, gone.getKey()});
+                ContentValues tombstone = new ContentValues();
+                tombstone.put("tree", tree);
+                tombstone.put("dirname", gone.getKey());
+                tombstone.put("uri", gone.getValue().uri);
+                tombstone.put("removed_gen", next);
+                db.insertWithOnConflict(JournalDatabase.TABLE_LISTING_REMOVED, null, tombstone,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                if (gone.getValue().uri != null) removed.add(gone.getValue().uri);
+                changed = true;
+            }
+
+            if (changed) {
+                adoptMetadataSortKeys(db, tree);
+                generation = next;
+                if (generation - HISTORY > floor) {
+                    floor = generation - HISTORY;
+                    db.delete(JournalDatabase.TABLE_LISTING_REMOVED, "tree = ? AND removed_gen <= ?",
+                            new String[]{tree, String.valueOf(floor)});
+                }
+                ContentValues values = new ContentValues();
+                values.put("tree", tree);
+                values.put("epoch", epoch);
+                values.put("generation", generation);
+                values.put("floor", floor);
+                db.insertWithOnConflict(JournalDatabase.TABLE_LISTING_STATE, null, values,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            db.setTransactionSuccessful();
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Malformed listing entry", e);
+        } finally {
+            db.endTransaction();
+        }
+        return removed;
+    }
+
+    /**
+     * What changed in tree's stored listing since sinceToken. A missing,
+     * foreign or too old token yields a reset delta with every entry in added.
+     */
+    synchronized Delta since(String tree, String sinceToken) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        Delta delta = new Delta();
+        long[] state = readState(db, tree);
+        if (state == null) {
+            delta.reset = true;
+            return delta;
+        }
+        delta.token = state[0] + "-" + state[1];
+
+        long since = -1;
+        String prefix = state[0] + "-";
+        if (sinceToken != null && sinceToken.startsWith(prefix)) {
+            try {
+                since = Long.parseLong(sinceToken.substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                since = -1;
+            }
+        }
+        delta.reset = since < state[2] || since > state[1];
+
+        try (Cursor rows = db.rawQuery("SELECT dirname, uri, index_uri, mtime, added_gen, changed_gen FROM "
+                + JournalDatabase.TABLE_LISTING + " WHERE tree = ?", new String[]{tree})) {
+            while (rows != null && rows.moveToNext()) {
+                delta.total++;
+                if (delta.reset || rows.getLong(4) > since) {
+                    delta.added.put(listed(rows));
+                } else if (rows.getLong(5) > since) {
+                    delta.modified.put(listed(rows));
+                }
+            }
+        }
+        if (delta.reset) return delta;
+
+        try (Cursor rows = db.rawQuery("SELECT dirname, uri FROM " + JournalDatabase.TABLE_LISTING_REMOVED
+                + " WHERE tree = ? AND removed_gen > ?", new String[]{tree, String.valueOf(since)})) {
+            while (rows != null && rows.moveToNext()) {
+                JSObject entry = new JSObject();
+                entry.put("dirname", rows.getString(0));
+                entry.put("uri", rows.getString(1));
+                delta.removed.put(entry);
+            }
+        }
+        return delta;
+    }
+
+    private static JSObject listed(Cursor rows) {
+        JSObject entry = new JSObject();
+        entry.put("dirname", rows.getString(0));
+        entry.put("uri", rows.getString(1));
+        entry.put("indexUri", rows.getString(2));
+        entry.put("mtime", rows.getLong(3));
+        return entry;
+    }
+
+    /**
+     * {epoch, generation, floor} of tree, or null if it was never listed.
+     */
+    private static long[] readState(SQLiteDatabase db, String tree) {
+        try (Cursor cursor = db.rawQuery("SELECT epoch, generation, floor FROM "
+                + JournalDatabase.TABLE_LISTING_STATE + " WHERE tree = ?", new String[]{tree})) {
+            if (cursor == null || !cursor.moveToFirst()) return null;
+            return new long[]{cursor.getLong(0), cursor.getLong(1), cursor.getLong(2)};
+        }
+    }
+
+    private static Map<String, Row> readRows(SQLiteDatabase db, String tree) {
+        Map<String, Row> rows = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT dirname, uri, mtime, added_gen FROM "
+                + JournalDatabase.TABLE_LISTING + " WHERE tree = ?", new String[]{tree})) {
+            if (cursor == null) return rows;
+            while (cursor.moveToNext()) {
+                rows.put(cursor.getString(0), new Row(cursor.getString(1), cursor.getLong(2), cursor.getLong(3)));
+            }
+        }
+        return rows;
+    }
+
+    private static void writeRow(SQLiteDatabase db, String tree, JSONObject entry,
+                                 long addedGeneration, long changedGeneration) {
+        String indexUri = entry.optString("indexUri", null);
+        ContentValues values = new ContentValues();
+        values.put("tree", tree);
+        values.put("dirname", entry.optString("dirname", null));
+        values.put("uri", entry.optString("uri", null));
+        values.put("index_uri", indexUri);
+        values.put("doc_key", MetadataIndex.docKey(indexUri));
+        values.put("mtime", entry.optLong("mtime", 0));
+        values.put("added_gen", addedGeneration);
+        values.put("changed_gen", changedGeneration);
+        // Provisional sort keys from the dirname; adoptMetadataSortKeys refines them
+        String dirname = entry.optString("dirname", null);
+        Long dirEpoch = MetadataIndex.dirnameEpoch(dirname);
+        values.put("sort_date", dirEpoch != null ? dirEpoch : entry.optLong("mtime", 0));
+        values.put("sort_title", MetadataIndex.dirnameTitle(dirname));
+        db.insertWithOnConflict(JournalDatabase.TABLE_LISTING, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Copy date and title from already indexed metadata onto the tree's rows.
+     */
+    private static void adoptMetadataSortKeys(SQLiteDatabase db, String tree) {
+        String metadata = JournalDatabase.TABLE_METADATA;
+        String listing = JournalDatabase.TABLE_LISTING;
+        db.execSQL("UPDATE " + listing + " SET "
+                + "sort_date = COALESCE((SELECT date_epoch FROM " + metadata + " m WHERE m.doc_key = "
+                + listing + ".doc_key), sort_date), "
+                + "sort_title = COALESCE((SELECT NULLIF(title, '') FROM " + metadata + " m WHERE m.doc_key = "
+                + listing + ".doc_key), sort_title) "
+                + "WHERE tree = ?", new Object[]{tree});
+    }
+
+    /**
+     * Sync token of the stored listing of tree, or null if it was never listed.
+     */
+    String token(String tree) {
+        long[] state = readState(database.getReadableDatabase(), tree);
+        return state != null ? state[0] + "-" + state[1] : null;
+    }
+
+    /**
+     * Whether a listing of tree has been stored.
+     */
+    boolean has(String tree) {
+        return readState(database.getReadableDatabase(), tree) != null;
+    }
+
+    /**
+     * One page of the stored listing, with any indexed metadata attached.
+     */
+    static final class Page {
+        final JSArray entries = new JSArray();
+        String nextCursor;
+        int total;
+    }
+
+    /**
+     * Keyset page of tree's stored listing ordered by sortKey ("date", "mtime"
+     * or "title"), ties broken by dirname. cursor is the nextCursor of the
+     * previous page, or null for the first.
+     */
+    Page page(String tree, String sortKey, boolean descending, String cursor, int limit) throws JSONException {
+        String column;
+        boolean numeric = true;
+        if ("mtime".equals(sortKey)) {
+            column = "l.mtime";
+        } else if ("title".equals(sortKey)) {
+            column = "l.sort_title";
+            numeric = false;
+        } else {
+            column = "l.sort_date";
+        }
+        String direction = descending ? " DESC" : " ASC";
+        String op = descending ? " < " : " > ";
+        String bound = numeric ? "CAST(? AS INTEGER)" : "?";
+
+        StringBuilder sql = new StringBuilder("SELECT l.dirname, l.uri, l.index_uri, l.mtime, " + column
+                + ", m.doc_key, m.title, m.date, m.tags, m.excerpt FROM " + JournalDatabase.TABLE_LISTING + " l"
+                + " LEFT JOIN " + JournalDatabase.TABLE_METADATA + " m ON m.doc_key = l.doc_key"
+                + " WHERE l.tree = ?");
+        List<String> args = new ArrayList<>();
+        args.add(tree);
+        if (cursor != null && !cursor.isEmpty()) {
+            JSONArray after = new JSONArray(cursor);
+            sql.append(" AND (").append(column).append(op).append(bound)
+                    .append(" OR (").append(column).append(" = ").append(bound)
+                    .append(" AND l.dirname").append(op).append("?))");
+            args.add(after.getString(0));
+            args.add(after.getString(0));
+            args.add(after.getString(1));
+        }
+        sql.append(" ORDER BY ").append(column).append(direction).append(", l.dirname").append(direction)
+                .append(" LIMIT ?");
+        args.add(String.valueOf(limit + 1));
+
+        SQLiteDatabase db = database.getReadableDatabase();
+        Page page = new Page();
+        try (Cursor rows = db.rawQuery(sql.toString(), args.toArray(new String[0]))) {
+            String lastKey = null;
+            String lastDirname = null;
+            while (rows != null && rows.moveToNext()) {
+                if (page.entries.length() == limit) {
+                    page.nextCursor = new JSONArray().put(lastKey).put(lastDirname).toString();
+                    break;
+                }
+                JSObject entry = new JSObject();
+                entry.put("dirname", rows.getString(0));
+                entry.put("uri", rows.getString(1));
+                entry.put("indexUri", rows.getString(2));
+                entry.put("mtime", rows.getLong(3));
+                if (!rows.isNull(5)) {
+                    entry.put("title", MetadataIndex.nonNull(rows.getString(6)));
+                    entry.put("date", MetadataIndex.nonNull(rows.getString(7)));
+                    entry.put("tags", MetadataIndex.parseTags(rows.getString(8)));
+                    entry.put("excerpt", MetadataIndex.nonNull(rows.getString(9)));
+                }
+                page.entries.put(entry);
+                lastKey = rows.getString(4);
+                lastDirname = rows.getString(0);
+            }
+        }
+
+        try (Cursor count = db.rawQuery("SELECT COUNT(*) FROM " + JournalDatabase.TABLE_LISTING
+                + " WHERE tree = ?", new String[]{tree})) {
+            if (count != null && count.moveToFirst()) page.total = count.getInt(0);
+        }
+        return page;
+    }
+}
@@ -1,25 +1,65 @@
 package com.nicheknack.lifespeed;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
+import android.webkit.WebView;
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.PluginHandle;
+import com.getcapacitor.WebViewListener;
 
 public class MainActivity extends BridgeActivity {
+    // How long after the page loads to wait for notifyReady before raising the keyboard anyway
+    private static final long KEYBOARD_FALLBACK_MS = 1500;
+
+    private boolean startupKeyboardShown;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        StartupTimeline.mark(StartupTimeline.ACTIVITY_CREATE);
         registerPlugin(FolderPickerPlugin.class);
         super.onCreate(savedInstanceState);
+        StartupTimeline.mark(StartupTimeline.BRIDGE_READY);
+
+        // Serve entry attachments to the WebView as streamed URLs
+        getBridge().setWebViewClient(new LifespeedWebViewClient(getBridge()));
+
+        // List the journal and read the latest entry while the WebView boots
+        PluginHandle folderPicker = getBridge().getPlugin("FolderPicker");
+        if (folderPicker != null) {
+            ((FolderPickerPlugin) folderPicker.getInstance()).prefetchStartup();
+        }
+
+        getBridge().addWebViewListener(new WebViewListener() {
+            @Override
+            public void onPageStarted(WebView webView) {
+                StartupTimeline.mark(StartupTimeline.PAGE_STARTED);
+            }
+
+            @Override
+            public void onPageLoaded(WebView webView) {
+                StartupTimeline.mark(StartupTimeline.PAGE_LOADED);
+                // A renderer that fails before notifyReady still gets a keyboard
+                webView.postDelayed(() -> {
+                    if (!StartupTimeline.has(StartupTimeline.RENDERER_READY)) showStartupKeyboard();
+                }, KEYBOARD_FALLBACK_MS);
+            }
+        });
+
+        // The keyboard comes up when the renderer calls notifyReady
+    }
 
-        // Show keyboard after WebView is ready (300ms delay for focus)
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            showKeyboard();
-        }, 300);
+    /**
+     * Raise the keyboard for startup once, from notifyReady or the fallback,
+     * whichever comes first. Main thread only.
+     */
+    void showStartupKeyboard() {
+        if (startupKeyboardShown) return;
+        startupKeyboardShown = true;
+        showKeyboard();
     }
 
-    private void showKeyboard() {
+    void showKeyboard() {
         try {
             // Access WebView through the Capacitor Bridge
             if (getBridge() != null && getBridge().getWebView() != null) {
@@ -0,0 +1,401 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent per-entry metadata (title, date, tags, excerpt) keyed by the
+ * index.md document ID and the mtime it was extracted at.
+ *
+ * Lets batchGetMetadata answer unchanged entries without opening the file,
+ * even when the WebView's IndexedDB cache is empty. Tags are also kept as
+ * (tag, entry) postings so tag counts and tag filters never need the full
+ * entry list in JS.
+ */
+final class MetadataIndex {
+    private static final String TAG = "MetadataIndex";
+
+    private static final Pattern DATE_PATTERN = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})(?:[T ](\\d{2}):(\\d{2})(?::(\\d{2})(?:\\.(\\d+))?)?)?\\s*(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private final JournalDatabase database;
+
+    MetadataIndex(Context context) {
+        this.database = JournalDatabase.get(context);
+    }
+
+    /**
+     * Stable index key for an index.md: its document ID for SAF URIs,
+     * the absolute path for internal storage.
+     */
+    static String docKey(String uriOrPath) {
+        if (uriOrPath != null && uriOrPath.startsWith("content://")) {
+            try {
+                return DocumentsContract.getDocumentId(Uri.parse(uriOrPath));
+            } catch (Exception e) {
+                // Not a document URI: fall back to the raw string
+            }
+        }
+        return uriOrPath;
+    }
+
+    /**
+     * Return the indexed metadata if it was extracted at the given mtime,
+     * or null if the entry is unknown or has changed since.
+     */
+    JSObject lookup(String docKey, long mtime) {
+        if (docKey == null || mtime <= 0) return null;
+
+        try {
+            SQLiteDatabase db = database.getReadableDatabase();
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT mtime, title, date, tags, excerpt FROM " + JournalDatabase.TABLE_METADATA
+                            + " WHERE doc_key = ?",
+                    new String[]{docKey})) {
+                if (cursor == null || !cursor.moveToFirst()) return null;
+                if (cursor.getLong(0) != mtime) return null;
+
+                JSObject metadata = new JSObject();
+                metadata.put("title", nonNull(cursor.getString(1)));
+                metadata.put("date", nonNull(cursor.getString(2)));
+                metadata.put("tags", parseTags(cursor.getString(3)));
+                metadata.put("excerpt", nonNull(cursor.getString(4)));
+                return metadata;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "lookup failed for " + docKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The index.md mtime last seen for an entry whose listing still reports
+     * listedMtime, or -1 if unknown or its directory has changed since.
+     * Listings report either the directory's mtime (fast listings) or the
+     * later of the two (stored listings); both count as unchanged.
+     */
+    long knownIndexMtime(String docKey, long listedMtime) {
+        if (docKey == null || listedMtime <= 0) return -1;
+
+        try {
+            SQLiteDatabase db = database.getReadableDatabase();
+            try (Cursor cursor = db.rawQuery("SELECT dir_mtime, index_mtime FROM "
+                    + JournalDatabase.TABLE_INDEX_MTIMES + " WHERE doc_key = ?", new String[]{docKey})) {
+                if (cursor == null || !cursor.moveToFirst()) return -1;
+                long dirMtime = cursor.getLong(0);
+                long indexMtime = cursor.getLong(1);
+                return listedMtime == dirMtime || listedMtime == Math.max(dirMtime, indexMtime) ? indexMtime : -1;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "knownIndexMtime failed for " + docKey + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Record an index.md mtime queried from its provider while the entry was
+     * listed at listedMtime.
+     */
+    void noteIndexMtime(String docKey, long listedMtime, long indexMtime) {
+        if (docKey == null || listedMtime <= 0 || indexMtime <= 0) return;
+
+        ContentValues values = new ContentValues();
+        values.put("doc_key", docKey);
+        values.put("dir_mtime", listedMtime);
+        values.put("index_mtime", indexMtime);
+        try {
+            database.getWritableDatabase().insertWithOnConflict(JournalDatabase.TABLE_INDEX_MTIMES, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+        } catch (Exception e) {
+            Log.w(TAG, "noteIndexMtime failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The app rewrote an index.md: its directory is unchanged, its mtime is new.
+     */
+    void noteIndexWritten(String docKey, long indexMtime) {
+        if (docKey == null || indexMtime <= 0) return;
+
+        ContentValues values = new ContentValues();
+        values.put("index_mtime", indexMtime);
+        try {
+            database.getWritableDatabase().update(JournalDatabase.TABLE_INDEX_MTIMES, values, "doc_key = ?",
+                    new String[]{docKey});
+        } catch (Exception e) {
+            Log.w(TAG, "noteIndexWritten failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forget recorded index.md mtimes (the watcher saw these entries change),
+     * so the next listing queries them again.
+     */
+    void forgetIndexMtimes(List<String> docKeys) {
+        try {
+            SQLiteDatabase db = database.getWritableDatabase();
+            for (String docKey : docKeys) {
+                db.delete(JournalDatabase.TABLE_INDEX_MTIMES, "doc_key = ?", new String[]{docKey});
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "forgetIndexMtimes failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store metadata extracted (or derived from written content) at the given
+     * mtime, and replace the entry's tag postings to match.
+     * @param path the index.md URI or path callers know the entry by
+     * @param dirname entry directory name, or null to keep the stored one
+     */
+    void put(String docKey, String path, String dirname, long mtime, JSObject metadata) {
+        if (docKey == null || metadata == null) return;
+
+        JSONArray tags = metadata.optJSONArray("tags");
+        ContentValues values = new ContentValues();
+        if (path != null) values.put("path", path);
+        if (dirname != null) values.put("dirname", dirname);
+        values.put("mtime", mtime);
+        values.put("title", metadata.optString("title", ""));
+        values.put("date", metadata.optString("date", ""));
+        Long dateEpoch = parseDateEpoch(metadata.optString("date", ""));
+        values.put("date_epoch", dateEpoch);
+        values.put("tags", tags != null ? tags.toString() : "[]");
+        values.put("excerpt", metadata.optString("excerpt", ""));
+
+        try {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                String[] key = {docKey};
+                if (db.update(JournalDatabase.TABLE_METADATA, values, "doc_key = ?", key) == 0) {
+                    values.put("doc_key", docKey);
+                    if (dirname == null) values.put("dirname", dirnameOf(docKey));
+                    db.insertWithOnConflict(JournalDatabase.TABLE_METADATA, null, values,
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+
+                // Keep the listing's sort keys in step for listEntriesPage
+                db.execSQL("UPDATE " + JournalDatabase.TABLE_LISTING + " SET sort_date = COALESCE(?, sort_date), "
+                        + "sort_title = COALESCE(NULLIF(?, ''), sort_title) WHERE doc_key = ?",
+                        new Object[]{dateEpoch, metadata.optString("title", ""), docKey});
+
+                db.delete(JournalDatabase.TABLE_ENTRY_TAGS, "doc_key = ?", key);
+                if (tags != null) {
+                    for (int i = 0; i < tags.length(); i++) {
+                        String tag = tags.optString(i, "").trim();
+                        if (tag.isEmpty()) continue;
+                        ContentValues posting = new ContentValues();
+                        posting.put("tag", tag);
+                        posting.put("doc_key", docKey);
+                        // Same tag in another case: the NOCASE key keeps one posting
+                        db.insertWithOnConflict(JournalDatabase.TABLE_ENTRY_TAGS, null, posting,
+                                SQLiteDatabase.CONFLICT_IGNORE);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "put failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop an entry and everything stored beneath it (its index.md).
+     */
+    void removeTree(String docKey) {
+        if (docKey == null) return;
+
+        String where = "doc_key = ? OR substr(doc_key, 1, ?) = ?";
+        String[] args = {docKey, String.valueOf(docKey.length() + 1), docKey + "/"};
+        try {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(JournalDatabase.TABLE_METADATA, where, args);
+                db.delete(JournalDatabase.TABLE_ENTRY_TAGS, where, args);
+                db.delete(JournalDatabase.TABLE_INDEX_MTIMES, where, args);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "remove failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Number of entries per tag, most used first.
+     * @param scopeKey docKey prefix of one journal, or null for all
+     */
+    JSArray tagCounts(String scopeKey) {
+        JSArray counts = new JSArray();
+        StringBuilder sql = new StringBuilder("SELECT tag, COUNT(*) FROM " + JournalDatabase.TABLE_ENTRY_TAGS);
+        String[] args = null;
+        if (scopeKey != null) {
+            sql.append(" WHERE substr(doc_key, 1, ?) = ?");
+            args = new String[]{String.valueOf(scopeKey.length()), scopeKey};
+        }
+        sql.append(" GROUP BY tag ORDER BY COUNT(*) DESC, tag");
+
+        try (Cursor cursor = database.getReadableDatabase().rawQuery(sql.toString(), args)) {
+            while (cursor != null && cursor.moveToNext()) {
+                JSObject count = new JSObject();
+                count.put("tag", cursor.getString(0));
+                count.put("count", cursor.getInt(1));
+                counts.put(count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * One page of a tag query plus the number of matching entries overall.
+     */
+    static final class TagPage {
+        final List<JSObject> entries = new ArrayList<>();
+        int total;
+    }
+
+    /**
+     * One page of entries carrying all (and) or any (or) of tags, newest first.
+     * Each result has docKey, path, dirname, mtime and the stored metadata.
+     */
+    TagPage entriesForTags(List<String> tags, boolean matchAll, int pageIndex, int pageSize, String scopeKey) {
+        List<String> args = new ArrayList<>(tags);
+        StringBuilder matching = new StringBuilder("SELECT doc_key FROM " + JournalDatabase.TABLE_ENTRY_TAGS
+                + " WHERE tag IN (");
+        for (int i = 0; i < tags.size(); i++) matching.append(i == 0 ? "?" : ", ?");
+        matching.append(")");
+        if (scopeKey != null) {
+            matching.append(" AND substr(doc_key, 1, ?) = ?");
+            args.add(String.valueOf(scopeKey.length()));
+            args.add(scopeKey);
+        }
+        matching.append(" GROUP BY doc_key");
+        if (matchAll) {
+            matching.append(" HAVING COUNT(*) = ?");
+            Set<String> distinct = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            distinct.addAll(tags);
+            args.add(String.valueOf(distinct.size()));
+        }
+
+        SQLiteDatabase db = database.getReadableDatabase();
+        TagPage page = new TagPage();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM (" + matching + ")", args.toArray(new String[0]))) {
+            if (cursor != null && cursor.moveToFirst()) page.total = cursor.getInt(0);
+        }
+
+        args.add(String.valueOf(pageSize));
+        args.add(String.valueOf((long) pageIndex * pageSize));
+        try (Cursor cursor = db.rawQuery("SELECT doc_key, path, dirname, mtime, title, date, tags, excerpt FROM "
+                + JournalDatabase.TABLE_METADATA + " WHERE doc_key IN (" + matching + ")"
+                + " ORDER BY date_epoch DESC, doc_key LIMIT ? OFFSET ?", args.toArray(new String[0]))) {
+            while (cursor != null && cursor.moveToNext()) {
+                JSObject entry = new JSObject();
+                entry.put("docKey", cursor.getString(0));
+                entry.put("path", nonNull(cursor.getString(1)));
+                entry.put("dirname", nonNull(cursor.getString(2)));
+                entry.put("mtime", cursor.getLong(3));
+                entry.put("title", nonNull(cursor.getString(4)));
+                entry.put("date", nonNull(cursor.getString(5)));
+                entry.put("tags", parseTags(cursor.getString(6)));
+                entry.put("excerpt", nonNull(cursor.getString(7)));
+                page.entries.add(entry);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Entry directory name: the segment before "/index.md" in a path-like key.
+     */
+    static String dirnameOf(String docKey) {
+        int end = docKey.lastIndexOf('/');
+        if (end <= 0) return "";
+        int start = docKey.lastIndexOf('/', end - 1);
+        return docKey.substring(start + 1, end);
+    }
+
+    /**
+     * Epoch millis (UTC unless an offset is given) of a frontmatter date such as
+     * "2024-01-05", "2024-01-05 10:30" or "2024-01-05T10:30:00.000Z", or null.
+     */
+    static Long parseDateEpoch(String date) {
+        if (date == null) return null;
+        Matcher m = DATE_PATTERN.matcher(date.trim());
+        if (!m.matches()) return null;
+
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)) - 1, Integer.parseInt(m.group(3)),
+                m.group(4) != null ? Integer.parseInt(m.group(4)) : 0,
+                m.group(5) != null ? Integer.parseInt(m.group(5)) : 0,
+                m.group(6) != null ? Integer.parseInt(m.group(6)) : 0);
+        long epoch = calendar.getTimeInMillis();
+        if (m.group(7) != null) {
+            String fraction = (m.group(7) + "00").substring(0, 3);
+            epoch += Integer.parseInt(fraction);
+        }
+        String zone = m.group(8);
+        if (zone != null && !zone.equals("Z")) {
+            int sign = zone.charAt(0) == '-' ? -1 : 1;
+            String digits = zone.substring(1).replace(":", "");
+            int offsetMinutes = Integer.parseInt(digits.substring(0, 2)) * 60 + Integer.parseInt(digits.substring(2, 4));
+            epoch -= sign * offsetMinutes * 60000L;
+        }
+        return epoch;
+    }
+
+    /**
+     * Date encoded at the start of a "YYYY-MM-DD-slug" dirname, or null.
+     */
+    static Long dirnameEpoch(String dirname) {
+        if (dirname == null || dirname.length() < 10) return null;
+        return parseDateEpoch(dirname.substring(0, 10));
+    }
+
+    /**
+     * Title used for sorting before metadata is known: the dirname's slug.
+     */
+    static String dirnameTitle(String dirname) {
+        if (dirname == null) return "";
+        String slug = dirname.length() > 11 && dirnameEpoch(dirname) != null && dirname.charAt(10) == '-'
+                ? dirname.substring(11) : dirname;
+        return slug.replace('-', ' ');
+    }
+
+    static JSArray parseTags(String json) {
+        if (json == null || json.isEmpty()) return new JSArray();
+        try {
+            return new JSArray(json);
+        } catch (Exception e) {
+            return new JSArray();
+        }
+    }
+
+    static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,176 @@
+package com.nicheknack.lifespeed;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.Locale;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring-buffered native log that reaches JS in batches.
+ *
+ * Lines below the current level are dropped before their message is built:
+ * callers pass a format and arguments, which are only formatted once the
+ * level check passes. Accepted lines go to Logcat and into a fixed ring; the
+ * first line after the ring was drained arms a timer, and when it fires one
+ * background thread hands everything buffered to the sink as a single batch.
+ * If the ring fills before that, the oldest lines are overwritten and the
+ * next batch starts with a note of how many were lost.
+ */
+final class NativeLog {
+    static final int DEBUG = 0;
+    static final int INFO = 1;
+    static final int WARN = 2;
+    static final int ERROR = 3;
+
+    private static final String[] LEVEL_NAMES = {"debug", "info", "warn", "error"};
+    private static final int CAPACITY = 1024;
+    private static final long BATCH_DELAY_MS = 250;
+
+    /** Receives one batch of [{level, message, tag, timestamp}]; called on the log thread. */
+    interface Sink {
+        void onBatch(JSArray batch);
+    }
+
+    private final String tag;
+    private final Sink sink;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final int[] levels = new int[CAPACITY];
+    private final String[] messages = new String[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+    private int head;
+    private int size;
+    private int dropped;
+    private boolean armed;
+    private volatile int minLevel = DEBUG;
+
+    NativeLog(String tag, Sink sink) {
+        this.tag = tag;
+        this.sink = sink;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lifespeed-log");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Level by name ("debug", "info", "warn", "error"); unknown names map to debug.
+     */
+    static int parseLevel(String name) {
+        for (int i = 0; i < LEVEL_NAMES.length; i++) {
+            if (LEVEL_NAMES[i].equalsIgnoreCase(name)) return i;
+        }
+        return DEBUG;
+    }
+
+    static String levelName(int level) {
+        return LEVEL_NAMES[Math.max(DEBUG, Math.min(ERROR, level))];
+    }
+
+    void setLevel(int level) {
+        minLevel = level;
+    }
+
+    int level() {
+        return minLevel;
+    }
+
+    boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    void log(int level, String message) {
+        if (level < minLevel) return;
+        append(level, message);
+    }
+
+    /**
+     * Log String.format(format, args), formatting only if level passes.
+     */
+    void log(int level, String format, Object... args) {
+        if (level < minLevel) return;
+        append(level, args.length == 0 ? format : String.format(Locale.US, format, args));
+    }
+
+    private void append(int level, String message) {
+        switch (level) {
+            case ERROR:
+                Log.e(tag, message);
+                break;
+            case WARN:
+                Log.w(tag, message);
+                break;
+            default:
+                Log.d(tag, message);
+                break;
+        }
+
+        synchronized (this) {
+            int slot = (head + size) % CAPACITY;
+            if (size == CAPACITY) {
+                head = (head + 1) % CAPACITY;
+                dropped++;
+            } else {
+                size++;
+            }
+            levels[slot] = level;
+            messages[slot] = message;
+            timestamps[slot] = System.currentTimeMillis();
+
+            if (!armed) {
+                armed = true;
+                timer.schedule(this::drain, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Hand everything buffered to the sink now (e.g. before the app is paused).
+     */
+    void flush() {
+        timer.execute(this::drain);
+    }
+
+    private void drain() {
+        JSArray batch = new JSArray();
+        synchronized (this) {
+            armed = false;
+            if (dropped > 0) {
+                batch.put(event(WARN, "[Native] " + dropped + " log lines dropped (buffer full)",
+                        timestamps[head]));
+                dropped = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) % CAPACITY;
+                batch.put(event(levels[slot], "[Native] " + messages[slot], timestamps[slot]));
+                messages[slot] = null;
+            }
+            head = 0;
+            size = 0;
+        }
+        if (batch.length() == 0) return;
+        try {
+            sink.onBatch(batch);
+        } catch (Exception e) {
+            Log.e(tag, "Log batch delivery failed: " + e.getMessage());
+        }
+    }
+
+    private JSObject event(int level, String message, long timestamp) {
+        JSObject event = new JSObject();
+        event.put("level", levelName(level));
+        event.put("message", message);
+        event.put("tag", tag);
+        event.put("timestamp", timestamp);
+        return event;
+    }
+}
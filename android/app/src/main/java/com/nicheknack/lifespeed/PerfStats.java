@@ -0,0 +1,187 @@
+package com.nicheknack.lifespeed;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms and counters for the plugin, cheap enough to leave on.
+ *
+ * Every plugin method is timed from entry to resolve. Stages inside the
+ * methods (SAF cursor walks, file reads and writes, metadata scans) are timed
+ * separately, so a slow method can be attributed to one of them. Serializing
+ * the result for the bridge is timed on a sample of calls only, since doing
+ * it costs as much as the bridge itself.
+ *
+ * Histograms use log-linear buckets over microseconds: eight per power of
+ * two, so a reported percentile is within 12.5% of the true value.
+ */
+final class PerfStats {
+    static final String SAF_QUERY = "saf.query";
+    static final String FILE_READ = "file.read";
+    static final String FILE_WRITE = "file.write";
+    static final String METADATA_SCAN = "metadata.scan";
+    static final String BRIDGE_SERIALIZE = "bridge.serialize";
+
+    static final String BYTES_READ = "bytesRead";
+    static final String BYTES_WRITTEN = "bytesWritten";
+    static final String ENTRIES_PROCESSED = "entriesProcessed";
+    static final String BRIDGE_CHARS_SAMPLED = "bridgeCharsSampled";
+
+    private static final int SERIALIZE_SAMPLE_EVERY = 16;
+
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long count;
+        private long totalMicros;
+        private long maxMicros;
+
+        synchronized void record(long micros) {
+            if (micros < 0) micros = 0;
+            counts[bucketOf(micros)]++;
+            count++;
+            totalMicros += micros;
+            if (micros > maxMicros) maxMicros = micros;
+        }
+
+        static int bucketOf(long micros) {
+            if (micros < SUB_BUCKETS) return (int) micros;
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /** Largest value that falls into bucket. */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        private long percentile(double fraction) {
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), maxMicros);
+            }
+            return maxMicros;
+        }
+
+        synchronized JSObject toJSObject() {
+            JSObject result = new JSObject();
+            result.put("count", count);
+            result.put("p50Ms", count > 0 ? percentile(0.50) / 1000.0 : 0);
+            result.put("p95Ms", count > 0 ? percentile(0.95) / 1000.0 : 0);
+            result.put("p99Ms", count > 0 ? percentile(0.99) / 1000.0 : 0);
+            result.put("maxMs", maxMicros / 1000.0);
+            result.put("totalMs", totalMicros / 1000.0);
+            return result;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Long> started = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> methods = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> stages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger resolved = new AtomicInteger();
+    private volatile long since = System.currentTimeMillis();
+
+    /**
+     * Start timing a plugin call.
+     */
+    void begin(PluginCall call) {
+        String id = call.getCallbackId();
+        if (id != null) started.put(id, System.nanoTime());
+    }
+
+    /**
+     * Stop timing a plugin call that is about to resolve with ret.
+     */
+    void end(PluginCall call, JSObject ret) {
+        String id = call.getCallbackId();
+        Long start = id != null ? started.remove(id) : null;
+        String method = call.getMethodName();
+        if (start != null && method != null) {
+            histogram(methods, method).record((System.nanoTime() - start) / 1000);
+        }
+
+        if (ret != null && resolved.incrementAndGet() % SERIALIZE_SAMPLE_EVERY == 0) {
+            long serializeStart = System.nanoTime();
+            int length = ret.toString().length();
+            record(BRIDGE_SERIALIZE, serializeStart);
+            count(BRIDGE_CHARS_SAMPLED, length);
+        }
+    }
+
+    /**
+     * Record a stage that started at startNanos (System.nanoTime()) and ends now.
+     */
+    void record(String stage, long startNanos) {
+        histogram(stages, stage).record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    void count(String counter, long delta) {
+        AtomicLong value = counters.get(counter);
+        if (value == null) {
+            counters.putIfAbsent(counter, new AtomicLong());
+            value = counters.get(counter);
+        }
+        value.addAndGet(delta);
+    }
+
+    /**
+     * { since, methods: {name: histogram}, stages: {name: histogram}, counters: {name: n} }
+     */
+    JSObject toJSObject() {
+        JSObject result = new JSObject();
+        result.put("since", since);
+
+        JSObject methodStats = new JSObject();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(methods).entrySet()) {
+            methodStats.put(entry.getKey(), entry.getValue().toJSObject());
+        }
+        result.put("methods", methodStats);
+
+        JSObject stageStats = new JSObject();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(stages).entrySet()) {
+            stageStats.put(entry.getKey(), entry.getValue().toJSObject());
+        }
+        result.put("stages", stageStats);
+
+        JSObject counterValues = new JSObject();
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().get());
+        }
+        result.put("counters", counterValues);
+        return result;
+    }
+
+    /**
+     * Clear all histograms and counters. Calls in flight keep their start times.
+     */
+    void reset() {
+        methods.clear();
+        stages.clear();
+        counters.clear();
+        since = System.currentTimeMillis();
+    }
+
+    private static Histogram histogram(ConcurrentHashMap<String, Histogram> map, String name) {
+        Histogram histogram = map.get(name);
+        if (histogram == null) {
+            map.putIfAbsent(name, new Histogram());
+            histogram = map.get(name);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,373 @@
+package com.nicheknack.lifespeed;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk full-text index (SQLite FTS4) over entry titles, tags and bodies.
+ *
+ * Rows are keyed like {@link MetadataIndex}: by the index.md document ID (SAF)
+ * or absolute path (internal), with the mtime the text was indexed at. Writes
+ * index the content they just wrote; batchGetMetadata and internal listings
+ * reindex entries whose mtime moved, so the index converges without the
+ * renderer ever reading bodies for search.
+ *
+ * Ranking is BM25 computed from matchinfo(), with titles and tags weighted
+ * above the body. Match offsets are reported in UTF-16 units of the original
+ * file (body) or of the title/tags strings, ready for JS substring().
+ */
+final class SearchIndex {
+    private static final String TAG = "SearchIndex";
+
+    /** Bodies beyond this are indexed only up to it. */
+    static final int MAX_BODY_CHARS = 512 * 1024;
+
+    private static final String[] COLUMNS = {"title", "tags", "body"};
+    private static final double[] WEIGHTS = {4.0, 2.0, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_TERMS = 8;
+    private static final int MAX_MATCHES = 8;
+    private static final int SNIPPET_BEFORE = 40;
+    private static final int SNIPPET_AFTER = 100;
+
+    private final JournalDatabase database;
+    /** docKeys with a reindex already queued. */
+    private final Map<String, Boolean> queued = new ConcurrentHashMap<>();
+
+    SearchIndex(Context context) {
+        this.database = JournalDatabase.get(context);
+    }
+
+    /**
+     * Whether the indexed text for docKey was taken at mtime.
+     */
+    boolean isCurrent(String docKey, long mtime) {
+        if (docKey == null) return true;
+        try (Cursor cursor = database.getReadableDatabase().rawQuery("SELECT mtime FROM "
+                + JournalDatabase.TABLE_SEARCH_DOCS + " WHERE doc_key = ?", new String[]{docKey})) {
+            return cursor != null && cursor.moveToFirst() && cursor.getLong(0) == mtime;
+        } catch (Exception e) {
+            Log.w(TAG, "isCurrent failed for " + docKey + ": " + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Reserve docKey for a background reindex.
+     * @return false if one is already queued
+     */
+    boolean claim(String docKey) {
+        return queued.put(docKey, Boolean.TRUE) == null;
+    }
+
+    void release(String docKey) {
+        queued.remove(docKey);
+    }
+
+    /**
+     * Index (or replace) the text of one entry.
+     * @param metadata title and tags as extracted by FrontmatterScanner
+     */
+    void put(String docKey, String path, long mtime, JSObject metadata, String content) {
+        if (docKey == null || path == null || content == null) return;
+
+        int bodyOffset = bodyOffset(content);
+        int bodyEnd = Math.min(content.length(), bodyOffset + MAX_BODY_CHARS);
+        String title = metadata != null ? metadata.optString("title", "") : "";
+        String tags = joinTags(metadata != null ? metadata.opt("tags") : null);
+
+        try {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                ContentValues doc = new ContentValues();
+                doc.put("doc_key", docKey);
+                doc.put("path", path);
+                doc.put("mtime", mtime);
+                doc.put("body_offset", bodyOffset);
+
+                long docid = -1;
+                try (Cursor cursor = db.rawQuery("SELECT docid FROM " + JournalDatabase.TABLE_SEARCH_DOCS
+                        + " WHERE doc_key = ?", new String[]{docKey})) {
+                    if (cursor != null && cursor.moveToFirst()) docid = cursor.getLong(0);
+                }
+                if (docid >= 0) {
+                    db.update(JournalDatabase.TABLE_SEARCH_DOCS, doc, "docid = ?", new String[]{String.valueOf(docid)});
+                    db.delete(JournalDatabase.TABLE_SEARCH_TEXT, "docid = ?", new String[]{String.valueOf(docid)});
+                } else {
+                    docid = db.insertWithOnConflict(JournalDatabase.TABLE_SEARCH_DOCS, null, doc,
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+
+                ContentValues text = new ContentValues();
+                text.put("docid", docid);
+                text.put("title", title);
+                text.put("tags", tags);
+                text.put("body", content.substring(bodyOffset, bodyEnd));
+                db.insertWithOnConflict(JournalDatabase.TABLE_SEARCH_TEXT, null, text, SQLiteDatabase.CONFLICT_REPLACE);
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "put failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop an entry and everything stored beneath it (its index.md).
+     */
+    void removeTree(String docKey) {
+        if (docKey == null) return;
+
+        String where = "doc_key = ? OR substr(doc_key, 1, ?) = ?";
+        String[] args = {docKey, String.valueOf(docKey.length() + 1), docKey + "/"};
+        try {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(JournalDatabase.TABLE_SEARCH_TEXT, "docid IN (SELECT docid FROM "
+                        + JournalDatabase.TABLE_SEARCH_DOCS + " WHERE " + where + ")", args);
+                db.delete(JournalDatabase.TABLE_SEARCH_DOCS, where, args);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "remove failed for " + docKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ranked entries matching every word of query (each as a prefix).
+     * @param scopeKey only return entries whose docKey starts with this prefix, or null for all
+     */
+    JSArray search(String query, int limit, String scopeKey) {
+        JSArray results = new JSArray();
+        String match = toMatchExpression(query);
+        if (match == null || limit <= 0) return results;
+
+        SQLiteDatabase db = database.getReadableDatabase();
+        StringBuilder sql = new StringBuilder("SELECT docid, matchinfo(" + JournalDatabase.TABLE_SEARCH_TEXT
+                + ", 'pcnalx') FROM " + JournalDatabase.TABLE_SEARCH_TEXT + " WHERE "
+                + JournalDatabase.TABLE_SEARCH_TEXT + " MATCH ?");
+        List<String> args = new ArrayList<>();
+        args.add(match);
+        if (scopeKey != null) {
+            sql.append(" AND docid IN (SELECT docid FROM ").append(JournalDatabase.TABLE_SEARCH_DOCS)
+                    .append(" WHERE substr(doc_key, 1, ?) = ?)");
+            args.add(String.valueOf(scopeKey.length()));
+            args.add(scopeKey);
+        }
+
+        List<long[]> hits = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[0]))) {
+            while (cursor != null && cursor.moveToNext()) {
+                hits.add(new long[]{cursor.getLong(0), hits.size()});
+                scores.add(bm25(cursor.getBlob(1)));
+            }
+        }
+        if (hits.isEmpty()) return results;
+
+        long[][] ranked = hits.toArray(new long[0][]);
+        Arrays.sort(ranked, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Double.compare(scores.get((int) b[1]), scores.get((int) a[1]));
+            }
+        });
+        int count = Math.min(limit, ranked.length);
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) ids.append(',');
+            ids.append(ranked[i][0]);
+        }
+
+        // Second pass over the winners only: offsets() and the stored text
+        Map<Long, JSObject> byDocid = new HashMap<>();
+        String t = JournalDatabase.TABLE_SEARCH_TEXT;
+        String d = JournalDatabase.TABLE_SEARCH_DOCS;
+        try (Cursor cursor = db.rawQuery("SELECT " + t + ".docid, " + d + ".path, " + d + ".body_offset, "
+                + t + ".title, " + t + ".tags, " + t + ".body, offsets(" + t + ") FROM " + t
+                + " JOIN " + d + " ON " + d + ".docid = " + t + ".docid WHERE " + t + " MATCH ? AND "
+                + t + ".docid IN (" + ids + ")", new String[]{match})) {
+            while (cursor != null && cursor.moveToNext()) {
+                byDocid.put(cursor.getLong(0), toResult(cursor.getString(1), cursor.getInt(2),
+                        new String[]{cursor.getString(3), cursor.getString(4), cursor.getString(5)},
+                        cursor.getString(6)));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            JSObject result = byDocid.get(ranked[i][0]);
+            if (result == null) continue;
+            result.put("score", scores.get((int) ranked[i][1]));
+            results.put(result);
+        }
+        return results;
+    }
+
+    private static JSObject toResult(String path, int bodyOffset, String[] text, String offsets) {
+        JSArray matches = new JSArray();
+        int firstBodyMatch = -1;
+        int firstBodyLength = 0;
+
+        if (offsets != null && !offsets.isEmpty()) {
+            String[] parts = offsets.split(" ");
+            for (int i = 0; i + 3 < parts.length && matches.length() < MAX_MATCHES; i += 4) {
+                int column = Integer.parseInt(parts[i]);
+                int byteStart = Integer.parseInt(parts[i + 2]);
+                int byteLength = Integer.parseInt(parts[i + 3]);
+                String value = text[column] != null ? text[column] : "";
+                int start = utf16Index(value, byteStart);
+                int end = utf16Index(value, byteStart + byteLength);
+
+                JSObject match = new JSObject();
+                match.put("field", COLUMNS[column]);
+                match.put("start", column == 2 ? bodyOffset + start : start);
+                match.put("length", end - start);
+                matches.put(match);
+
+                if (column == 2 && firstBodyMatch < 0) {
+                    firstBodyMatch = start;
+                    firstBodyLength = end - start;
+                }
+            }
+        }
+
+        JSObject result = new JSObject();
+        result.put("path", path);
+        result.put("title", text[0] != null ? text[0] : "");
+        result.put("matches", matches);
+        if (firstBodyMatch >= 0) {
+            String body = text[2];
+            int from = Math.max(0, firstBodyMatch - SNIPPET_BEFORE);
+            int to = Math.min(body.length(), firstBodyMatch + firstBodyLength + SNIPPET_AFTER);
+            result.put("snippet", body.substring(from, to).replace('\n', ' ').trim());
+        }
+        return result;
+    }
+
+    /**
+     * BM25 over the 'pcnalx' matchinfo blob, summed across weighted columns.
+     */
+    private static double bm25(byte[] blob) {
+        ByteBuffer info = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0);
+        int columns = info.getInt(4);
+        long rows = info.getInt(8) & 0xFFFFFFFFL;
+        int avgBase = 3;
+        int lenBase = avgBase + columns;
+        int hitBase = lenBase + columns;
+
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns && c < WEIGHTS.length; c++) {
+                int x = hitBase + 3 * (c + p * columns);
+                long hits = info.getInt(x * 4) & 0xFFFFFFFFL;
+                if (hits == 0) continue;
+                long docsWithHit = info.getInt((x + 2) * 4) & 0xFFFFFFFFL;
+                double avg = Math.max(1, info.getInt((avgBase + c) * 4));
+                double length = info.getInt((lenBase + c) * 4);
+
+                double idf = Math.log((rows - docsWithHit + 0.5) / (docsWithHit + 0.5));
+                if (idf < 1e-6) idf = 1e-6;
+                score += WEIGHTS[c] * idf * (hits * (K1 + 1)) / (hits + K1 * (1 - B + B * length / avg));
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Every letter/digit run of the query as a prefix term, all required.
+     * Anything else (quotes, operators) is treated as a separator.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) return null;
+        StringBuilder match = new StringBuilder();
+        int terms = 0;
+        int i = 0;
+        while (i < query.length() && terms < MAX_TERMS) {
+            while (i < query.length() && !Character.isLetterOrDigit(query.charAt(i))) i++;
+            int start = i;
+            while (i < query.length() && Character.isLetterOrDigit(query.charAt(i))) i++;
+            if (i > start) {
+                if (terms > 0) match.append(' ');
+                match.append(query.substring(start, i).toLowerCase()).append('*');
+                terms++;
+            }
+        }
+        return terms > 0 ? match.toString() : null;
+    }
+
+    /**
+     * UTF-16 index of the character starting at byteOffset in the UTF-8 encoding of text.
+     */
+    static int utf16Index(String text, int byteOffset) {
+        int bytes = 0;
+        int i = 0;
+        while (i < text.length() && bytes < byteOffset) {
+            int cp = text.codePointAt(i);
+            bytes += cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            i += Character.charCount(cp);
+        }
+        return i;
+    }
+
+    /**
+     * Where the body starts: after a closing "---" line when the content opens
+     * with frontmatter, otherwise 0.
+     */
+    static int bodyOffset(String content) {
+        if (!content.startsWith("---")) return 0;
+        int firstLineEnd = content.indexOf('\n');
+        if (firstLineEnd < 0 || !content.substring(0, firstLineEnd).trim().equals("---")) return 0;
+
+        int lineStart = firstLineEnd + 1;
+        while (lineStart < content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            int end = lineEnd < 0 ? content.length() : lineEnd;
+            if (content.substring(lineStart, end).trim().equals("---")) {
+                return lineEnd < 0 ? content.length() : lineEnd + 1;
+            }
+            if (lineEnd < 0) break;
+            lineStart = lineEnd + 1;
+        }
+        return 0;
+    }
+
+    private static String joinTags(Object tags) {
+        if (!(tags instanceof JSONArray)) return "";
+        JSONArray array = (JSONArray) tags;
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < array.length(); i++) {
+            String tag = array.optString(i, "");
+            if (tag.isEmpty()) continue;
+            if (joined.length() > 0) joined.append(' ');
+            joined.append(tag);
+        }
+        return joined.toString();
+    }
+}
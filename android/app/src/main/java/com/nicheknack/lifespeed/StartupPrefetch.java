@@ -0,0 +1,92 @@
+package com.nicheknack.lifespeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage work started from MainActivity.onCreate, parked for the renderer.
+ *
+ * The journal root last listed by the renderer is remembered across launches.
+ * On the next start its listing and the most recent entry are fetched while
+ * the WebView is still booting, and the first plugin call asking for the same
+ * thing takes the result instead of starting over. Results are handed out
+ * once and expire after a few seconds; after that the normal paths apply.
+ */
+final class StartupPrefetch {
+    private static final String TAG = "StartupPrefetch";
+    private static final String PREFS = "lifespeed_native";
+    private static final String KEY_ROOT = "journalRoot";
+    private static final long TTL_MS = 15_000;
+    private static final long WAIT_MS = 5_000;
+
+    private static final class Parked {
+        final FutureTask<?> task;
+        final long expiresAt;
+
+        Parked(FutureTask<?> task) {
+            this.task = task;
+            this.expiresAt = SystemClock.elapsedRealtime() + TTL_MS;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Map<String, Parked> parked = new HashMap<>();
+
+    StartupPrefetch(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /** Journal root (SAF tree URI or internal path) the renderer last listed, or null. */
+    String rememberedRoot() {
+        return prefs.getString(KEY_ROOT, null);
+    }
+
+    void rememberRoot(String root) {
+        if (root != null && !root.equals(rememberedRoot())) {
+            prefs.edit().putString(KEY_ROOT, root).apply();
+        }
+    }
+
+    /**
+     * Start work for key and park it until taken. The returned task is not
+     * run here: the caller submits it where that work belongs.
+     */
+    synchronized <T> FutureTask<T> park(String key, Callable<T> work) {
+        FutureTask<T> task = new FutureTask<>(work);
+        parked.put(key, new Parked(task));
+        return task;
+    }
+
+    /**
+     * Parked result for key, waiting for it if still running. Null when nothing
+     * is parked, it expired or failed, or (with wait false) it isn't done yet.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T take(String key, boolean wait) {
+        Parked entry;
+        synchronized (this) {
+            entry = parked.remove(key);
+        }
+        if (entry == null || SystemClock.elapsedRealtime() > entry.expiresAt) return null;
+        if (!wait && !entry.task.isDone()) return null;
+        try {
+            return (T) entry.task.get(WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Prefetch for " + key + " unusable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Drop whatever is parked for key (its source was just written). */
+    synchronized void discard(String key) {
+        parked.remove(key);
+    }
+}
@@ -0,0 +1,105 @@
+package com.nicheknack.lifespeed;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native marks on the way from launch to a typeable editor.
+ *
+ * Each mark is kept only the first time it is hit, in elapsedRealtime, and
+ * reported in milliseconds since process start (API 24+) or, before that,
+ * since the activity was created. Process-wide, because the earliest marks
+ * happen before the plugin exists.
+ */
+final class StartupTimeline {
+    static final String ACTIVITY_CREATE = "activityCreate";
+    static final String BRIDGE_READY = "bridgeReady";
+    static final String PAGE_STARTED = "pageStarted";
+    static final String PAGE_LOADED = "pageLoaded";
+    static final String FIRST_PLUGIN_CALL = "firstPluginCall";
+    static final String FIRST_LISTING = "firstListing";
+    static final String RENDERER_READY = "rendererReady";
+
+    private static final class Mark {
+        final String name;
+        final long at;
+        final String detail;
+
+        Mark(String name, long at, String detail) {
+            this.name = name;
+            this.at = at;
+            this.detail = detail;
+        }
+    }
+
+    private static final List<Mark> marks = new ArrayList<>();
+    private static long origin = -1;
+
+    private StartupTimeline() {
+    }
+
+    static void mark(String name) {
+        mark(name, null);
+    }
+
+    /**
+     * Record name now, unless it was already recorded.
+     */
+    static synchronized void mark(String name, String detail) {
+        for (Mark mark : marks) {
+            if (mark.name.equals(name)) return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (origin < 0) {
+            origin = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? Process.getStartElapsedRealtime() : now;
+        }
+        marks.add(new Mark(name, now, detail));
+    }
+
+    /** Whether name has been recorded. */
+    static synchronized boolean has(String name) {
+        for (Mark mark : marks) {
+            if (mark.name.equals(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * [{name, atMs, detail?}] in the order the marks were hit.
+     */
+    static synchronized JSArray toJSArray() {
+        JSArray result = new JSArray();
+        for (Mark mark : marks) {
+            JSObject item = new JSObject();
+            item.put("name", mark.name);
+            item.put("atMs", mark.at - origin);
+            if (mark.detail != null) item.put("detail", mark.detail);
+            result.put(item);
+        }
+        return result;
+    }
+
+    /** Where the times are measured from: "processStart" or "activityCreate". */
+    static String originName() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? "processStart" : ACTIVITY_CREATE;
+    }
+
+    /**
+     * One line for the log stream, e.g. "activityCreate=212ms bridgeReady=340ms ...".
+     */
+    static synchronized String summary() {
+        StringBuilder line = new StringBuilder();
+        for (Mark mark : marks) {
+            if (line.length() > 0) line.append(' ');
+            line.append(mark.name).append('=').append(mark.at - origin).append("ms");
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package com.nicheknack.lifespeed;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Downscaled copies of entry images, kept in a size-bounded LRU on disk.
+ *
+ * Thumbnail names hash the source location, its mtime and size, and the
+ * requested width, so an edited image simply misses and its stale thumbnail
+ * ages out of the LRU. Files live in cacheDir/thumbnails and are served to the
+ * WebView by AttachmentServer under {@link #PATH_PREFIX}.
+ */
+final class ThumbnailCache {
+    private static final String TAG = "ThumbnailCache";
+
+    static final String PATH_PREFIX = "/_thumbnails/";
+
+    static final int MIN_WIDTH = 32;
+    static final int MAX_WIDTH = 2048;
+    private static final long MAX_BYTES = 48L * 1024 * 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    private static volatile ThumbnailCache instance;
+
+    static ThumbnailCache get(Context context) {
+        ThumbnailCache local = instance;
+        if (local == null) {
+            synchronized (ThumbnailCache.class) {
+                local = instance;
+                if (local == null) {
+                    local = new ThumbnailCache(context.getApplicationContext());
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * A thumbnail ready to serve, or the original when downscaling would not help.
+     */
+    static final class Result {
+        final String name;
+        final int width;
+        final int height;
+        final boolean cached;
+
+        Result(String name, int width, int height, boolean cached) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.cached = cached;
+        }
+
+        /** True when the source is already small enough (or not decodable) and should be served as is. */
+        boolean useOriginal() {
+            return name == null;
+        }
+    }
+
+    private final File dir;
+    // Access-ordered: iteration starts at the least recently used thumbnail
+    private final LinkedHashMap<String, File> files = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private ThumbnailCache(Context context) {
+        this.dir = new File(context.getCacheDir(), "thumbnails");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+        loadExisting();
+    }
+
+    /**
+     * Rebuild the LRU order from file timestamps (touched on every hit).
+     */
+    private void loadExisting() {
+        File[] existing = dir.listFiles();
+        if (existing == null) return;
+        Arrays.sort(existing, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : existing) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            files.put(file.getName(), file);
+            totalBytes += file.length();
+        }
+        trim();
+    }
+
+    /**
+     * Find a cached thumbnail by name and mark it as recently used.
+     */
+    File lookup(String name) {
+        if (!isValidName(name)) return null;
+        File file;
+        synchronized (this) {
+            file = files.get(name);
+        }
+        if (file == null) return null;
+        if (!file.isFile()) {
+            forget(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Return the thumbnail for an attachment, decoding and caching it on a miss.
+     * Blocking: call from a background thread.
+     */
+    Result load(AttachmentServer server, AttachmentServer.Attachment source, String sourceKey,
+                String relativePath, int maxWidth) throws IOException {
+        String lower = relativePath.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gif") || lower.endsWith(".svg")) {
+            // Keep animation / vector sharpness
+            return new Result(null, 0, 0, false);
+        }
+
+        String name = nameFor(sourceKey, source, relativePath, maxWidth);
+        if (lookup(name) != null) {
+            return new Result(name, 0, 0, true);
+        }
+
+        // Bounds pass: no pixel memory allocated
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = server.openStream(source)) {
+            if (in == null) return new Result(null, 0, 0, false);
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0 || bounds.outWidth <= maxWidth) {
+            return new Result(null, bounds.outWidth, bounds.outHeight, false);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(bounds.outWidth, maxWidth);
+        if (name.endsWith(".jpg")) {
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+        }
+        Bitmap decoded;
+        try (InputStream in = server.openStream(source)) {
+            decoded = in != null ? BitmapFactory.decodeStream(in, null, options) : null;
+        }
+        if (decoded == null) return new Result(null, bounds.outWidth, bounds.outHeight, false);
+
+        Bitmap scaled = decoded;
+        if (decoded.getWidth() > maxWidth) {
+            int height = Math.max(1, Math.round(decoded.getHeight() * (maxWidth / (float) decoded.getWidth())));
+            scaled = Bitmap.createScaledBitmap(decoded, maxWidth, height, true);
+        }
+        int width = scaled.getWidth();
+        int height = scaled.getHeight();
+        try {
+            store(name, scaled);
+        } finally {
+            if (scaled != decoded) scaled.recycle();
+            decoded.recycle();
+        }
+        return new Result(name, width, height, false);
+    }
+
+    /**
+     * Largest power-of-two subsample that still leaves at least maxWidth pixels.
+     */
+    static int sampleSizeFor(int sourceWidth, int maxWidth) {
+        int sample = 1;
+        while (sourceWidth / (sample * 2) >= maxWidth) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private void store(String name, Bitmap bitmap) throws IOException {
+        File tmp = new File(dir, name + "." + Thread.currentThread().getId() + ".tmp");
+        Bitmap.CompressFormat format = name.endsWith(".png") ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!bitmap.compress(format, JPEG_QUALITY, out)) {
+                throw new IOException("Could not encode thumbnail");
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        File target = new File(dir, name);
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Could not store thumbnail " + name);
+        }
+        synchronized (this) {
+            File previous = files.put(name, target);
+            if (previous != null) totalBytes -= previous.length();
+            totalBytes += target.length();
+            trim();
+        }
+    }
+
+    private synchronized void forget(String name) {
+        File removed = files.remove(name);
+        if (removed != null) totalBytes -= removed.length();
+    }
+
+    private synchronized void trim() {
+        Iterator<Map.Entry<String, File>> it = files.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && it.hasNext()) {
+            File eldest = it.next().getValue();
+            totalBytes -= eldest.length();
+            eldest.delete();
+            it.remove();
+        }
+        if (files.isEmpty()) totalBytes = 0;
+    }
+
+    private static String nameFor(String sourceKey, AttachmentServer.Attachment source,
+                                  String relativePath, int maxWidth) {
+        String key = sourceKey + "\n" + relativePath + "\n" + source.lastModified + "\n" + source.size + "\n" + maxWidth;
+        String lower = relativePath.toLowerCase(Locale.ROOT);
+        // JPEG sources stay JPEG; anything that may carry alpha becomes PNG
+        String extension = lower.endsWith(".jpg") || lower.endsWith(".jpeg") ? ".jpg" : ".png";
+        return sha1Hex(key) + extension;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || !(name.endsWith(".jpg") || name.endsWith(".png")) || name.length() != 44) return false;
+        for (int i = 0; i < 40; i++) {
+            char c = name.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) return false;
+        }
+        return true;
+    }
+
+    private static String sha1Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
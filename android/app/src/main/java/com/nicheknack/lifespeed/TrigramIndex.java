@@ -0,0 +1,261 @@
+package com.nicheknack.lifespeed;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory trigram index over entry titles, dirnames and tags for the finder.
+ *
+ * Each entry is a slot; its text is lower-cased, split into words and every
+ * word padded pg_trgm style ("  word ") before cutting trigrams. Postings are
+ * growable int arrays of slots. Updating an entry retires its slot and takes a
+ * new one; retired slots are skipped at query time and dropped by compaction
+ * once they outnumber live ones.
+ *
+ * A query only touches the postings of its own trigrams, so its cost follows
+ * how common those trigrams are rather than how many entries exist.
+ *
+ * Fed by the listings (dirname), metadata extraction and writes (title, tags).
+ * All methods synchronize on the index.
+ */
+final class TrigramIndex {
+    private static final int MIN_COMPACT = 1024;
+    private static final double MIN_COVERAGE = 0.5;
+
+    private static final class Doc {
+        final String docKey;
+        final String path;
+        final String dirname;
+        final String title;
+        final String tags;
+        final int grams;
+
+        Doc(String docKey, String path, String dirname, String title, String tags, int grams) {
+            this.docKey = docKey;
+            this.path = path;
+            this.dirname = dirname;
+            this.title = title;
+            this.tags = tags;
+            this.grams = grams;
+        }
+    }
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int retired;
+    private int[] counts = new int[0];
+
+    /**
+     * Add or update an entry. Null fields keep their current value.
+     */
+    synchronized void put(String docKey, String path, String dirname, String title, JSONArray tags) {
+        if (docKey == null) return;
+
+        Integer current = slotByKey.get(docKey);
+        Doc old = current != null ? docs.get(current) : null;
+        String newPath = path != null ? path : old != null ? old.path : docKey;
+        String newDirname = dirname != null ? dirname : old != null ? old.dirname : MetadataIndex.dirnameOf(docKey);
+        String newTitle = title != null ? title : old != null ? old.title : "";
+        String newTags = tags != null ? joinTags(tags) : old != null ? old.tags : "";
+
+        if (old != null && old.path.equals(newPath) && old.dirname.equals(newDirname)
+                && old.title.equals(newTitle) && old.tags.equals(newTags)) {
+            return;
+        }
+        if (current != null) retire(current);
+
+        Set<Long> grams = trigrams(newTitle + " " + newDirname.replace('-', ' ') + " " + newTags, false);
+        int slot = docs.size();
+        docs.add(new Doc(docKey, newPath, newDirname, newTitle, newTags, grams.size()));
+        slotByKey.put(docKey, slot);
+        for (Long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(slot);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Drop an entry and everything keyed beneath it.
+     */
+    synchronized void removeTree(String docKey) {
+        if (docKey == null) return;
+        String prefix = docKey + "/";
+        for (String key : new ArrayList<>(slotByKey.keySet())) {
+            if (key.equals(docKey) || key.startsWith(prefix)) {
+                retire(slotByKey.remove(key));
+            }
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Best matches for query: [{path, dirname, title, score}], best first.
+     * scopeKey, when not null, keeps only entries whose docKey starts with it.
+     */
+    synchronized JSArray find(String query, int limit, String scopeKey) {
+        JSArray results = new JSArray();
+        if (query == null || limit <= 0) return results;
+
+        // The last word may still be typed: no trailing-boundary trigram for it
+        Set<Long> grams = trigrams(query, true);
+        if (grams.isEmpty()) return results;
+
+        if (counts.length < docs.size()) counts = new int[docs.size()];
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (Long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) continue;
+            for (int i = 0; i < list.size; i++) {
+                int slot = list.slots[i];
+                if (counts[slot]++ == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = slot;
+                }
+            }
+        }
+
+        String needle = query.trim().toLowerCase();
+        int minCommon = Math.max(1, (int) Math.ceil(grams.size() * MIN_COVERAGE));
+        List<Object[]> scored = new ArrayList<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            int common = counts[slot];
+            counts[slot] = 0;
+            Doc doc = docs.get(slot);
+            if (doc == null || common < minCommon) continue;
+            if (scopeKey != null && !doc.docKey.startsWith(scopeKey)) continue;
+
+            double score = (double) common / grams.size();
+            // Prefer tight matches over long titles that merely contain the trigrams
+            score -= 0.002 * Math.min(200, doc.grams - common);
+            if (!needle.isEmpty()) {
+                String title = doc.title.toLowerCase();
+                if (title.startsWith(needle)) score += 0.5;
+                else if (title.contains(needle)) score += 0.3;
+                else if (doc.dirname.toLowerCase().contains(needle.replace(' ', '-'))) score += 0.2;
+            }
+            scored.add(new Object[]{score, doc});
+        }
+
+        Collections.sort(scored, (a, b) -> Double.compare((Double) b[0], (Double) a[0]));
+        for (int i = 0; i < scored.size() && i < limit; i++) {
+            Doc doc = (Doc) scored.get(i)[1];
+            JSObject result = new JSObject();
+            result.put("path", doc.path);
+            result.put("dirname", doc.dirname);
+            result.put("title", doc.title);
+            result.put("score", scored.get(i)[0]);
+            results.put(result);
+        }
+        return results;
+    }
+
+    /**
+     * Entries indexed, or only those whose docKey starts with scopeKey when not null.
+     */
+    synchronized int size(String scopeKey) {
+        if (scopeKey == null) return slotByKey.size();
+        int count = 0;
+        for (String key : slotByKey.keySet()) {
+            if (key.startsWith(scopeKey)) count++;
+        }
+        return count;
+    }
+
+    private void retire(int slot) {
+        docs.set(slot, null);
+        retired++;
+    }
+
+    /**
+     * Rebuild slots and postings from live entries once retired slots dominate.
+     */
+    private void compactIfNeeded() {
+        if (retired < MIN_COMPACT || retired < slotByKey.size()) return;
+
+        List<Doc> live = new ArrayList<>(slotByKey.size());
+        for (Doc doc : docs) {
+            if (doc != null) live.add(doc);
+        }
+        docs.clear();
+        slotByKey.clear();
+        postings.clear();
+        retired = 0;
+        counts = new int[0];
+
+        for (Doc doc : live) {
+            int slot = docs.size();
+            docs.add(doc);
+            slotByKey.put(doc.docKey, slot);
+            for (Long gram : trigrams(doc.title + " " + doc.dirname.replace('-', ' ') + " " + doc.tags, false)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(gram, list);
+                }
+                list.add(slot);
+            }
+        }
+    }
+
+    /**
+     * Distinct trigrams of text, each packed into a long (three UTF-16 units).
+     */
+    static Set<Long> trigrams(String text, boolean openEnded) {
+        Set<Long> grams = new LinkedHashSet<>();
+        String lower = text.toLowerCase();
+        int i = 0;
+        while (i < lower.length()) {
+            while (i < lower.length() && !Character.isLetterOrDigit(lower.charAt(i))) i++;
+            int start = i;
+            while (i < lower.length() && Character.isLetterOrDigit(lower.charAt(i))) i++;
+            if (i == start) break;
+
+            boolean last = openEnded && i >= lower.length();
+            String padded = "  " + lower.substring(start, i) + (last ? "" : " ");
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                grams.add(((long) padded.charAt(j) << 32) | ((long) padded.charAt(j + 1) << 16) | padded.charAt(j + 2));
+            }
+        }
+        return grams;
+    }
+
+    private static String joinTags(JSONArray tags) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < tags.length(); i++) {
+            String tag = tags.optString(i, "");
+            if (tag.isEmpty()) continue;
+            if (joined.length() > 0) joined.append(' ');
+            joined.append(tag);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.nicheknack.lifespeed;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persisted state of chunked attachment uploads.
+ *
+ * Each session is a small JSON file in cacheDir/uploads recording the target
+ * document and how many bytes have been written, so an upload can resume
+ * (from getUploadStatus's offset) after a WebView reload or process restart.
+ * Callers serialize access per entry through the entry's I/O lane.
+ */
+final class UploadSessions {
+    private static final String TAG = "UploadSessions";
+    private static final long MAX_AGE_MS = 24L * 60 * 60 * 1000;
+
+    static final class Session {
+        final String id;
+        final String entryUri;
+        final String folder;
+        final String filename;
+        final String target;
+        long offset;
+        long updatedAt;
+
+        Session(String id, String entryUri, String folder, String filename, String target) {
+            this.id = id;
+            this.entryUri = entryUri;
+            this.folder = folder;
+            this.filename = filename;
+            this.target = target;
+        }
+
+        String relativePath() {
+            return folder + "/" + filename;
+        }
+
+        boolean isInternal() {
+            return target.startsWith("/");
+        }
+    }
+
+    private final File dir;
+
+    UploadSessions(Context context) {
+        this.dir = new File(context.getCacheDir(), "uploads");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+    }
+
+    Session create(String entryUri, String folder, String filename, String target) throws IOException {
+        Session session = new Session(UUID.randomUUID().toString(), entryUri, folder, filename, target);
+        save(session);
+        return session;
+    }
+
+    /**
+     * @return the session, or null if it is unknown, finished or expired
+     */
+    Session get(String id) {
+        if (id == null || !isValidId(id)) return null;
+        File file = fileFor(id);
+        if (!file.isFile()) return null;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject json = new JSONObject(new String(data, 0, read, StandardCharsets.UTF_8));
+            Session session = new Session(id, json.getString("entryUri"), json.getString("folder"),
+                    json.getString("filename"), json.getString("target"));
+            session.offset = json.getLong("offset");
+            session.updatedAt = json.optLong("updatedAt", 0);
+            return session;
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Dropping unreadable upload session " + id + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    List<Session> list() {
+        List<Session> sessions = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return sessions;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(".json")) continue;
+            Session session = get(name.substring(0, name.length() - 5));
+            if (session != null) sessions.add(session);
+        }
+        return sessions;
+    }
+
+    /**
+     * Write the session through a temp file so a crash never leaves it torn.
+     */
+    void save(Session session) throws IOException {
+        session.updatedAt = System.currentTimeMillis();
+        JSONObject json = new JSONObject();
+        try {
+            json.put("entryUri", session.entryUri);
+            json.put("folder", session.folder);
+            json.put("filename", session.filename);
+            json.put("target", session.target);
+            json.put("offset", session.offset);
+            json.put("updatedAt", session.updatedAt);
+        } catch (JSONException e) {
+            throw new IOException("Could not encode upload session", e);
+        }
+
+        File tmp = new File(dir, session.id + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(fileFor(session.id))) {
+            tmp.delete();
+            throw new IOException("Could not store upload session " + session.id);
+        }
+    }
+
+    void remove(String id) {
+        fileFor(id).delete();
+    }
+
+    /**
+     * Forget sessions nobody resumed within a day. Their partial targets are left
+     * in place: the user may already reference them.
+     */
+    void purgeStale() {
+        long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.lastModified() < cutoff) file.delete();
+        }
+    }
+
+    private File fileFor(String id) {
+        return new File(dir, id + ".json");
+    }
+
+    private static boolean isValidId(String id) {
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || c == '-')) return false;
+        }
+        return !id.isEmpty();
+    }
+}
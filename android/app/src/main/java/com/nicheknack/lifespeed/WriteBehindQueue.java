@@ -0,0 +1,155 @@
+package com.nicheknack.lifespeed;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Native write-behind buffer for autosaves.
+ *
+ * Only the latest content per URI is kept. The first queued write arms a
+ * timer; everything queued before it fires collapses into one physical write,
+ * run on the URI's I/O lane so it stays ordered with reads, explicit writes and
+ * deletes of the same entry. Readers consult {@link #pending} first, so a read
+ * never sees content older than what was queued.
+ *
+ * A failed write keeps its content pending and re-arms the timer, backing off
+ * from RETRY_BASE_MS up to RETRY_MAX_MS until a write succeeds or the content
+ * is discarded.
+ */
+final class WriteBehindQueue {
+    private static final String TAG = "WriteBehindQueue";
+    private static final long RETRY_BASE_MS = 2000;
+    private static final long RETRY_MAX_MS = 60000;
+
+    /** Performs the physical write; called on the URI's lane. */
+    interface Writer {
+        void write(String uri, String content) throws Exception;
+    }
+
+    /** Reports the outcome of a background flush; retryMs is 0 unless a failed write was re-armed. */
+    interface Listener {
+        void onFlushed(String uri, Exception error, long retryMs);
+    }
+
+    private final Writer writer;
+    private final Listener listener;
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> armed = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+
+    WriteBehindQueue(Writer writer, Listener listener) {
+        this.writer = writer;
+        this.listener = listener;
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "lifespeed-writebehind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Replace the pending content for uri and make sure a flush is scheduled.
+     */
+    void enqueue(String uri, String content, long delayMs) {
+        pending.put(uri, content);
+        arm(uri, delayMs);
+    }
+
+    private void arm(String uri, long delayMs) {
+        if (armed.put(uri, Boolean.TRUE) == null) {
+            timer.schedule(() -> flush(uri, null), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Latest content queued for uri and not yet written, or null. */
+    String pending(String uri) {
+        return pending.get(uri);
+    }
+
+    /**
+     * Drop pending content for uri (superseded by an explicit write).
+     */
+    void discard(String uri) {
+        pending.remove(uri);
+        failures.remove(uri);
+    }
+
+    /**
+     * Drop pending content of every URI on the given lane (entry deleted).
+     */
+    void discardLane(String laneKey) {
+        for (String uri : new ArrayList<>(pending.keySet())) {
+            if (laneKey.equals(IoScheduler.laneKey(uri))) {
+                pending.remove(uri);
+                failures.remove(uri);
+            }
+        }
+    }
+
+    /**
+     * Write uri's pending content now (on its lane); done runs afterwards either way.
+     */
+    void flush(String uri, Runnable done) {
+        IoScheduler.get().executeInLane(IoScheduler.laneKey(uri), () -> {
+            // Disarm first: anything queued while we write schedules its own flush
+            armed.remove(uri);
+            String content = pending.get(uri);
+            Exception error = null;
+            long retryMs = 0;
+            if (content != null) {
+                try {
+                    writer.write(uri, content);
+                    // Keep newer content that arrived during the write
+                    pending.remove(uri, content);
+                    failures.remove(uri);
+                } catch (Exception e) {
+                    error = e;
+                    // Content stays pending; try again later unless it was discarded meanwhile
+                    Integer failed = failures.get(uri);
+                    int attempt = failed != null ? failed + 1 : 1;
+                    failures.put(uri, attempt);
+                    retryMs = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(attempt - 1, 5));
+                    Log.e(TAG, "Write-behind flush failed for " + uri + " (attempt " + attempt
+                            + ", retrying in " + retryMs + " ms): " + e.getMessage());
+                    if (pending.containsKey(uri)) arm(uri, retryMs);
+                }
+                listener.onFlushed(uri, error, retryMs);
+            }
+            if (done != null) done.run();
+        });
+    }
+
+    /**
+     * Flush every pending URI; done runs once all of them have been written.
+     */
+    void flushAll(Runnable done) {
+        List<String> uris = new ArrayList<>(pending.keySet());
+        if (uris.isEmpty()) {
+            if (done != null) done.run();
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(uris.size());
+        Runnable countDown = () -> {
+            if (remaining.decrementAndGet() == 0 && done != null) done.run();
+        };
+        for (String uri : uris) {
+            flush(uri, countDown);
+        }
+    }
+
+    int size() {
+        return pending.size();
+    }
+}
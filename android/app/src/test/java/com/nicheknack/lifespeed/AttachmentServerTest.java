@@ -0,0 +1,139 @@
+package com.nicheknack.lifespeed;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Attachment URLs as the WebView requests them, served from the internal journal.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AttachmentServerTest {
+    private static final String LOCAL_URL = "https://localhost";
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 1, 2, 3};
+
+    private AttachmentServer server;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = RuntimeEnvironment.getApplication();
+        File entry = new File(context.getFilesDir(), "journal/2026-01-09-hello").getCanonicalFile();
+        File images = new File(entry, "images");
+        if (!images.isDirectory() && !images.mkdirs()) throw new IOException("Cannot create " + images);
+        try (FileOutputStream out = new FileOutputStream(new File(images, "pic.png"))) {
+            out.write(IMAGE);
+        }
+
+        server = new AttachmentServer(context);
+        url = AttachmentServer.buildUrl(LOCAL_URL, entry.getPath(), "images/pic.png");
+    }
+
+    @Test
+    public void servesAttachment() throws Exception {
+        WebResourceResponse response = server.handle(new Request(url, new HashMap<String, String>()));
+
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCode());
+        assertArrayEquals(IMAGE, read(response.getData()));
+    }
+
+    @Test
+    public void revalidationGetsFullResponse() throws Exception {
+        WebResourceResponse first = server.handle(new Request(url, new HashMap<String, String>()));
+        String etag = first.getResponseHeaders().get("ETag");
+        assertNotNull(etag);
+
+        // WebResourceResponse cannot carry a 304, so a matching validator still gets the bytes
+        Map<String, String> headers = new HashMap<>();
+        headers.put("If-None-Match", etag);
+        WebResourceResponse response = server.handle(new Request(url, headers));
+
+        assertEquals(200, response.getStatusCode());
+        assertArrayEquals(IMAGE, read(response.getData()));
+    }
+
+    @Test
+    public void traversalIsRejected() throws Exception {
+        String outside = LOCAL_URL + AttachmentServer.PATH_PREFIX
+                + Uri.encode(RuntimeEnvironment.getApplication().getFilesDir().getPath()) + "/images/..";
+        WebResourceResponse response = server.handle(new Request(outside, new HashMap<String, String>()));
+
+        assertEquals(404, response.getStatusCode());
+    }
+
+    /**
+     * A GET as the WebView hands it to shouldInterceptRequest.
+     */
+    private static final class Request implements WebResourceRequest {
+        private final Uri url;
+        private final Map<String, String> headers;
+
+        Request(String url, Map<String, String> headers) {
+            this.url = Uri.parse(url);
+            this.headers = headers;
+        }
+
+        @Override
+        public Uri getUrl() {
+            return url;
+        }
+
+        @Override
+        public boolean isForMainFrame() {
+            return false;
+        }
+
+        @Override
+        public boolean isRedirect() {
+            return false;
+        }
+
+        @Override
+        public boolean hasGesture() {
+            return false;
+        }
+
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public Map<String, String> getRequestHeaders() {
+            return headers;
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        assertNotNull("response has no body", in);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) out.write(buffer, 0, n);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.nicheknack.lifespeed;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+import android.provider.DocumentsContract.Root;
+import android.provider.DocumentsProvider;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only DocumentsProvider serving a journal tree, for running the
+ * plugin's SAF paths under Robolectric.
+ *
+ * A journal is a root directory of entry directories, each holding an
+ * index.md. Every query (document, children, roots) costs queryLatencyNanos;
+ * opening a document costs one query plus nanosPerByte for each of its bytes,
+ * the way providers that fetch a document before handing out a descriptor
+ * behave. Queries (opens included), opens, bytes served and the most opens
+ * in flight at once are counted.
+ *
+ * With listingMimeTypes off, children listings report no MIME types (some
+ * OEM providers only fill them in on document queries), which sends the
+ * plugin down its DocumentFile fallback.
+ */
+public class FakeDocumentsProvider extends DocumentsProvider {
+    static final String AUTHORITY = "com.nicheknack.lifespeed.test.documents";
+
+    private static final String[] DEFAULT_PROJECTION = {
+        Document.COLUMN_DOCUMENT_ID,
+        Document.COLUMN_DISPLAY_NAME,
+        Document.COLUMN_MIME_TYPE,
+        Document.COLUMN_LAST_MODIFIED,
+        Document.COLUMN_SIZE,
+        Document.COLUMN_FLAGS
+    };
+    private static final String[] ROOT_PROJECTION = {
+        Root.COLUMN_ROOT_ID,
+        Root.COLUMN_DOCUMENT_ID,
+        Root.COLUMN_TITLE,
+        Root.COLUMN_FLAGS
+    };
+
+    private static final class Node {
+        final String docId;
+        final String name;
+        final String mimeType;
+        final long lastModified;
+        final File file;
+        final List<String> children = new ArrayList<>();
+
+        Node(String docId, String name, String mimeType, long lastModified, File file) {
+            this.docId = docId;
+            this.name = name;
+            this.mimeType = mimeType;
+            this.lastModified = lastModified;
+            this.file = file;
+        }
+    }
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final List<String> roots = new ArrayList<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger opens = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger opensInFlight = new AtomicInteger();
+    private final AtomicInteger maxConcurrentOpens = new AtomicInteger();
+    private volatile long lastActivity = System.nanoTime();
+    private volatile long queryLatencyNanos;
+    private volatile long nanosPerByte;
+    private volatile boolean listingMimeTypes = true;
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    /**
+     * Serve documents as a journal rooted at rootId: entry i is the directory
+     * SyntheticJournal.dirname(i) holding documents[i] as its index.md, last
+     * modified baseMtime + i seconds. Returns the journal's tree URI.
+     */
+    Uri serve(String rootId, List<byte[]> documents, long baseMtime) throws IOException {
+        File dir = new File(getContext().getCacheDir(), "fake-documents/" + rootId);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        Node root = new Node(rootId, rootId, Document.MIME_TYPE_DIR, baseMtime, null);
+        for (int i = 0; i < documents.size(); i++) {
+            String dirname = SyntheticJournal.dirname(i);
+            long mtime = baseMtime + i * 1000L;
+
+            File file = new File(dir, dirname + ".md");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(documents.get(i));
+            }
+
+            Node entry = new Node(rootId + "/" + dirname, dirname, Document.MIME_TYPE_DIR, mtime, null);
+            Node index = new Node(entry.docId + "/index.md", "index.md", "text/markdown", mtime, file);
+            entry.children.add(index.docId);
+            root.children.add(entry.docId);
+            nodes.put(entry.docId, entry);
+            nodes.put(index.docId, index);
+        }
+        nodes.put(rootId, root);
+        synchronized (roots) {
+            roots.add(rootId);
+        }
+        return DocumentsContract.buildTreeDocumentUri(AUTHORITY, rootId);
+    }
+
+    void setLatency(long queryLatencyNanos, long nanosPerByte) {
+        this.queryLatencyNanos = queryLatencyNanos;
+        this.nanosPerByte = nanosPerByte;
+    }
+
+    void setListingMimeTypes(boolean listingMimeTypes) {
+        this.listingMimeTypes = listingMimeTypes;
+    }
+
+    int queries() {
+        return queries.get();
+    }
+
+    int opens() {
+        return opens.get();
+    }
+
+    long bytesServed() {
+        return bytesServed.get();
+    }
+
+    int maxConcurrentOpens() {
+        return maxConcurrentOpens.get();
+    }
+
+    void resetCounters() {
+        queries.set(0);
+        opens.set(0);
+        bytesServed.set(0);
+        maxConcurrentOpens.set(0);
+    }
+
+    /**
+     * Wait until nothing has touched the provider for quietMillis, so
+     * background work a test started (search reindexing) does not outlive it.
+     * @return false if that did not happen within timeoutMillis
+     */
+    boolean awaitIdle(long quietMillis, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        while (System.nanoTime() < deadline) {
+            if (inFlight.get() == 0 && System.nanoTime() - lastActivity >= quietNanos) return true;
+            Thread.sleep(Math.max(1, quietMillis / 4));
+        }
+        return false;
+    }
+
+    @Override
+    public Cursor queryRoots(String[] projection) {
+        begin(queryLatencyNanos);
+        try {
+            MatrixCursor cursor = new MatrixCursor(projection != null ? projection : ROOT_PROJECTION);
+            synchronized (roots) {
+                for (String rootId : roots) {
+                    cursor.newRow()
+                            .add(Root.COLUMN_ROOT_ID, rootId)
+                            .add(Root.COLUMN_DOCUMENT_ID, rootId)
+                            .add(Root.COLUMN_TITLE, rootId)
+                            .add(Root.COLUMN_FLAGS, Root.FLAG_SUPPORTS_IS_CHILD);
+                }
+            }
+            return cursor;
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public Cursor queryDocument(String documentId, String[] projection) throws FileNotFoundException {
+        begin(queryLatencyNanos);
+        try {
+            MatrixCursor cursor = new MatrixCursor(projection != null ? projection : DEFAULT_PROJECTION);
+            addRow(cursor, node(documentId), true);
+            return cursor;
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public Cursor queryChildDocuments(String parentDocumentId, String[] projection, String sortOrder)
+            throws FileNotFoundException {
+        begin(queryLatencyNanos);
+        try {
+            MatrixCursor cursor = new MatrixCursor(projection != null ? projection : DEFAULT_PROJECTION);
+            for (String childId : node(parentDocumentId).children) {
+                addRow(cursor, node(childId), listingMimeTypes);
+            }
+            return cursor;
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public ParcelFileDescriptor openDocument(String documentId, String mode, CancellationSignal signal)
+            throws FileNotFoundException {
+        Node node = node(documentId);
+        if (node.file == null) throw new FileNotFoundException("Not a file: " + documentId);
+        if (!"r".equals(mode)) throw new FileNotFoundException("Read-only provider, mode " + mode);
+
+        long size = node.file.length();
+        int concurrent = opensInFlight.incrementAndGet();
+        int max;
+        while (concurrent > (max = maxConcurrentOpens.get()) && !maxConcurrentOpens.compareAndSet(max, concurrent)) {
+            // Lost a race with another open; re-read the maximum
+        }
+        begin(queryLatencyNanos + size * nanosPerByte);
+        try {
+            opens.incrementAndGet();
+            bytesServed.addAndGet(size);
+            return ParcelFileDescriptor.open(node.file, ParcelFileDescriptor.MODE_READ_ONLY);
+        } finally {
+            end();
+            opensInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isChildDocument(String parentDocumentId, String documentId) {
+        return documentId.startsWith(parentDocumentId + "/");
+    }
+
+    private Node node(String documentId) throws FileNotFoundException {
+        Node node = nodes.get(documentId);
+        if (node == null) throw new FileNotFoundException("No document " + documentId);
+        return node;
+    }
+
+    private static void addRow(MatrixCursor cursor, Node node, boolean withMimeType) {
+        cursor.newRow()
+                .add(Document.COLUMN_DOCUMENT_ID, node.docId)
+                .add(Document.COLUMN_DISPLAY_NAME, node.name)
+                .add(Document.COLUMN_MIME_TYPE, withMimeType ? node.mimeType : null)
+                .add(Document.COLUMN_LAST_MODIFIED, node.lastModified)
+                .add(Document.COLUMN_SIZE, node.file != null ? node.file.length() : null)
+                .add(Document.COLUMN_FLAGS, 0);
+    }
+
+    private void begin(long latencyNanos) {
+        inFlight.incrementAndGet();
+        queries.incrementAndGet();
+        if (latencyNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void end() {
+        lastActivity = System.nanoTime();
+        inFlight.decrementAndGet();
+    }
+}
@@ -0,0 +1,342 @@
+package com.nicheknack.lifespeed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.net.Uri;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plugin-level throughput and latency of the SAF paths (DocumentsContract
+ * listing, the DocumentFile fallback, batchGetMetadata) against a
+ * FakeDocumentsProvider serving a synthetic journal.
+ *
+ * Journal size and provider latency come from system properties, which the
+ * build forwards, e.g.
+ *   ./gradlew :app:testDebugUnitTest --tests '*SafThroughputTest' \
+ *       -Dlifespeed.throughput.entries=10000 -Dlifespeed.throughput.queryLatencyUs=500
+ *
+ * The default run only checks structure (query counts, concurrent opens).
+ * Wall-clock assertions depend on the machine and are opt-in with
+ * -Dlifespeed.throughput.timing=true; -Dlifespeed.throughput.report=true
+ * prints per-method throughput and stage latencies.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SafThroughputTest {
+    private static final int ENTRIES = Integer.getInteger("lifespeed.throughput.entries", 2000);
+    private static final long QUERY_LATENCY_US = Long.getLong("lifespeed.throughput.queryLatencyUs", 0);
+    private static final long BYTE_LATENCY_NS = Long.getLong("lifespeed.throughput.byteLatencyNs", 0);
+    private static final boolean TIMING = Boolean.getBoolean("lifespeed.throughput.timing");
+    private static final boolean REPORT = Boolean.getBoolean("lifespeed.throughput.report");
+
+    /** batchGetMetadata runs against a slow provider, where fanning out has to pay off. */
+    private static final int METADATA_ENTRIES = Math.min(ENTRIES, 400);
+    private static final long METADATA_QUERY_LATENCY_US = Math.max(QUERY_LATENCY_US, 5000);
+    private static final int MIN_CONCURRENT_OPENS = 4;
+    private static final double MIN_METADATA_SPEEDUP = 4.0;
+
+    private static final long CALL_TIMEOUT_SECONDS = 300;
+    private static final long BASE_MTIME = 1_500_000_000_000L;
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private FakeDocumentsProvider provider;
+    private TestPlugin plugin;
+    private List<byte[]> documents;
+
+    @Before
+    public void setUp() throws Exception {
+        ProviderInfo info = new ProviderInfo();
+        info.authority = FakeDocumentsProvider.AUTHORITY;
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.readPermission = Manifest.permission.MANAGE_DOCUMENTS;
+        info.writePermission = Manifest.permission.MANAGE_DOCUMENTS;
+        provider = Robolectric.buildContentProvider(FakeDocumentsProvider.class).create(info).get();
+        provider.setLatency(TimeUnit.MICROSECONDS.toNanos(QUERY_LATENCY_US), BYTE_LATENCY_NS);
+
+        plugin = new TestPlugin(RuntimeEnvironment.getApplication());
+        plugin.load();
+        invoke(plugin::setLogLevel, "setLogLevel", data("level", "warn"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Let search reindexing started by batchGetMetadata finish before the sandbox resets
+        assertTrue("provider still busy", provider.awaitIdle(200, TimeUnit.SECONDS.toMillis(CALL_TIMEOUT_SECONDS)));
+    }
+
+    @Test
+    public void listEntriesFastIsOneQueryAtAnySize() throws Exception {
+        Uri tree = serve(ENTRIES);
+
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::listEntriesFast, "listEntriesFast", data("uri", tree.toString()));
+        report("listEntriesFast", ENTRIES, start);
+
+        assertTrue(ret.getBoolean("success"));
+        assertEquals(ENTRIES, ret.getInt("count"));
+        assertEquals("no per-entry queries", 1, provider.queries());
+        assertEquals(0, provider.opens());
+    }
+
+    @Test
+    public void listEntriesExtractsEveryTitle() throws Exception {
+        Uri tree = serve(ENTRIES);
+
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::listEntries, "listEntries", data("uri", tree.toString()));
+        report("listEntries (titles)", ENTRIES, start);
+
+        assertTrue(ret.getBoolean("success"));
+        JSONArray entries = ret.getJSONArray("entries");
+        assertEquals(ENTRIES, entries.length());
+        assertEquals(ENTRIES, provider.opens());
+
+        Map<String, String> titles = expectedTitles();
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            String dirname = entry.getString("dirname");
+            assertEquals(dirname, titles.get(dirname), entry.optString("title", ""));
+        }
+    }
+
+    @Test
+    public void documentFileFallbackListsEveryEntry() throws Exception {
+        Uri tree = serve(ENTRIES);
+        provider.setListingMimeTypes(false);
+
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::listEntriesFast, "listEntriesFast", data("uri", tree.toString()));
+        report("listEntriesFast (DocumentFile)", ENTRIES, start);
+
+        assertTrue(ret.getBoolean("success"));
+        assertEquals(ENTRIES, ret.getInt("count"));
+    }
+
+    @Test
+    public void batchGetMetadataScalesAcrossThePool() throws Exception {
+        JSONArray listed = listFast(serve(METADATA_ENTRIES));
+        provider.setLatency(TimeUnit.MICROSECONDS.toNanos(METADATA_QUERY_LATENCY_US), BYTE_LATENCY_NS);
+        provider.resetCounters();
+
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::batchGetMetadata, "batchGetMetadata", data("entries", listed));
+        long elapsed = report("batchGetMetadata (cold)", METADATA_ENTRIES, start);
+
+        assertTrue(ret.getBoolean("success"));
+        JSONArray entries = ret.getJSONArray("entries");
+        assertEquals(METADATA_ENTRIES, entries.length());
+        Map<String, String> titles = expectedTitles();
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            assertEquals(titles.get(entry.getString("dirname")), entry.getString("title"));
+        }
+
+        assertTrue("opens in flight at once: " + provider.maxConcurrentOpens(),
+                provider.maxConcurrentOpens() >= MIN_CONCURRENT_OPENS);
+        if (!TIMING) return;
+
+        // What the same index.md stats and opens would cost one after another
+        long serial = 0;
+        for (byte[] document : documents) {
+            serial += 2 * TimeUnit.MICROSECONDS.toNanos(METADATA_QUERY_LATENCY_US) + document.length * BYTE_LATENCY_NS;
+        }
+        double speedup = (double) serial / elapsed;
+        if (REPORT) {
+            System.out.println(String.format(Locale.US, "%-32s %.1fx over serial (%.1f ms)",
+                    "batchGetMetadata speedup", speedup, serial / 1e6));
+            reportStage(PerfStats.METADATA_SCAN);
+        }
+        assertTrue("speedup " + speedup, speedup >= MIN_METADATA_SPEEDUP);
+    }
+
+    @Test
+    public void batchGetMetadataAnswersRepeatsFromIndex() throws Exception {
+        JSONArray listed = listFast(serve(METADATA_ENTRIES));
+
+        invoke(plugin::batchGetMetadata, "batchGetMetadata", data("entries", listed));
+        assertEquals(METADATA_ENTRIES, stageCount(PerfStats.METADATA_SCAN));
+
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::batchGetMetadata, "batchGetMetadata", data("entries", listed));
+        report("batchGetMetadata (warm)", METADATA_ENTRIES, start);
+
+        assertEquals(METADATA_ENTRIES, ret.getInt("count"));
+        assertEquals("unchanged entries are not scanned again", METADATA_ENTRIES, stageCount(PerfStats.METADATA_SCAN));
+    }
+
+    @Test
+    public void listEntriesDeltaOfUnchangedTreeIsConstantQueries() throws Exception {
+        Uri tree = serve(ENTRIES);
+        JSObject first = invoke(plugin::listEntriesDelta, "listEntriesDelta", data("uri", tree.toString()));
+        assertTrue(first.getBoolean("success"));
+        assertEquals(ENTRIES, first.getInt("count"));
+        invoke(plugin::batchGetMetadata, "batchGetMetadata", data("entries", first.getJSONArray("added")));
+        provider.resetCounters();
+
+        JSObject data = data("uri", tree.toString());
+        data.put("sinceToken", first.getString("token"));
+        long start = System.nanoTime();
+        JSObject ret = invoke(plugin::listEntriesDelta, "listEntriesDelta", data);
+        report("listEntriesDelta (unchanged)", ENTRIES, start);
+
+        assertTrue(ret.getBoolean("success"));
+        assertEquals(0, ret.getJSONArray("added").length());
+        assertEquals(0, ret.getJSONArray("modified").length());
+        assertEquals(0, ret.getJSONArray("removed").length());
+        assertEquals("index.md mtimes come from the index", 1, provider.queries());
+        assertEquals(0, provider.opens());
+    }
+
+    // ===== Harness =====
+
+    /**
+     * FolderPickerPlugin outside a Bridge: the context is the only thing
+     * the SAF paths need from it.
+     */
+    static final class TestPlugin extends FolderPickerPlugin {
+        private final Context context;
+
+        TestPlugin(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public Context getContext() {
+            return context;
+        }
+    }
+
+    /**
+     * A plugin call that records what it resolved with.
+     */
+    static final class RecordingCall extends PluginCall {
+        private static final AtomicInteger nextId = new AtomicInteger();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile JSObject result;
+
+        RecordingCall(String methodName, JSObject data) {
+            super(null, "FolderPicker", String.valueOf(nextId.incrementAndGet()), methodName, data);
+        }
+
+        @Override
+        public void resolve(JSObject data) {
+            result = data;
+            done.countDown();
+        }
+
+        @Override
+        public void reject(String msg, String code, Exception ex, JSObject data) {
+            JSObject ret = new JSObject();
+            ret.put("success", false);
+            ret.put("error", msg);
+            resolve(ret);
+        }
+
+        JSObject await() throws InterruptedException {
+            assertTrue(getMethodName() + " timed out", done.await(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return result;
+        }
+    }
+
+    private interface Method {
+        void invoke(PluginCall call);
+    }
+
+    private static JSObject invoke(Method method, String name, JSObject data) throws InterruptedException {
+        RecordingCall call = new RecordingCall(name, data);
+        method.invoke(call);
+        return call.await();
+    }
+
+    private static JSObject data(String key, Object value) {
+        JSObject data = new JSObject();
+        data.put(key, value);
+        return data;
+    }
+
+    /**
+     * Serve a fresh journal of count entries. Each test gets its own root, so
+     * document IDs (and with them the process-wide metadata index) never overlap.
+     */
+    private Uri serve(int count) throws Exception {
+        documents = SyntheticJournal.generate(count, 42, true);
+        Uri tree = provider.serve(testName.getMethodName(), documents, BASE_MTIME);
+        provider.resetCounters();
+        return tree;
+    }
+
+    private JSONArray listFast(Uri tree) throws Exception {
+        JSObject ret = invoke(plugin::listEntriesFast, "listEntriesFast", data("uri", tree.toString()));
+        assertTrue(ret.getBoolean("success"));
+        return ret.getJSONArray("entries");
+    }
+
+    private Map<String, String> expectedTitles() {
+        Map<String, String> titles = new HashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            byte[] document = documents.get(i);
+            String title = FrontmatterScanner.local().scan(document, document.length, true, true).title;
+            titles.put(SyntheticJournal.dirname(i), title != null ? title : "");
+        }
+        return titles;
+    }
+
+    private JSONObject stats() throws Exception {
+        return invoke(plugin::getPerfStats, "getPerfStats", new JSObject()).getJSONObject("stats");
+    }
+
+    private int stageCount(String stage) throws Exception {
+        JSONObject histogram = stats().getJSONObject("stages").optJSONObject(stage);
+        return histogram != null ? histogram.getInt("count") : 0;
+    }
+
+    /**
+     * Print one result line (when reporting) and return the elapsed time in nanoseconds.
+     */
+    private long report(String label, int entries, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (!REPORT) return elapsed;
+        System.out.println(String.format(Locale.US,
+                "%-32s %6d entries %9.1f ms %10.0f entries/s  queries=%d opens=%d bytes=%d",
+                label, entries, elapsed / 1e6, entries / (elapsed / 1e9),
+                provider.queries(), provider.opens(), provider.bytesServed()));
+        return elapsed;
+    }
+
+    private void reportStage(String stage) throws Exception {
+        JSONObject histogram = stats().getJSONObject("stages").optJSONObject(stage);
+        if (histogram == null) return;
+        System.out.println(String.format(Locale.US, "%-32s p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms",
+                stage, histogram.getDouble("p50Ms"), histogram.getDouble("p95Ms"),
+                histogram.getDouble("p99Ms"), histogram.getDouble("maxMs")));
+    }
+}
@@ -0,0 +1,106 @@
+package com.nicheknack.lifespeed;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic index.md documents shaped like real journal entries:
+ * frontmatter with a quoted title, ISO date, inline or block tags and a
+ * lastmod, followed by a few paragraphs. The same seed always yields the
+ * same corpus, so runs are comparable.
+ *
+ * Shared by the unit tests and the benchmark module, which compiles this file.
+ */
+final class SyntheticJournal {
+    private static final String[] WORDS = {
+        "morning", "coffee", "walked", "river", "meeting", "idea", "project", "notes",
+        "garden", "rain", "train", "book", "chapter", "dinner", "friends", "quiet",
+        "deadline", "sketch", "market", "evening", "run", "weekend", "letter", "plan"
+    };
+    private static final String[] UNICODE_WORDS = {
+        "caf\u00e9", "na\u00efve", "\u00fcber", "\u65e5\u8a18", "\u6563\u6b69", "fa\u00e7ade",
+        "sm\u00f6rg\u00e5sbord", "ni\u00f1o", "\u2615", "\ud83c\udf27"
+    };
+    private static final String[] TAGS = {
+        "daily", "work", "travel", "health", "reading", "ideas", "family", "music"
+    };
+
+    private SyntheticJournal() {
+    }
+
+    /**
+     * count documents as UTF-8 bytes.
+     * @param unicode mix non-ASCII words into titles and bodies
+     */
+    static List<byte[]> generate(int count, long seed, boolean unicode) {
+        Random random = new Random(seed);
+        List<byte[]> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(document(random, i, unicode).getBytes(StandardCharsets.UTF_8));
+        }
+        return documents;
+    }
+
+    /**
+     * Entry directory name of the index-th document, in the renderer's
+     * YYYY-MM-DD-HH-MM-SS form. Distinct for every index.
+     */
+    static String dirname(int index) {
+        return String.format(Locale.US, "%s-%02d-%02d-00", day(index), 8 + index % 12, index % 60);
+    }
+
+    private static String day(int index) {
+        int day = 1 + index % 28;
+        int month = 1 + (index / 28) % 12;
+        int year = 2015 + index / (28 * 12);
+        return String.format(Locale.US, "%04d-%02d-%02d", year, month, day);
+    }
+
+    static String document(Random random, int index, boolean unicode) {
+        String date = String.format(Locale.US, "%sT%02d:%02d:00.000Z", day(index),
+                random.nextInt(24), random.nextInt(60));
+
+        StringBuilder doc = new StringBuilder(2048);
+        doc.append("---\n");
+        doc.append("title: \"").append(sentence(random, 3 + random.nextInt(5), unicode)).append("\"\n");
+        doc.append("date: ").append(date).append('\n');
+        doc.append("lastmod: ").append(date).append('\n');
+        int tagCount = random.nextInt(4);
+        if (random.nextBoolean()) {
+            doc.append("tags: [");
+            for (int t = 0; t < tagCount; t++) {
+                if (t > 0) doc.append(", ");
+                doc.append(TAGS[random.nextInt(TAGS.length)]);
+            }
+            doc.append("]\n");
+        } else {
+            doc.append("tags:\n");
+            for (int t = 0; t < tagCount; t++) {
+                doc.append("  - ").append(TAGS[random.nextInt(TAGS.length)]).append('\n');
+            }
+        }
+        doc.append("draft: false\n");
+        doc.append("---\n\n");
+
+        int paragraphs = 2 + random.nextInt(6);
+        for (int p = 0; p < paragraphs; p++) {
+            doc.append(sentence(random, 20 + random.nextInt(60), unicode)).append(".\n\n");
+        }
+        return doc.toString();
+    }
+
+    private static String sentence(Random random, int words, boolean unicode) {
+        StringBuilder sentence = new StringBuilder(words * 8);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) sentence.append(' ');
+            boolean special = unicode && random.nextInt(5) == 0;
+            sentence.append(special
+                    ? UNICODE_WORDS[random.nextInt(UNICODE_WORDS.length)]
+                    : WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
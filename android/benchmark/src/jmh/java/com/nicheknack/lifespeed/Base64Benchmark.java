@@ -0,0 +1,48 @@
+package com.nicheknack.lifespeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base64 of attachment-sized payloads, as saveImage/saveFile decode and
+ * readImage/pickImage encode them. android.util.Base64 is not available on
+ * the JVM; java.util.Base64 does the same work (NO_WRAP encode, plain decode).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Base64Benchmark {
+    /** Thumbnail, typical photo, large photo. */
+    @Param({"65536", "1048576", "8388608"})
+    public int bytes;
+
+    private byte[] payload;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        payload = new byte[bytes];
+        new Random(42).nextBytes(payload);
+        encoded = Base64.getEncoder().encodeToString(payload);
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base64.getEncoder().encodeToString(payload);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.getDecoder().decode(encoded);
+    }
+}
@@ -0,0 +1,63 @@
+package com.nicheknack.lifespeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrontmatterScanner over a whole synthetic journal, the way batchGetMetadata
+ * and the title-extracting listings use it: a 4 KB prefix per entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FrontmatterBenchmark {
+    private static final int PREFIX_BYTES = 4 * 1024;
+
+    @Param({"1000", "10000", "50000"})
+    public int entries;
+
+    @Param({"false", "true"})
+    public boolean unicode;
+
+    private List<byte[]> documents;
+
+    @Setup
+    public void setUp() {
+        documents = SyntheticJournal.generate(entries, 42, unicode);
+    }
+
+    /** Title, date, tags and excerpt: the metadata path. */
+    @Benchmark
+    public void metadata(Blackhole blackhole) {
+        FrontmatterScanner scanner = FrontmatterScanner.local();
+        for (byte[] document : documents) {
+            int len = Math.min(document.length, PREFIX_BYTES);
+            scanner.scan(document, len, false, len == document.length);
+            blackhole.consume(scanner.title);
+            blackhole.consume(scanner.date);
+            blackhole.consume(scanner.tags.size());
+            blackhole.consume(scanner.excerpt.toString());
+        }
+    }
+
+    /** Stops at the title: the listing path. */
+    @Benchmark
+    public void titleOnly(Blackhole blackhole) {
+        FrontmatterScanner scanner = FrontmatterScanner.local();
+        for (byte[] document : documents) {
+            int len = Math.min(document.length, PREFIX_BYTES);
+            scanner.scan(document, len, true, len == document.length);
+            blackhole.consume(scanner.title);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nicheknack.lifespeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building plugin results for the bridge. JSObject and JSArray are thin
+ * subclasses of org.json's JSONObject and JSONArray, which is what runs here:
+ * the fast listing's entries, batchGetMetadata's entries, and the toString()
+ * the bridge does before handing the result to the WebView.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResultBuildingBenchmark {
+    private static final String TREE = "content://com.android.externalstorage.documents/tree/primary%3AJournal";
+
+    @Param({"1000", "10000", "50000"})
+    public int entries;
+
+    private final List<FrontmatterScanner> scanned = new ArrayList<>();
+    private final List<String> dirnames = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        scanned.clear();
+        dirnames.clear();
+        List<byte[]> documents = SyntheticJournal.generate(entries, 42, false);
+        for (int i = 0; i < documents.size(); i++) {
+            byte[] document = documents.get(i);
+            FrontmatterScanner scanner = new FrontmatterScanner();
+            scanner.scan(document, document.length, false, true);
+            scanned.add(scanner);
+            dirnames.add(String.format(Locale.US, "%06d-entry", i));
+        }
+    }
+
+    /** listEntriesFast: dirname, uri, indexUri, mtime. */
+    @Benchmark
+    public JSONArray listing() {
+        JSONArray result = new JSONArray();
+        for (int i = 0; i < entries; i++) {
+            result.put(listingEntry(i));
+        }
+        return result;
+    }
+
+    /** batchGetMetadata: listing fields plus title, date, tags, excerpt. */
+    @Benchmark
+    public JSONArray metadata() {
+        JSONArray result = new JSONArray();
+        for (int i = 0; i < entries; i++) {
+            result.put(metadataEntry(i));
+        }
+        return result;
+    }
+
+    /** batchGetMetadata plus the bridge's serialization of the result. */
+    @Benchmark
+    public String metadataSerialized() {
+        JSONObject ret = new JSONObject();
+        ret.put("success", true);
+        ret.put("entries", metadata());
+        return ret.toString();
+    }
+
+    private JSONObject listingEntry(int i) {
+        String dirname = dirnames.get(i);
+        String dirUri = TREE + "/document/primary%3AJournal%2F" + dirname;
+        JSONObject entry = new JSONObject();
+        entry.put("dirname", dirname);
+        entry.put("uri", dirUri);
+        entry.put("indexUri", dirUri + "%2Findex.md");
+        entry.put("mtime", 1_700_000_000_000L + i * 60_000L);
+        return entry;
+    }
+
+    private JSONObject metadataEntry(int i) {
+        FrontmatterScanner scanner = scanned.get(i);
+        JSONObject entry = listingEntry(i);
+        entry.put("title", scanner.title != null ? scanner.title : "");
+        entry.put("date", scanner.date != null ? scanner.date : "");
+        entry.put("tags", new JSONArray(scanner.tags));
+        entry.put("excerpt", scanner.excerpt.toString());
+        return entry;
+    }
+}
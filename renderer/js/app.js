@@ -16,6 +16,7 @@ class App {
         this.currentMode = 'preview'; // Default to preview mode (editable WYSIWYG)
         this.wordCount = 0;
         this.lastSavedContent = ''; // Track what was last saved
+        this.lastSavedHash = null; // Native hash of lastSavedContent, for delta saves
         this.lastInputTime = 0; // Track last typing time to prevent sync during active editing
         this.isSyncingCache = false; // Prevent concurrent syncs
         this.scrollSync = null; // Endemic scroll sync controller
@@ -68,6 +69,9 @@ class App {
         const elapsed = (performance.now() - startTime).toFixed(0);
         console.log(`[App] Ready to type in ${elapsed}ms`);
 
+        // Android: close the native startup timeline and raise the keyboard now
+        platform.notifyReady({ initMs: Number(elapsed) });
+
         // Setup lifecycle handlers (handles save/discard on background)
         this.setupLifecycleHandlers();
 
@@ -77,11 +81,27 @@ class App {
             console.log('[App] loadEntriesList completed, calling ensureCurrentEntryInSidebar');
             await this.ensureCurrentEntryInSidebar();
             console.log('[App] ensureCurrentEntryInSidebar completed');
+            await this.startWatchingEntries();
         }).catch(err => {
             console.error('[App] Error in loadEntriesList chain:', err);
         });
     }
 
+    /**
+     * Native write-behind outcome: warn once while autosaves keep failing
+     * and confirm once everything queued has been written again.
+     */
+    onWriteFlushed(event) {
+        if (!event.success) {
+            console.warn('[App] Autosave failed, retrying in', event.retryInMs, 'ms:', event.error);
+            if (!this.autosaveFailing) platform.showToast('Autosave failed - retrying', 'long');
+            this.autosaveFailing = true;
+        } else if (this.autosaveFailing && event.pending === 0) {
+            this.autosaveFailing = false;
+            platform.showToast('Autosave recovered');
+        }
+    }
+
     /**
      * Ensure the current entry appears in the sidebar after entries list loads.
      * This handles the case where a new entry is created before the cache is loaded.
@@ -136,11 +156,15 @@ class App {
             this.saveCurrentEntryToCache();
         });
 
+        // Autosaves that fail stay queued natively and retry; say so
+        platform.onWriteFlushed((event) => this.onWriteFlushed(event));
+
         // Capacitor app state change - this is the TRUE app background event
         if (platform.isCapacitor() && window.Capacitor?.Plugins?.App) {
             window.Capacitor.Plugins.App.addListener('appStateChange', (state) => {
                 if (!state.isActive) {
                     this.saveOrDiscardCurrentEntry();
+                    platform.flushWrites();
                     // Save current entry to cache (fast, reliable)
                     this.saveCurrentEntryToCache();
                 }
@@ -629,6 +653,19 @@ class App {
 
         // Use native file picker on Capacitor (Android)
         if (platform.isCapacitor()) {
+            // Preferred: native picks and copies straight into the entry
+            const imported = await platform.pickAndImport(this.currentEntry, type);
+            if (imported.success) {
+                await this.insertTextInCurrentMode(imported.markdown + '\n');
+                this.scheduleAutoSave();
+                platform.showToast(imported.isImage ? 'Image inserted' : 'File attached');
+                return;
+            } else if (imported.canceled) {
+                return;
+            } else if (!imported.unsupported) {
+                console.error('[App] Native import failed, using picker fallback:', imported.error);
+            }
+
             try {
                 let result;
                 if (type === 'image') {
@@ -810,15 +847,22 @@ class App {
         console.log('[App] insertImage: Starting', { fileName: file?.name, fileType: file?.type, hasEntryUri: !!this.currentEntry?.entryUri });
 
         try {
-            // Convert to base64
-            console.log('[App] insertImage: Converting to base64...');
-            const base64 = await this._fileToBase64(file);
-            console.log('[App] insertImage: Base64 ready, length:', base64?.length);
-
-            // Pass the full currentEntry object so SAF can use entryUri
-            console.log('[App] insertImage: Calling platform.pasteImage...');
-            const result = await platform.pasteImage(base64, this.currentEntry);
-            console.log('[App] insertImage: pasteImage result:', { success: result?.success, markdown: result?.markdown, error: result?.error });
+            let result;
+            if (platform.isCapacitor()) {
+                // Native uploads the file in chunks, no whole-file base64
+                console.log('[App] insertImage: Calling platform.copyImage...');
+                result = await platform.copyImage(file, this.currentEntry);
+            } else {
+                // Convert to base64
+                console.log('[App] insertImage: Converting to base64...');
+                const base64 = await this._fileToBase64(file);
+                console.log('[App] insertImage: Base64 ready, length:', base64?.length);
+
+                // Pass the full currentEntry object so SAF can use entryUri
+                console.log('[App] insertImage: Calling platform.pasteImage...');
+                result = await platform.pasteImage(base64, this.currentEntry);
+            }
+            console.log('[App] insertImage: image save result:', { success: result?.success, markdown: result?.markdown, error: result?.error });
 
             if (result.success) {
                 console.log('[App] insertImage: Inserting markdown into editor...');
@@ -981,7 +1025,8 @@ class App {
         clearTimeout(this.autoSaveTimeout);
 
         this.autoSaveTimeout = setTimeout(() => {
-            this.saveCurrentEntry();
+            // Deferred: native coalesces autosave bursts into one physical write
+            this.saveCurrentEntry({ deferred: true });
         }, this.settings.autoSaveDelay);
     }
 
@@ -998,7 +1043,7 @@ class App {
         this.scheduleAutoSave();
     }
 
-    async saveCurrentEntry() {
+    async saveCurrentEntry(options = {}) {
         if (!this.currentEntry) return;
 
         try {
@@ -1067,10 +1112,14 @@ class App {
                 lastmod: new Date().toISOString()
             });
 
-            const result = await platform.saveEntry(this.currentEntry.path, updatedContent);
+            const result = await platform.saveEntry(this.currentEntry.path, updatedContent, {
+                deferred: !!options.deferred,
+                base: { content: this.lastSavedContent, hash: this.lastSavedHash }
+            });
 
             if (result.success) {
                 this.lastSavedContent = updatedContent;
+                this.lastSavedHash = result.hash || null;
                 this.updateWordCount(); // This now updates status automatically
 
                 // Update cache with current metadata (fire-and-forget for speed)
@@ -1843,6 +1892,8 @@ class App {
         if (!this.currentEntry) return;
 
         const images = this.dom.preview.querySelectorAll('img');
+        // Images never render wider than the preview, so decode them at that size
+        const maxWidth = (this.dom.preview.clientWidth || window.innerWidth) * (window.devicePixelRatio || 1);
 
         for (const img of images) {
             const src = img.getAttribute('src');
@@ -1855,7 +1906,7 @@ class App {
 
             // Handle relative paths like "images/photo.webp"
             try {
-                const result = await platform.readImage(this.currentEntry, src);
+                const result = await platform.readThumbnail(this.currentEntry, src, maxWidth);
                 if (result.success && result.dataUrl) {
                     img.src = result.dataUrl;
                 } else {
@@ -2324,6 +2375,17 @@ class App {
             }
 
             // SLOW PATH: No cache for this folder - need to build index (one-time)
+            // On Android the native listing index can paint the first page right away;
+            // the cache then builds quietly behind it
+            if (await this.showFirstEntriesPage()) {
+                const elapsed = (performance.now() - startTime).toFixed(0);
+                console.log(`[App] Sidebar ready in ${elapsed}ms (native page)`);
+                this.buildInitialIndex(currentFolder, { quiet: true }).catch(err => {
+                    console.error('[App] Background index build error:', err);
+                });
+                return;
+            }
+
             // This shows the indexing animation
             console.log('[App] No cache for folder, building initial index (one-time)');
             await this.buildInitialIndex(currentFolder);
@@ -2335,6 +2397,60 @@ class App {
         }
     }
 
+    /**
+     * Native sort key and direction matching the sidebar's sort setting
+     */
+    nativeSortFor(sort) {
+        const [field, direction] = sort.split('-');
+        const sortKey = field === 'modified' ? 'mtime' : field;
+        return { sortKey, direction };
+    }
+
+    /**
+     * Render the first page of the native sorted listing, if there is one.
+     * Scrolling then pulls further pages instead of slicing allEntries.
+     * @returns {Promise<boolean>} whether anything was rendered
+     */
+    async showFirstEntriesPage() {
+        const { sortKey, direction } = this.nativeSortFor(this.currentSort);
+        const page = await platform.listEntriesPage({ sortKey, direction, limit: 50 });
+        if (!page.success || !page.entries || page.entries.length === 0) return false;
+
+        this.pagedEntries = page.entries;
+        this.entriesPageCursor = page.nextCursor;
+        this.renderEntriesList(this.pagedEntries);
+
+        if (this.entriesPageCursor) {
+            this.dom.entriesList.removeEventListener('scroll', this._onEntriesScroll);
+            this._onEntriesScroll = () => this.onEntriesListScroll();
+            this.dom.entriesList.addEventListener('scroll', this._onEntriesScroll, { passive: true });
+        }
+        return true;
+    }
+
+    /**
+     * Append the next native page while the sidebar is still showing paged entries.
+     */
+    async loadNextEntriesPage() {
+        if (this.entriesPageLoading || !this.entriesPageCursor || this.allEntries !== this.pagedEntries) return;
+        this.entriesPageLoading = true;
+        try {
+            const { sortKey, direction } = this.nativeSortFor(this.currentSort);
+            const page = await platform.listEntriesPage({ sortKey, direction, cursor: this.entriesPageCursor, limit: 50 });
+            // The full list may have replaced the paged one meanwhile
+            if (!page.success || this.allEntries !== this.pagedEntries) return;
+
+            this.entriesPageCursor = page.nextCursor;
+            for (const entry of page.entries) {
+                this.pagedEntries.push(entry);
+                this.renderEntryItem(entry);
+            }
+            this.renderedCount = this.pagedEntries.length;
+        } finally {
+            this.entriesPageLoading = false;
+        }
+    }
+
     /**
      * Fallback direct loading without cache (original implementation)
      */
@@ -2361,7 +2477,8 @@ class App {
      * Called when no cache exists (first run or after cache clear)
      * @param {string} folderPath - The folder being indexed (stored in cache meta)
      */
-    async buildInitialIndex(folderPath) {
+    async buildInitialIndex(folderPath, options = {}) {
+        const quiet = !!options.quiet;
         if (this.isIndexing) {
             console.log('[App] Already indexing, skipping');
             return;
@@ -2373,14 +2490,31 @@ class App {
         }
 
         this.isIndexing = true;
-        this.showIndexingProgress(0, 'Scanning journal folder...');
+        if (!quiet) this.showIndexingProgress(0, 'Scanning journal folder...');
 
         try {
             // Clear existing cache since we're rebuilding for this folder
             await window.metadataCache?.clearEntries();
 
-            // Get fast directory listing (no file reads)
-            const dirList = await platform.listEntriesFast(folderPath);
+            // Stream the fast directory listing (no file reads) so the sidebar
+            // has something to show from the first chunk on
+            const listed = [];
+            const dirList = await platform.listEntriesFastStreaming((chunk) => {
+                if (!quiet && listed.length === 0 && chunk.length > 0) {
+                    this.allEntries = chunk.map(entry => ({
+                        path: entry.path,
+                        dirname: entry.dirname,
+                        entryUri: entry.entryUri,
+                        title: this.extractTitleFromDirname(entry.dirname),
+                        date: this.extractDateFromDirname(entry.dirname),
+                        mtime: entry.mtime
+                    }));
+                    this.renderEntriesList(this.allEntries);
+                }
+                listed.push(...chunk);
+                if (!quiet) this.updateIndexingStatus(`Found ${listed.length} entries`);
+            }, folderPath);
+            dirList.entries = listed;
 
             if (!dirList.success || !dirList.entries || dirList.entries.length === 0) {
                 console.log('[App] No entries found in directory');
@@ -2397,8 +2531,10 @@ class App {
 
             const total = dirList.entries.length;
             console.log('[App] Found', total, 'entries to index');
-            this.showIndexingProgress(0, `Building index - this is a one-time operation`);
-            this.updateIndexingStatus(`Found ${total} entries`);
+            if (!quiet) {
+                this.showIndexingProgress(0, `Building index - this is a one-time operation`);
+                this.updateIndexingStatus(`Found ${total} entries`);
+            }
 
             // Larger batch size for faster processing (fewer native bridge crossings)
             const BATCH_SIZE = 500;
@@ -2421,7 +2557,7 @@ class App {
                     await window.metadataCache?.saveEntries(result.entries);
 
                     // Show preview of entries after first batch (so user sees something early)
-                    if (!previewShown && allMetadata.length >= PREVIEW_THRESHOLD) {
+                    if (!quiet && !previewShown && allMetadata.length >= PREVIEW_THRESHOLD) {
                         previewShown = true;
                         this.allEntries = [...allMetadata];
                         this.renderEntriesList(this.allEntries);
@@ -2431,8 +2567,10 @@ class App {
 
                 // Update progress
                 const progress = batchEnd / total;
-                this.showIndexingProgress(progress, `Indexing entries...`);
-                this.updateIndexingStatus(`${batchEnd} of ${total} entries`);
+                if (!quiet) {
+                    this.showIndexingProgress(progress, `Indexing entries...`);
+                    this.updateIndexingStatus(`${batchEnd} of ${total} entries`);
+                }
 
                 // Yield to UI to keep it responsive (longer yield every 500 entries)
                 if (batchEnd % 500 === 0) {
@@ -2452,8 +2590,13 @@ class App {
             console.log('[App] Initial index complete:', allMetadata.length, 'entries for folder:', folderPath);
 
             // Store and render entries
-            this.allEntries = allMetadata;
-            this.renderEntriesList(allMetadata);
+            if (quiet) {
+                // Swap the paged list for the full one without losing the user's place
+                this.rerenderEntriesInPlace(allMetadata);
+            } else {
+                this.allEntries = allMetadata;
+                this.renderEntriesList(allMetadata);
+            }
 
             this.hideIndexingProgress();
         } catch (error) {
@@ -2475,6 +2618,12 @@ class App {
         console.log('[App] Filesystem verification starting...');
 
         try {
+            // Android: only what changed since the cache last caught up
+            if (await this.syncEntriesFromDelta()) {
+                console.log('[App] Filesystem verification complete');
+                return;
+            }
+
             // Get ALL entries from filesystem (the source of truth)
             const dirList = await platform.listEntriesFast();
             const diskEntries = dirList.entries || [];
@@ -2591,6 +2740,75 @@ class App {
         }
     }
 
+    /**
+     * Catch the sidebar and cache up with the native listing delta since the
+     * stored listing token (Android). A reset delta lists every entry, which
+     * is compared against the sidebar in full; otherwise only the changed
+     * entries are touched. The token is stored once the changes are applied.
+     * @returns {Promise<boolean>} false when no delta is available and the
+     *          caller has to compare a full listing itself
+     */
+    async syncEntriesFromDelta() {
+        const sinceToken = await window.metadataCache?.getListingToken();
+        const delta = await platform.listEntriesDelta(null, sinceToken);
+        if (!delta.success) {
+            if (!delta.unsupported) console.warn('[App] Listing delta failed:', delta.error);
+            return false;
+        }
+
+        let change = delta;
+        if (delta.reset) {
+            const known = new Map((this.allEntries || []).map(e => [e.dirname, e]));
+            const listed = new Set(delta.added.map(e => e.dirname));
+            change = {
+                added: delta.added.filter(e => !known.has(e.dirname)),
+                modified: delta.added.filter(e => known.has(e.dirname) && known.get(e.dirname).mtime !== e.mtime),
+                removed: (this.allEntries || []).filter(e => !listed.has(e.dirname))
+            };
+        }
+        console.log('[App] Listing delta' + (delta.reset ? ' (reset)' : '') + ' - added:', change.added.length,
+            'modified:', change.modified.length, 'removed:', change.removed.length, 'of', delta.count);
+
+        await this.applyEntryChanges(change);
+        await window.metadataCache?.setListingToken(delta.token);
+        return true;
+    }
+
+    /**
+     * Apply added, modified and removed entries to the sidebar and cache,
+     * reading fresh metadata for the added and modified ones.
+     * @param {Object} change - { added, modified, removed }
+     * @param {string} [skipDirname] - Entry to leave alone (the open one)
+     */
+    async applyEntryChanges(change, skipDirname) {
+        if (!this.allEntries) this.allEntries = [];
+
+        const removedDirnames = new Set(change.removed.map(e => e.dirname));
+        if (removedDirnames.size > 0) {
+            const gone = this.allEntries.filter(e => removedDirnames.has(e.dirname)).map(e => e.path);
+            await window.metadataCache?.deleteEntries(gone);
+            this.allEntries = this.allEntries.filter(e => !removedDirnames.has(e.dirname));
+        }
+
+        const touched = [...change.added, ...change.modified].filter(e => e.dirname !== skipDirname);
+        const BATCH_SIZE = 50;
+        for (let i = 0; i < touched.length; i += BATCH_SIZE) {
+            const batch = touched.slice(i, i + BATCH_SIZE);
+            const metaResult = await platform.batchGetMetadata(batch);
+            const fresh = (metaResult.success && metaResult.entries) ? metaResult.entries : batch;
+            await window.metadataCache?.saveEntries(fresh);
+            for (const entry of fresh) {
+                const idx = this.allEntries.findIndex(e => e.dirname === entry.dirname);
+                if (idx >= 0) this.allEntries[idx] = entry;
+                else this.allEntries.unshift(entry);
+            }
+        }
+
+        if (removedDirnames.size > 0 || touched.length > 0) {
+            this.rerenderEntriesInPlace(this.allEntries);
+        }
+    }
+
     /**
      * Backfill excerpts for cached entries that are missing them (cache migration).
      * Reads entry files in batches, updates cache, then re-renders sidebar.
@@ -2635,6 +2853,8 @@ class App {
         try {
             console.log('[App] Quick sync - checking for missing recent entries...');
 
+            if (await this.syncEntriesFromDelta()) return;
+
             // Get filesystem listing (fast - just paths and mtimes)
             const dirList = await platform.listEntriesFast();
             if (!dirList.success || !dirList.entries) return;
@@ -2715,6 +2935,12 @@ class App {
         console.log('[App] Starting background sync');
 
         try {
+            if (await this.syncEntriesFromDelta()) {
+                await window.metadataCache?.updateMeta({ lastSync: Date.now() });
+                console.log('[App] Background sync complete');
+                return;
+            }
+
             // Get current filesystem state
             const dirList = await platform.listEntriesFast();
             console.log('[App] Sync - filesystem has', dirList.entries?.length || 0, 'entries');
@@ -2902,6 +3128,8 @@ class App {
         // Load more when within 200px of bottom
         if (scrollBottom < 200 && this.renderedCount < this.allEntries.length) {
             this.loadMoreEntries();
+        } else if (scrollBottom < 200 && this.allEntries === this.pagedEntries) {
+            this.loadNextEntriesPage();
         }
     }
 
@@ -3095,6 +3323,7 @@ class App {
             // Set editor content
             this.dom.editor.value = content;
             this.lastSavedContent = content;
+            this.lastSavedHash = null;
             if (this.undoManager) this.undoManager.init(content);
 
             // Parse and display metadata
@@ -3171,6 +3400,7 @@ class App {
         this.renderEntriesList([]);
         this.loadEntriesList().then(async () => {
             await this.ensureCurrentEntryInSidebar();
+            await this.startWatchingEntries();
         }).catch(err => {
             console.error('[App] Error loading entries after journal switch:', err);
         });
@@ -3187,6 +3417,7 @@ class App {
         try {
             // Clean up previous entry before switching
             if (this.currentEntry) {
+                await platform.flushWrites(this.currentEntry.path);
                 if (this.isDraft) {
                     // Draft was never written to disk — just discard
                     this.isDraft = false;
@@ -3213,6 +3444,7 @@ class App {
             // Set editor content
             this.dom.editor.value = result.content;
             this.lastSavedContent = result.content;
+            this.lastSavedHash = result.hash || null;
             if (this.undoManager) this.undoManager.init(result.content);
 
             // Parse and display metadata
@@ -3475,7 +3707,26 @@ class App {
             // Show all entries sorted by date
             results = this.finderEntries;
             console.log('[Finder] No query, showing all entries:', results?.length);
-        } else if (this.fuse) {
+        } else if (/^#\S+(\s+#\S+)*$/.test(query.trim())) {
+            // "#tag #tag" filters by tag through the tag index instead of the loaded entries
+            this.loadTagFinderResults(query);
+            return;
+        } else if (platform.isCapacitor() && this.nativeFinder !== false) {
+            // Native indexes answer without scanning every entry here; the current list stays until they do
+            this.loadNativeFinderResults(query);
+            return;
+        } else {
+            results = this.searchFinderLocally(query);
+        }
+
+        this.finderResults = results;
+        this.finderSelectedIndex = 0;
+        this.renderFinderResults();
+    }
+
+    searchFinderLocally(query) {
+        let results;
+        if (this.fuse) {
             // Use Fuse.js for fuzzy search
             const fuseResults = this.fuse.search(query);
             results = fuseResults.map(r => r.item);
@@ -3489,12 +3740,79 @@ class App {
             });
             console.log('[Finder] Fallback search results:', results.length);
         }
+        return results;
+    }
 
-        this.finderResults = results;
+    /**
+     * Title/dirname/tag matches from the native trigram index, followed by
+     * full-text hits (which see whole bodies, not just excerpts).
+     */
+    async loadNativeFinderResults(query) {
+        const seq = this.finderSearchSeq = (this.finderSearchSeq || 0) + 1;
+        const [fuzzy, text] = await Promise.all([
+            platform.fuzzyFind(query, 50),
+            platform.searchEntries(query, 50)
+        ]);
+        if (seq !== this.finderSearchSeq || this.dom.finderInput.value !== query) return;
+
+        if (fuzzy.unsupported) this.nativeFinder = false;
+
+        const byPath = new Map(this.finderEntries.map(e => [e.path, e]));
+        let titleHits;
+        if (fuzzy.success && (fuzzy.indexed || 0) >= this.finderEntries.length / 2) {
+            titleHits = fuzzy.results.map(hit => byPath.get(hit.path)).filter(Boolean);
+        } else {
+            // Native index not filled yet (or unavailable)
+            titleHits = this.searchFinderLocally(query);
+        }
+
+        const textHits = [];
+        if (text.success && text.results) {
+            for (const hit of text.results) {
+                const entry = byPath.get(hit.path);
+                if (entry) textHits.push(hit.snippet ? { ...entry, content: hit.snippet } : entry);
+            }
+        }
+
+        const seen = new Set(titleHits.map(e => e.path));
+        this.finderResults = titleHits.concat(textHits.filter(e => !seen.has(e.path)));
+        console.log('[Finder] Native search results:', { query, titleHits: titleHits.length, textHits: textHits.length });
         this.finderSelectedIndex = 0;
         this.renderFinderResults();
     }
 
+    /**
+     * Entries carrying every #tag in the query, newest first, a page at a time
+     * from tags.entriesFor (the native tag index on Android).
+     */
+    async loadTagFinderResults(query) {
+        const seq = this.finderSearchSeq = (this.finderSearchSeq || 0) + 1;
+        const tagList = query.trim().split(/\s+/).map(t => t.slice(1));
+        const byPath = new Map(this.finderEntries.map(e => [e.path, e]));
+        const results = [];
+
+        for (let page = 0; ; page++) {
+            const result = await tags.entriesFor(tagList, 'and', page, 50);
+            if (seq !== this.finderSearchSeq || this.dom.finderInput.value !== query) return;
+            if (!result.success) {
+                console.warn('[Finder] Tag filter failed:', result.error);
+                this.finderResults = results;
+                this.renderFinderResults();
+                break;
+            }
+
+            // Prefer the finder's own entry, which carries content for the preview
+            for (const entry of result.entries) {
+                results.push(byPath.get(entry.path) || { ...entry, content: entry.excerpt });
+            }
+            this.finderResults = results;
+            if (page === 0) this.finderSelectedIndex = 0;
+            this.renderFinderResults();
+            if (!result.hasMore) break;
+        }
+        console.log('[Finder] Tag results:', { tags: tagList, count: results.length });
+    }
+
     fuzzyMatch(text, query) {
         let qi = 0;
         for (let ti = 0; ti < text.length && qi < query.length; ti++) {
@@ -3930,19 +4248,44 @@ class App {
 
     // ===== File Watcher Callbacks =====
 
-    onFileAdded(path) {
-        console.log('[App] File added:', path);
-        // Don't reload - cache syncs on app close for maximum speed during usage
+    /**
+     * Start receiving pushed changes for the active journal (Android only).
+     * The startup verification still catches up on anything changed while
+     * the app wasn't running; after that nothing re-lists the whole tree.
+     */
+    async startWatchingEntries() {
+        const result = await platform.setupFileWatcher({
+            onEntriesChanged: (change) => {
+                this.onEntriesChanged(change).catch(err => {
+                    console.error('[App] Error applying entry changes:', err);
+                });
+            }
+        });
+        if (result.success) console.log('[App] Watching journal for external changes');
     }
 
-    onFileChanged(path) {
-        console.log('[App] File changed:', path);
-        // Don't reload - cache syncs on app close
+    /**
+     * Apply entries added, modified or removed outside the app.
+     * The open entry is left alone so an external touch never clobbers the editor.
+     */
+    async onEntriesChanged(change) {
+        console.log('[App] Entries changed:', change.dirnames);
+        if (!this.allEntries) return;
+        await this.applyEntryChanges(change, this.currentEntry?.dirname);
     }
 
-    onFileDeleted(path) {
-        console.log('[App] File deleted:', path);
-        // Don't reload - cache syncs on app close for maximum speed during usage
+    /**
+     * Re-render the sidebar with entries, keeping as many items rendered and
+     * the same scroll position as before.
+     */
+    rerenderEntriesInPlace(entries) {
+        const keepCount = this.renderedCount || 0;
+        const keepTop = this.dom.entriesList.scrollTop;
+        this.renderEntriesList(entries);
+        while (this.renderedCount < keepCount && this.renderedCount < this.allEntries.length) {
+            this.loadMoreEntries();
+        }
+        this.dom.entriesList.scrollTop = keepTop;
     }
 
     // ===== Utilities =====
@@ -7,7 +7,6 @@
 const finder = {
     // Finder state and methods are managed by App class
     // This module can be expanded for advanced features like:
-    // - Tag filtering (#tag prefix)
     // - Date filtering (@date prefix)
     // - Exact phrase matching ("phrase")
     // - Fuse.js integration for better fuzzy matching
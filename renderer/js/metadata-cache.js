@@ -224,7 +224,24 @@ class MetadataCache {
                 resolve(true);
             };
             request.onerror = () => reject(request.error);
-        });
+        }).then(() => this.setListingToken(null));
+    }
+
+    /**
+     * Native listing token (platform.listEntriesDelta) the cached entries are current with
+     * @returns {Promise<string|null>}
+     */
+    async getListingToken() {
+        const meta = await this.getMeta();
+        return meta?.listingToken || null;
+    }
+
+    /**
+     * Record the listing token once the cache has caught up with its delta
+     * @param {string|null} token
+     */
+    async setListingToken(token) {
+        return this.updateMeta({ listingToken: token || null });
     }
 
     /**
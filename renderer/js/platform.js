@@ -54,14 +54,16 @@ class PlatformService {
                     FolderPicker: window.Capacitor.Plugins.FolderPicker
                 };
 
-                // Set up native log bridge to forward Android logs to DebugLogger
+                // Set up native log bridge to forward Android logs to DebugLogger.
+                // Native lines arrive in batches; each keeps its own timestamp.
                 if (this._capacitorPlugins.FolderPicker) {
-                    this._capacitorPlugins.FolderPicker.addListener('nativeLog', (event) => {
-                        if (window.debugLogger) {
-                            window.debugLogger.log(event.level || 'debug', event.message, {
+                    this._capacitorPlugins.FolderPicker.addListener('nativeLogBatch', (event) => {
+                        if (!window.debugLogger) return;
+                        for (const line of event.logs || []) {
+                            window.debugLogger.log(line.level || 'debug', line.message, {
                                 source: 'android-native',
-                                tag: event.tag,
-                                nativeTimestamp: event.timestamp
+                                tag: line.tag,
+                                nativeTimestamp: line.timestamp
                             });
                         }
                     });
@@ -137,7 +139,7 @@ class PlatformService {
         }
     }
 
-    async saveEntry(path, content) {
+    async saveEntry(path, content, options = {}) {
         if (this.isTauri()) {
             try {
                 await this._invoke('write_file', { path, content });
@@ -147,12 +149,40 @@ class PlatformService {
             }
         }
         if (this.isCapacitor()) {
-            return await this._saveEntryCapacitor(path, content);
+            return await this._saveEntryCapacitor(path, content, options);
         } else {
             return await this._saveEntryWeb(path, content);
         }
     }
 
+    /**
+     * Write out queued autosaves: one entry when path is given, otherwise all.
+     */
+    async flushWrites(path) {
+        if (!this.isCapacitor()) return { success: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.flushAll) return { success: true };
+        try {
+            return path
+                ? await plugins.FolderPicker.flush({ uri: path })
+                : await plugins.FolderPicker.flushAll();
+        } catch (e) {
+            console.error('[Platform] flushWrites error:', e);
+            return { success: false, error: e.message };
+        }
+    }
+
+    /**
+     * Listen for native write-behind flushes (Android only). callback receives
+     * { uri, success, pending, error, retryInMs }; failed writes stay queued and retry.
+     */
+    async onWriteFlushed(callback) {
+        if (!this.isCapacitor()) return;
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.addListener) return;
+        await plugins.FolderPicker.addListener('writeFlushed', callback);
+    }
+
     async loadEntry(path) {
         if (this.isTauri()) {
             try {
@@ -366,11 +396,14 @@ class PlatformService {
             const plugins = await this._getCapacitorPlugins();
             if (plugins.FolderPicker) {
                 try {
+                    // asUrl: native serves the file as a streamed URL instead of a base64 data URL
                     const result = await plugins.FolderPicker.readImage({
                         entryUri: entry.entryUri,
-                        relativePath: relativePath
+                        relativePath: relativePath,
+                        asUrl: true
                     });
-                    return result;
+                    if (!result.success) return result;
+                    return { success: true, dataUrl: result.url };
                 } catch (e) {
                     console.error('[Platform] SAF readImage error:', e);
                     return { success: false, error: e.message };
@@ -381,6 +414,29 @@ class PlatformService {
         return { success: true, dataUrl: relativePath };
     }
 
+    /**
+     * Preview-sized image: native decodes a downscaled copy (cached on disk) and
+     * returns a URL for it. Falls back to readImage elsewhere.
+     */
+    async readThumbnail(entry, relativePath, maxWidth) {
+        if (this.isCapacitor() && entry && entry.entryUri) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker) {
+                try {
+                    const result = await plugins.FolderPicker.readThumbnail({
+                        entryUri: entry.entryUri,
+                        relativePath: relativePath,
+                        maxWidth: Math.round(maxWidth)
+                    });
+                    if (result.success) return result;
+                } catch (e) {
+                    console.warn('[Platform] SAF readThumbnail error, using full image:', e);
+                }
+            }
+        }
+        return this.readImage(entry, relativePath);
+    }
+
     // ===== Keyboard Control =====
 
     async showKeyboard() {
@@ -397,6 +453,63 @@ class PlatformService {
         }
     }
 
+    /**
+     * Tell the native side the editor is typeable (Android only): closes the
+     * native startup timeline and brings up the keyboard.
+     * @param {Object} metrics - { initMs } renderer init time
+     */
+    async notifyReady(metrics = {}) {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.notifyReady) return { success: false, unsupported: true };
+        try {
+            return await plugins.FolderPicker.notifyReady(metrics);
+        } catch (e) {
+            console.warn('[Platform] notifyReady failed:', e);
+            return { success: false, error: e.message };
+        }
+    }
+
+    /**
+     * Native startup marks (Android only)
+     * @returns {Promise<Object>} { success, origin, marks: [{ name, atMs, detail }] }
+     */
+    async getStartupTimeline() {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.getStartupTimeline) return { success: false, unsupported: true };
+        return plugins.FolderPicker.getStartupTimeline();
+    }
+
+    /**
+     * Native per-method latency histograms, stage timings and I/O counters (Android only)
+     * @returns {Promise<Object>} { success, stats: { since, methods, stages, counters } }
+     */
+    async getPerfStats() {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.getPerfStats) return { success: false, unsupported: true };
+        return plugins.FolderPicker.getPerfStats();
+    }
+
+    async resetPerfStats() {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.resetPerfStats) return { success: false, unsupported: true };
+        return plugins.FolderPicker.resetPerfStats();
+    }
+
+    /**
+     * Minimum native log level forwarded to DebugLogger (Android only)
+     * @param {string} level - 'debug' | 'info' | 'warn' | 'error'
+     */
+    async setNativeLogLevel(level) {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.setLogLevel) return { success: false, unsupported: true };
+        return plugins.FolderPicker.setLogLevel({ level });
+    }
+
     // ===== Toast Notifications =====
 
     async showToast(message, duration = 'short') {
@@ -421,8 +534,40 @@ class PlatformService {
 
     // ===== File Watcher =====
 
-    setupFileWatcher(callbacks) {
-        // File watching not yet implemented for Tauri/Capacitor/Web
+    /**
+     * Watch the active journal for changes made outside the app (Android only).
+     * callbacks.onEntriesChanged receives { added, modified, removed, dirnames },
+     * entries shaped like listEntriesFast's. Calling again re-targets the watch.
+     */
+    async setupFileWatcher(callbacks) {
+        // Not yet implemented for Tauri/Web
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.startWatching) return { success: false, unsupported: true };
+
+        this._fileWatcherCallbacks = callbacks;
+        if (!this._entriesChangedHandle) {
+            const toEntry = (e) => ({ ...e, path: e.indexUri, entryUri: e.uri });
+            this._entriesChangedHandle = await plugins.FolderPicker.addListener('entriesChanged', (event) => {
+                this._fileWatcherCallbacks?.onEntriesChanged?.({
+                    added: (event.added || []).map(toEntry),
+                    modified: (event.modified || []).map(toEntry),
+                    removed: event.removed || [],
+                    dirnames: event.dirnames || []
+                });
+            });
+        }
+
+        try {
+            let uri = await this._getEntriesDirectoryUri();
+            if (!uri || (!uri.startsWith('content://') && !uri.startsWith('/'))) {
+                uri = (await plugins.FolderPicker.getInternalJournalPath()).path;
+            }
+            return await plugins.FolderPicker.startWatching({ uri });
+        } catch (e) {
+            console.error('[Platform] setupFileWatcher error:', e);
+            return { success: false, error: e.message };
+        }
     }
 
     // ===== Web/IndexedDB Fallbacks =====
@@ -873,9 +1018,36 @@ draft: false
         }
     }
 
-    async _saveEntryCapacitor(path, content) {
+    async _saveEntryCapacitor(path, content, options = {}) {
         const plugins = await this._getCapacitorPlugins();
 
+        // Send only the edit when native still holds the content we last saved
+        if (options.base?.hash && path && (path.startsWith('content://') || path.startsWith('/'))
+                && plugins.FolderPicker?.patchFile) {
+            try {
+                const result = await plugins.FolderPicker.patchFile({
+                    uri: path,
+                    baseHash: options.base.hash,
+                    ops: [this._spliceBetween(options.base.content, content)],
+                    deferred: !!options.deferred
+                });
+                if (result.success) return result;
+                if (!result.conflict) console.error('[Platform] patchFile failed, writing in full:', result.error);
+            } catch (e) {
+                console.error('[Platform] patchFile error, writing in full:', e);
+            }
+        }
+
+        // Autosaves go to the native write-behind queue (SAF URI or internal path)
+        if (options.deferred && path && (path.startsWith('content://') || path.startsWith('/'))
+                && plugins.FolderPicker?.queueWrite) {
+            try {
+                return await plugins.FolderPicker.queueWrite({ uri: path, content });
+            } catch (e) {
+                console.error('[Platform] queueWrite error, writing directly:', e);
+            }
+        }
+
         // Check if path is a SAF URI
         if (path && path.startsWith('content://') && plugins.FolderPicker) {
             try {
@@ -906,6 +1078,24 @@ draft: false
         return this._saveEntryWeb(path, content);
     }
 
+    /**
+     * Single splice turning before into after: the common prefix and suffix are
+     * kept, everything between is replaced. Offsets are UTF-16, like the plugin's.
+     */
+    _spliceBetween(before, after) {
+        const max = Math.min(before.length, after.length);
+        let start = 0;
+        while (start < max && before.charCodeAt(start) === after.charCodeAt(start)) start++;
+        let end = 0;
+        while (end < max - start
+                && before.charCodeAt(before.length - 1 - end) === after.charCodeAt(after.length - 1 - end)) end++;
+        return {
+            start,
+            deleteCount: before.length - end - start,
+            insert: after.slice(start, after.length - end)
+        };
+    }
+
     async _loadEntryCapacitor(path) {
         const plugins = await this._getCapacitorPlugins();
 
@@ -1072,6 +1262,17 @@ draft: false
     }
 
     async _copyImageCapacitor(file, entry) {
+        if (entry && entry.entryUri && file instanceof Blob) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.beginUpload) {
+                const timestamp = new Date().toISOString().replace(/[:.]/g, '-').slice(0, 19);
+                const ext = (file.name && file.name.includes('.')) ? file.name.split('.').pop().toLowerCase() : 'png';
+                const result = await this._uploadChunked(plugins.FolderPicker, file, entry, 'image', `${timestamp}.${ext}`);
+                if (result.success) return result;
+                console.warn('[Platform] Chunked image upload failed, falling back:', result.error);
+            }
+        }
+
         // Read file as base64 and save via SAF
         return new Promise((resolve) => {
             const reader = new FileReader();
@@ -1100,6 +1301,11 @@ draft: false
 
         // If entry contains an entryUri, use SAF
         if (entry && entry.entryUri && plugins.FolderPicker) {
+            if (plugins.FolderPicker.beginUpload && file instanceof Blob) {
+                const result = await this._uploadChunked(plugins.FolderPicker, file, entry, 'file', filename || file.name);
+                if (result.success) return result;
+                console.warn('[Platform] Chunked upload failed, falling back to saveFile:', result.error);
+            }
             try {
                 // Read file as base64
                 const base64Data = await this._fileToBase64(file);
@@ -1135,6 +1341,40 @@ draft: false
         };
     }
 
+    /**
+     * Upload a File/Blob to the entry's images/ or files/ folder in slices, so
+     * neither side ever holds the whole attachment as base64. A failed chunk is
+     * retried from the offset native reports.
+     */
+    async _uploadChunked(folderPicker, file, entry, kind, filename) {
+        const chunkSize = 512 * 1024;
+        const begin = await folderPicker.beginUpload({ entryUri: entry.entryUri, filename, kind });
+        if (!begin.success) return begin;
+
+        const uploadId = begin.uploadId;
+        let offset = 0;
+        let retries = 0;
+        try {
+            while (offset < file.size) {
+                const data = await this._fileToBase64(file.slice(offset, offset + chunkSize));
+                const result = await folderPicker.appendUpload({ uploadId, offset, data });
+                if (result.success) {
+                    offset = result.offset;
+                    retries = 0;
+                } else if (typeof result.offset === 'number' && retries++ < 3) {
+                    offset = result.offset;
+                } else {
+                    throw new Error(result.error || 'Upload failed');
+                }
+            }
+            return await folderPicker.commitUpload({ uploadId, size: file.size });
+        } catch (e) {
+            console.error('[Platform] Chunked upload error:', e);
+            await folderPicker.abortUpload({ uploadId }).catch(() => {});
+            return { success: false, error: e.message };
+        }
+    }
+
     _fileToBase64(file) {
         return new Promise((resolve, reject) => {
             const reader = new FileReader();
@@ -1209,6 +1449,233 @@ draft: false
         return this.listEntries();
     }
 
+    /**
+     * One sorted page of entries from the native listing index (Android only)
+     * @param {Object} options - { sortKey: 'date'|'mtime'|'title', direction: 'desc'|'asc', cursor, limit }
+     * @returns {Promise<Object>} { success, entries, nextCursor, total }
+     *          or { success: false, unsupported: true } elsewhere
+     */
+    async listEntriesPage(options = {}) {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.listEntriesPage) return { success: false, unsupported: true };
+
+        try {
+            let uri = await this._getEntriesDirectoryUri();
+            if (!uri || (!uri.startsWith('content://') && !uri.startsWith('/'))) {
+                uri = (await plugins.FolderPicker.getInternalJournalPath()).path;
+            }
+            const result = await plugins.FolderPicker.listEntriesPage({
+                uri,
+                sortKey: options.sortKey || 'date',
+                direction: options.direction || 'desc',
+                cursor: options.cursor || null,
+                limit: options.limit || 50
+            });
+            if (!result.success) return result;
+
+            const entries = result.entries.map(e => ({
+                ...e,
+                path: e.indexUri,
+                entryUri: e.uri
+            }));
+            return { success: true, entries, nextCursor: result.nextCursor || null, total: result.total };
+        } catch (e) {
+            console.error('[Platform] listEntriesPage error:', e);
+            return { success: false, error: e.message };
+        }
+    }
+
+    /**
+     * What changed in the journal listing since sinceToken (Android only).
+     * Entries are shaped like listEntriesFast's; removed carries { dirname, uri }.
+     * A missing or expired token yields reset: true with every entry in added.
+     * @param {string|null} uri - Journal directory, or null for the active one
+     * @param {string|null} sinceToken - Token from a previous delta
+     * @returns {Promise<Object>} { success, token, reset, added, modified, removed, count }
+     *          or { success: false, unsupported: true } elsewhere
+     */
+    async listEntriesDelta(uri, sinceToken) {
+        if (!this.isCapacitor()) return { success: false, unsupported: true };
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins.FolderPicker?.listEntriesDelta) return { success: false, unsupported: true };
+
+        try {
+            if (!uri) uri = await this._getEntriesDirectoryUri();
+            if (!uri || (!uri.startsWith('content://') && !uri.startsWith('/'))) {
+                uri = (await plugins.FolderPicker.getInternalJournalPath()).path;
+            }
+            const result = await plugins.FolderPicker.listEntriesDelta({ uri, sinceToken: sinceToken || null });
+            if (!result.success) return result;
+
+            const toEntry = (e) => ({ ...e, path: e.indexUri, entryUri: e.uri });
+            return {
+                success: true,
+                token: result.token,
+                reset: result.reset,
+                added: (result.added || []).map(toEntry),
+                modified: (result.modified || []).map(toEntry),
+                removed: result.removed || [],
+                count: result.count
+            };
+        } catch (e) {
+            console.error('[Platform] listEntriesDelta error:', e);
+            return { success: false, error: e.message };
+        }
+    }
+
+    /**
+     * Streaming fast list for SAF directories (Android only).
+     * Calls onChunk(entries) as native emits each chunk, so the sidebar can
+     * render before the whole tree has been walked. Resolves with the totals.
+     */
+    async listEntriesFastStreaming(onChunk, overrideUri) {
+        const baseUri = this.isCapacitor() ? (overrideUri || await this._getEntriesDirectoryUri()) : null;
+        const plugins = await this._getCapacitorPlugins();
+        if (!plugins?.FolderPicker || !baseUri || !baseUri.startsWith('content://')) {
+            const result = await this.listEntriesFast(overrideUri);
+            if (result.success) onChunk(result.entries);
+            return result;
+        }
+
+        let listingId = null;
+        const pending = [];
+        const toEntry = (e) => ({
+            path: e.indexUri,
+            dirname: e.dirname,
+            mtime: e.mtime,
+            entryUri: e.uri,
+            indexUri: e.indexUri
+        });
+
+        return new Promise(async (resolve) => {
+            const chunkHandle = await plugins.FolderPicker.addListener('entriesChunk', (event) => {
+                if (listingId === null) {
+                    pending.push(event);
+                } else if (event.listingId === listingId) {
+                    onChunk(event.entries.map(toEntry));
+                }
+            });
+            const doneHandle = await plugins.FolderPicker.addListener('entriesComplete', (event) => {
+                if (event.listingId !== listingId) return;
+                chunkHandle.remove();
+                doneHandle.remove();
+                resolve({ success: event.success, count: event.total, durationMs: event.durationMs, error: event.error });
+            });
+
+            try {
+                const started = await plugins.FolderPicker.listEntriesStream({ uri: baseUri });
+                if (!started.success) {
+                    chunkHandle.remove();
+                    doneHandle.remove();
+                    resolve(started);
+                    return;
+                }
+                listingId = started.listingId;
+                for (const event of pending.splice(0)) {
+                    if (event.listingId === listingId) onChunk(event.entries.map(toEntry));
+                }
+            } catch (e) {
+                console.error('[Platform] listEntriesFastStreaming error:', e);
+                chunkHandle.remove();
+                doneHandle.remove();
+                resolve({ success: false, error: e.message });
+            }
+        });
+    }
+
+    /**
+     * Tag usage counts from the native tag index
+     * @returns {Promise<Object>} { success, tags: Array<{ tag, count }>, counts: { tag: count } }
+     *          or { success: false, unsupported: true } when there is no native index
+     */
+    async getTagCounts() {
+        if (this.isCapacitor()) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.getTagCounts) {
+                try {
+                    const scope = await this._getEntriesDirectoryUri();
+                    return await plugins.FolderPicker.getTagCounts({ scope });
+                } catch (e) {
+                    console.error('[Platform] getTagCounts error:', e);
+                    return { success: false, error: e.message };
+                }
+            }
+        }
+        return { success: false, unsupported: true };
+    }
+
+    /**
+     * One page of entries carrying the given tags, newest first
+     * @param {Array<string>} tags - tags to filter by
+     * @param {string} mode - 'and' (all tags) or 'or' (any tag)
+     * @param {number} page - zero-based page index
+     * @param {number} pageSize - entries per page
+     * @returns {Promise<Object>} { success, entries, total, page, hasMore }
+     *          or { success: false, unsupported: true } when there is no native index
+     */
+    async entriesForTags(tags, mode = 'and', page = 0, pageSize = 50) {
+        if (this.isCapacitor()) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.entriesForTags) {
+                try {
+                    const scope = await this._getEntriesDirectoryUri();
+                    return await plugins.FolderPicker.entriesForTags({ tags, mode, page, pageSize, scope });
+                } catch (e) {
+                    console.error('[Platform] entriesForTags error:', e);
+                    return { success: false, error: e.message };
+                }
+            }
+        }
+        return { success: false, unsupported: true };
+    }
+
+    /**
+     * Native fuzzy match over entry titles, dirnames and tags (trigram index)
+     * @param {string} query - text typed in the finder
+     * @param {number} limit - maximum results
+     * @returns {Promise<Object>} { success, results: Array<{ path, dirname, title, score }>, indexed }
+     *          or { success: false, unsupported: true } when there is no native index
+     */
+    async fuzzyFind(query, limit = 50) {
+        if (this.isCapacitor()) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.fuzzyFind) {
+                try {
+                    const scope = await this._getEntriesDirectoryUri();
+                    return await plugins.FolderPicker.fuzzyFind({ query, limit, scope });
+                } catch (e) {
+                    console.error('[Platform] fuzzyFind error:', e);
+                    return { success: false, error: e.message };
+                }
+            }
+        }
+        return { success: false, unsupported: true };
+    }
+
+    /**
+     * Native full-text search over entry titles, tags and bodies
+     * @param {string} query - words to match (each as a prefix)
+     * @param {number} limit - maximum results
+     * @returns {Promise<Object>} { success, results: Array<{ path, title, score, matches, snippet }> }
+     *          or { success: false, unsupported: true } when there is no native index
+     */
+    async searchEntries(query, limit = 50) {
+        if (this.isCapacitor()) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.search) {
+                try {
+                    const scope = await this._getEntriesDirectoryUri();
+                    return await plugins.FolderPicker.search({ query, limit, scope });
+                } catch (e) {
+                    console.error('[Platform] search error:', e);
+                    return { success: false, error: e.message };
+                }
+            }
+        }
+        return { success: false, unsupported: true };
+    }
+
     /**
      * Batch read metadata for multiple entries
      * @param {Array} entries - Array of { indexUri, dirname, uri, mtime }
@@ -1395,6 +1862,25 @@ draft: false
         return { success: false, error: 'Use HTML file input' };
     }
 
+    /**
+     * Pick a document and copy it into the entry natively (no base64 round-trip).
+     * Returns { success, relativePath, markdown, isImage } or { success: false, unsupported: true }.
+     */
+    async pickAndImport(entry, kind) {
+        if (this.isCapacitor() && entry && entry.entryUri) {
+            const plugins = await this._getCapacitorPlugins();
+            if (plugins.FolderPicker?.pickAndImport) {
+                try {
+                    return await plugins.FolderPicker.pickAndImport({ entryUri: entry.entryUri, kind });
+                } catch (e) {
+                    console.error('[Platform] pickAndImport error:', e);
+                    return { success: false, error: e.message };
+                }
+            }
+        }
+        return { success: false, unsupported: true };
+    }
+
     async pickFile() {
         if (this.isCapacitor()) {
             const plugins = await this._getCapacitorPlugins();
@@ -11,6 +11,13 @@ const tags = {
     },
 
     async loadFromIndex() {
+        // Android keeps tag counts natively; no need for the JS index file
+        const counts = await platform.getTagCounts();
+        if (counts.success && counts.counts) {
+            this.index = counts.counts;
+            return;
+        }
+
         const result = await platform.loadIndex();
         if (result.success && result.index && result.index.tags) {
             this.index = result.index.tags;
@@ -32,6 +39,32 @@ const tags = {
         return this.getAll().filter(tag => tag.toLowerCase().startsWith(lower));
     },
 
+    /**
+     * Entries tagged with all (mode 'and') or any (mode 'or') of tagList, one page at a time.
+     * Falls back to filtering the metadata cache where there is no native tag index.
+     */
+    async entriesFor(tagList, mode = 'and', page = 0, pageSize = 50) {
+        const result = await platform.entriesForTags(tagList, mode, page, pageSize);
+        if (!result.unsupported) return result;
+
+        const wanted = tagList.map(t => t.toLowerCase());
+        const all = window.metadataCache ? await window.metadataCache.getAllEntries() : [];
+        const matching = all.filter(entry => {
+            const entryTags = (entry.tags || []).map(t => String(t).toLowerCase());
+            return mode === 'or'
+                ? wanted.some(t => entryTags.includes(t))
+                : wanted.every(t => entryTags.includes(t));
+        }).sort((a, b) => String(b.date || '').localeCompare(String(a.date || '')));
+        const start = page * pageSize;
+        return {
+            success: true,
+            entries: matching.slice(start, start + pageSize),
+            total: matching.length,
+            page,
+            hasMore: start + pageSize < matching.length
+        };
+    },
+
     add(tag) {
         this.index[tag] = (this.index[tag] || 0) + 1;
     },